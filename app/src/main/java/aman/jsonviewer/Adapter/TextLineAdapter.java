@@ -66,10 +66,12 @@ public class TextLineAdapter extends RecyclerView.Adapter<TextLineAdapter.LineVi
 
     public int findFirstMatchLine() {
         if (searchQuery == null || searchQuery.isEmpty()) return -1;
-        String lowerQuery = searchQuery.toLowerCase();
+        int length = searchQuery.length();
         for (int i = 0; i < lines.length; i++) {
-            if (lines[i].toLowerCase().contains(lowerQuery)) {
-                return i;
+            // Compare in place rather than lower-casing a copy of every line
+            String line = lines[i];
+            for (int j = 0, last = line.length() - length; j <= last; j++) {
+                if (line.regionMatches(true, j, searchQuery, 0, length)) return i;
             }
         }
         return -1;
@@ -0,0 +1,266 @@
+package aman.jsonviewer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The rows of the Cards tab: one card per scalar of the document, in document order, keyed by its
+ * path. Cards are only built for the pages being shown, so the list has no depth or length caps
+ * while its memory stays bounded.
+ *
+ * <p>{@link #build} walks the document once and saves the walk's state at the start of every
+ * {@link #PAGE_SIZE}-th card. A page is built by resuming a {@link Cursor} from its checkpoint, and
+ * only the last {@link #CACHED_PAGES} pages are kept.
+ */
+final class CardPages {
+
+    static final int PAGE_SIZE = 256;
+    private static final int CACHED_PAGES = 8;
+    private static final int CHECK_INTERVAL = 4096; // Cards between interrupt checks
+    private static final int MAX_SEGMENTS = 4096;   // Interned key names kept at most
+
+    private final JsonDocument document;
+    private final int size;
+    private final int[][] checkpoints; // Saved cursor at the first card of each page
+    private final Map<Integer, CardViewFragment.CardItem[]> cache =
+            new LinkedHashMap<Integer, CardViewFragment.CardItem[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Integer, CardViewFragment.CardItem[]> eldest) {
+                    return size() > CACHED_PAGES;
+                }
+            };
+    // Member names of the cached cards, so that records repeating the same keys share them
+    private final Map<String, String> segments = new HashMap<>();
+
+    private CardPages(JsonDocument document, int size, int[][] checkpoints) {
+        this.document = document;
+        this.size = size;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Counts the cards and saves the page checkpoints; meant for a background thread.
+     *
+     * @return the pages, or null if the thread was interrupted
+     */
+    static CardPages build(JsonDocument document) {
+        Cursor cursor = new Cursor(document, null);
+        int[][] checkpoints = new int[16][];
+        int size = 0;
+        int untilCheck = CHECK_INTERVAL;
+        while (cursor.next()) {
+            if (--untilCheck == 0) {
+                untilCheck = CHECK_INTERVAL;
+                if (Thread.currentThread().isInterrupted()) return null;
+            }
+            if (size % PAGE_SIZE == 0) {
+                int page = size / PAGE_SIZE;
+                if (page == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, page * 2);
+                }
+                checkpoints[page] = cursor.save();
+            }
+            size++;
+        }
+        int pages = (size + PAGE_SIZE - 1) / PAGE_SIZE;
+        return new CardPages(document, size, Arrays.copyOf(checkpoints, pages));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** The card at {@code position}; builds its page if it is not cached. Main thread only. */
+    CardViewFragment.CardItem get(int position) {
+        int page = position / PAGE_SIZE;
+        CardViewFragment.CardItem[] cards = cache.get(page);
+        if (cards == null) {
+            if (segments.size() > MAX_SEGMENTS) segments.clear();
+            cards = new CardViewFragment.CardItem[Math.min(PAGE_SIZE, size - page * PAGE_SIZE)];
+            Cursor cursor = Cursor.restore(document, checkpoints[page], segments);
+            for (int i = 0; i < cards.length && cursor.next(); i++) {
+                int node = cursor.node();
+                cards[i] = new CardViewFragment.CardItem(
+                        cursor.path(), node, typeName(document.getType(node)));
+            }
+            cache.put(page, cards);
+        }
+        return cards[position % PAGE_SIZE];
+    }
+
+    /**
+     * A cursor on the card at {@code position}, stepped on from {@code from} when that is earlier
+     * on the same page, else resumed from the page's checkpoint. Safe on any thread.
+     */
+    Cursor cursorAt(int position, Cursor from) {
+        Cursor cursor = from;
+        if (cursor == null || cursor.position() > position
+                || cursor.position() / PAGE_SIZE != position / PAGE_SIZE) {
+            cursor = Cursor.restore(document, checkpoints[position / PAGE_SIZE], null);
+        }
+        while (cursor.position() < position && cursor.next()) {}
+        return cursor;
+    }
+
+    static String typeName(int type) {
+        switch (type) {
+            case JsonDocument.TYPE_STRING: return "String";
+            case JsonDocument.TYPE_NUMBER: return "Number";
+            case JsonDocument.TYPE_BOOLEAN: return "Boolean";
+            case JsonDocument.TYPE_NULL: return "Null";
+            default: return "Unknown";
+        }
+    }
+
+    /**
+     * Walks the cards in order. The open containers are kept on an explicit stack, and a card's
+     * path is only made when {@link #path} asks for it, so walking past cards is cheap. The cards
+     * under one container share its {@link CardPath}.
+     */
+    static final class Cursor {
+        private final JsonDocument document;
+        private int[] containers = new int[16];
+        private int[] children = new int[16]; // Current child of each open container
+        private int[] indexes = new int[16];  // Its index in an array, else -1
+        private CardPath[] paths = new CardPath[16]; // Path of each open container
+        private final Map<String, String> segments; // Interned member names, or null
+        private int depth;
+        private int pathDepth; // Levels whose path is up to date
+        private int position = -1;
+        private boolean onCard;  // The top child is the current card, still to be passed
+
+        /** @param segments where to intern member names, or null to not share them */
+        Cursor(JsonDocument document, Map<String, String> segments) {
+            this.document = document;
+            this.segments = segments;
+            push(document.getRoot());
+            paths[0] = null; // The root has an empty path
+            pathDepth = 1;
+        }
+
+        /** Moves to the next card; false after the last one. */
+        boolean next() {
+            if (onCard) advance(depth - 1);
+            while (depth > 0) {
+                int top = depth - 1;
+                int node = children[top];
+                if (node >= document.getEnd(containers[top])) {
+                    depth--;
+                    pathDepth = Math.min(pathDepth, depth);
+                    if (depth > 0) advance(depth - 1);
+                } else if (document.isContainer(node)) {
+                    push(node);
+                } else {
+                    onCard = true;
+                    position++;
+                    return true;
+                }
+            }
+            onCard = false;
+            return false;
+        }
+
+        /** Index of the current card. */
+        int position() {
+            return position;
+        }
+
+        int node() {
+            return children[depth - 1];
+        }
+
+        /** Path of the current card, such as "users[3].name". */
+        CardPath path() {
+            int top = depth - 1;
+            for (int level = Math.max(pathDepth, 1); level <= top; level++) {
+                paths[level] = segment(level - 1);
+            }
+            pathDepth = depth;
+            return segment(top);
+        }
+
+        /** Number of segments in the current card's path. */
+        int segmentCount() {
+            return depth;
+        }
+
+        /** Node whose key names path segment {@code level}; the last one is the card itself. */
+        int segmentNode(int level) {
+            return children[level];
+        }
+
+        /** Array index of path segment {@code level}, or -1 for a member. */
+        int segmentIndex(int level) {
+            return indexes[level];
+        }
+
+        /** The state at the current card, for {@link #restore}. */
+        int[] save() {
+            int[] saved = new int[2 + depth * 3];
+            saved[0] = position;
+            saved[1] = depth;
+            System.arraycopy(containers, 0, saved, 2, depth);
+            System.arraycopy(children, 0, saved, 2 + depth, depth);
+            System.arraycopy(indexes, 0, saved, 2 + depth * 2, depth);
+            return saved;
+        }
+
+        /** A cursor that {@link #next} moves onto the card {@code saved} was taken at. */
+        static Cursor restore(JsonDocument document, int[] saved, Map<String, String> segments) {
+            Cursor cursor = new Cursor(document, segments);
+            int depth = saved[1];
+            cursor.ensure(depth);
+            cursor.position = saved[0] - 1;
+            cursor.depth = depth;
+            System.arraycopy(saved, 2, cursor.containers, 0, depth);
+            System.arraycopy(saved, 2 + depth, cursor.children, 0, depth);
+            System.arraycopy(saved, 2 + depth * 2, cursor.indexes, 0, depth);
+            return cursor;
+        }
+
+        /** Path of the child at {@code level}, under its container's. */
+        private CardPath segment(int level) {
+            if (indexes[level] >= 0) return new CardPath(paths[level], null, indexes[level]);
+            String key = document.getKey(children[level]);
+            if (segments != null) {
+                String shared = segments.get(key);
+                if (shared == null) {
+                    segments.put(key, key);
+                } else {
+                    key = shared;
+                }
+            }
+            return new CardPath(paths[level], key, -1);
+        }
+
+        private void push(int node) {
+            ensure(depth + 1);
+            containers[depth] = node;
+            children[depth] = document.getFirstChild(node);
+            indexes[depth] = document.getType(node) == JsonDocument.TYPE_ARRAY ? 0 : -1;
+            pathDepth = Math.min(pathDepth, depth);
+            depth++;
+            onCard = false;
+        }
+
+        /** Moves the container at {@code level} on to its next child. */
+        private void advance(int level) {
+            children[level] = document.getNextSibling(children[level]);
+            if (indexes[level] >= 0) indexes[level]++;
+            pathDepth = Math.min(pathDepth, level + 1);
+            onCard = false;
+        }
+
+        private void ensure(int levels) {
+            if (levels <= containers.length) return;
+            int length = Math.max(levels, containers.length * 2);
+            containers = Arrays.copyOf(containers, length);
+            children = Arrays.copyOf(children, length);
+            indexes = Arrays.copyOf(indexes, length);
+            paths = Arrays.copyOf(paths, length);
+        }
+    }
+}
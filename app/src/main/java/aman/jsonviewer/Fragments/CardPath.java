@@ -0,0 +1,38 @@
+package aman.jsonviewer;
+
+/**
+ * A card's path, such as "users[3].name", as a chain of segments that point at their container's
+ * path. The cards under one container share its chain instead of each holding a copy of it, and the
+ * text is only built when a card is shown, copied or searched.
+ */
+final class CardPath {
+
+    final CardPath parent; // Null for a top-level member or element
+    final String key;      // Member name, or null for an array element
+    final int index;       // Position in the array, -1 for a member
+
+    CardPath(CardPath parent, String key, int index) {
+        this.parent = parent;
+        this.key = key;
+        this.index = index;
+    }
+
+    @Override
+    public String toString() {
+        int depth = 0;
+        for (CardPath p = this; p != null; p = p.parent) depth++;
+        CardPath[] chain = new CardPath[depth];
+        for (CardPath p = this; p != null; p = p.parent) chain[--depth] = p;
+
+        StringBuilder out = new StringBuilder();
+        for (CardPath segment : chain) {
+            if (segment.key == null) {
+                out.append('[').append(segment.index).append(']');
+            } else {
+                if (out.length() > 0) out.append('.');
+                out.append(segment.key);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -17,21 +17,21 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.card.MaterialCardView;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class CardViewFragment extends Fragment implements ViewerActivity.SearchableFragment {
     
+    /** Longest value text bound to a card; the full value is decoded only to copy it. */
+    private static final int MAX_PREVIEW_CHARS = 1024;
+
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
     private CardAdapter adapter;
-    private List<CardItem> items = new ArrayList<>();
-    private String jsonData;
+    private JsonDocument document;
+    private Runnable updateCounterCallback;
+    private final char[] preview = new char[MAX_PREVIEW_CHARS + 1];
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
@@ -44,18 +44,18 @@ public class CardViewFragment extends Fragment implements ViewerActivity.Searcha
         View view = inflater.inflate(R.layout.fragment_card_view, container, false);
         
         if (getActivity() instanceof ViewerActivity) {
-            jsonData = ((ViewerActivity) getActivity()).getJsonData();
+            document = ((ViewerActivity) getActivity()).getDocument();
         }
         
         recyclerView = view.findViewById(R.id.recyclerView);
         progressBar = view.findViewById(R.id.progressBar);
         
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new CardAdapter(items);
+        adapter = new CardAdapter();
         recyclerView.setAdapter(adapter);
         
-        if (jsonData != null) {
-            parseJsonAsync();
+        if (document != null) {
+            buildCardsAsync();
         }
         
         return view;
@@ -68,7 +68,7 @@ public class CardViewFragment extends Fragment implements ViewerActivity.Searcha
             String currentQuery = ((ViewerActivity) getActivity()).getCurrentSearchQuery();
             if (currentQuery != null && !currentQuery.isEmpty() && adapter != null) {
                 recyclerView.postDelayed(() -> {
-                    if (adapter != null && !items.isEmpty()) {
+                    if (adapter != null && adapter.hasCards()) {
                         adapter.filter(currentQuery);
                     }
                 }, 100);
@@ -76,30 +76,25 @@ public class CardViewFragment extends Fragment implements ViewerActivity.Searcha
         }
     }
     
-    private void parseJsonAsync() {
+    /** Counts the cards and checkpoints their pages; the cards themselves are built when shown. */
+    private void buildCardsAsync() {
         progressBar.setVisibility(View.VISIBLE);
         recyclerView.setVisibility(View.GONE);
         
+        CardAdapter target = adapter;
         executor.execute(() -> {
-            List<CardItem> tempItems = new ArrayList<>();
+            CardPages pages = null;
             try {
-                String trimmed = jsonData.trim();
-                if (trimmed.startsWith("{")) {
-                    JSONObject json = new JSONObject(jsonData);
-                    parseObject(json, "", tempItems, 0);
-                } else if (trimmed.startsWith("[")) {
-                    JSONArray json = new JSONArray(jsonData);
-                    parseArray(json, "", tempItems, 0);
-                }
+                pages = CardPages.build(document);
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            CardPages finalPages = pages;
             
             mainHandler.post(() -> {
-                items.clear();
-                items.addAll(tempItems);
-                adapter.updateAllItems(tempItems);
-                adapter.notifyDataSetChanged();
+                // The view may have been destroyed, or recreated with a new adapter, meanwhile
+                if (recyclerView == null || target != adapter) return;
+                if (finalPages != null) adapter.setPages(finalPages);
                 progressBar.setVisibility(View.GONE);
                 recyclerView.setVisibility(View.VISIBLE);
                 
@@ -113,62 +108,14 @@ public class CardViewFragment extends Fragment implements ViewerActivity.Searcha
         });
     }
     
-    private void parseObject(JSONObject obj, String prefix, List<CardItem> list, int depth) {
-        if (depth > 10) return;
-        
-        Iterator<String> keys = obj.keys();
-        while (keys.hasNext()) {
-            String key = keys.next();
-            String fullKey = prefix.isEmpty() ? key : prefix + "." + key;
-            try {
-                Object value = obj.get(key);
-                if (value instanceof JSONObject) {
-                    parseObject((JSONObject) value, fullKey, list, depth + 1);
-                } else if (value instanceof JSONArray) {
-                    parseArray((JSONArray) value, fullKey, list, depth + 1);
-                } else {
-                    list.add(new CardItem(fullKey, String.valueOf(value), 
-                        getValueType(value)));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-    }
-    
-    private void parseArray(JSONArray arr, String prefix, List<CardItem> list, int depth) {
-        if (depth > 10) return;
-        
-        int maxItems = Math.min(arr.length(), 100);
-        for (int i = 0; i < maxItems; i++) {
-            String fullKey = prefix + "[" + i + "]";
-            try {
-                Object value = arr.get(i);
-                if (value instanceof JSONObject) {
-                    parseObject((JSONObject) value, fullKey, list, depth + 1);
-                } else if (value instanceof JSONArray) {
-                    parseArray((JSONArray) value, fullKey, list, depth + 1);
-                } else {
-                    list.add(new CardItem(fullKey, String.valueOf(value), 
-                        getValueType(value)));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+    /** Card text, at most {@link #MAX_PREVIEW_CHARS} of it, for binding. Main thread only. */
+    private String previewOf(CardItem item) {
+        int length = document.getValueChars(item.node, preview, preview.length);
+        if (length > MAX_PREVIEW_CHARS) {
+            preview[MAX_PREVIEW_CHARS - 1] = '…';
+            length = MAX_PREVIEW_CHARS;
         }
-        
-        if (arr.length() > maxItems) {
-            list.add(new CardItem(prefix + "[...]", 
-                "... " + (arr.length() - maxItems) + " more items", "Info"));
-        }
-    }
-    
-    private String getValueType(Object value) {
-        if (value instanceof String) return "String";
-        if (value instanceof Number) return "Number";
-        if (value instanceof Boolean) return "Boolean";
-        if (value == JSONObject.NULL) return "Null";
-        return "Unknown";
+        return new String(preview, 0, length);
     }
     
     @Override
@@ -181,44 +128,69 @@ public class CardViewFragment extends Fragment implements ViewerActivity.Searcha
     public CardAdapter getAdapter() {
         return adapter;
     }
+
+    public void setCounterUpdateCallback(Runnable callback) {
+        this.updateCounterCallback = callback;
+    }
+
+    private void notifyCounterUpdate() {
+        if (updateCounterCallback != null) updateCounterCallback.run();
+    }
+    
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (adapter != null) adapter.cancelFilter();
+        recyclerView = null;
+        progressBar = null;
+    }
     
     @Override
     public void onDestroy() {
         super.onDestroy();
-        executor.shutdown();
+        if (adapter != null) adapter.cancelFilter();
+        // Interrupts a running CardPages.build, which checks for it
+        executor.shutdownNow();
     }
     
     static class CardItem {
-        String key;
-        String value;
-        String type;
-        boolean matchesSearch = false; 
+        final CardPath path;
+        final int node; // Id in the JsonDocument
+        final String type;
         
-        CardItem(String key, String value, String type) {
-            this.key = key;
-            this.value = value;
+        CardItem(CardPath path, int node, String type) {
+            this.path = path;
+            this.node = node;
             this.type = type;
         }
     }
     
     class CardAdapter extends RecyclerView.Adapter<CardAdapter.ViewHolder> {
-        private List<CardItem> displayItems;
-        private List<CardItem> allItems;
+        private CardPages pages;
         
         private String currentSearchQuery = "";
-        private final List<Integer> searchMatches = new ArrayList<>();
+        private volatile int currentSearchId;
+        private boolean searchInProgress;
+        // While filtering, the list shows the matching card positions, in order
+        private int[] matches = new int[64];
+        private int matchCount;
         private int currentMatchIndex = -1;
+        // Lower-cased query whose every match is among the shown cards, or null
+        private String baseQuery;
+        private int refinedCount; // Leading matches already re-tested by a running refinement
+        private boolean refining; // The running filter only removes cards from the shown ones
         
-        CardAdapter(List<CardItem> items) {
-            this.allItems = items;
-            this.displayItems = items;
+        void setPages(CardPages pages) {
+            this.pages = pages;
+            notifyDataSetChanged();
+        }
+
+        boolean hasCards() {
+            return pages != null && pages.size() > 0;
         }
         
-        void updateAllItems(List<CardItem> newItems) {
-            this.allItems = newItems;
-            if (currentSearchQuery.isEmpty()) {
-                this.displayItems = newItems;
-            }
+        private boolean isFiltering() {
+            return !currentSearchQuery.isEmpty();
         }
         
         @NonNull
@@ -231,21 +203,20 @@ public class CardViewFragment extends Fragment implements ViewerActivity.Searcha
         
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            CardItem item = displayItems.get(position);
+            CardItem item = pages.get(isFiltering() ? matches[position] : position);
             
-            holder.keyText.setText(item.key);
-            holder.valueText.setText(item.value);
+            String key = item.path.toString();
+            holder.keyText.setText(key);
+            holder.valueText.setText(previewOf(item));
             holder.typeText.setText(item.type);
             
             int color = getTypeColor(item.type);
             holder.typeText.setTextColor(color);
             
-            if (!searchMatches.isEmpty() && currentMatchIndex >= 0 && 
-                currentMatchIndex < searchMatches.size() &&
-                searchMatches.get(currentMatchIndex) == position) {
+            if (isFiltering() && position == currentMatchIndex) {
                 holder.card.setStrokeColor(0xFFFFEB3B);
                 holder.card.setStrokeWidth(6);
-            } else if (item.matchesSearch) {
+            } else if (isFiltering()) {
                 holder.card.setStrokeColor(0xFFFFD54F);
                 holder.card.setStrokeWidth(4);
             } else {
@@ -254,97 +225,376 @@ public class CardViewFragment extends Fragment implements ViewerActivity.Searcha
             }
             
             holder.card.setOnLongClickListener(v -> {
-                ClipboardManager clipboard = (ClipboardManager) 
-                    getContext().getSystemService(Context.CLIPBOARD_SERVICE);
-                ClipData clip = ClipData.newPlainText(item.key, item.value);
-                clipboard.setPrimaryClip(clip);
-                Toast.makeText(getContext(), "Copied: " + item.key, 
-                    Toast.LENGTH_SHORT).show();
+                copyCard(key, item.node);
                 return true;
             });
         }
         
+        /** Decodes the full value on the worker, then puts it on the clipboard. */
+        private void copyCard(String key, int node) {
+            executor.execute(() -> {
+                String value = null;
+                try {
+                    value = document.getValue(node);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                String finalValue = value;
+                mainHandler.post(() -> {
+                    if (finalValue == null || recyclerView == null) return;
+                    ClipboardManager clipboard = (ClipboardManager) 
+                        requireContext().getSystemService(Context.CLIPBOARD_SERVICE);
+                    clipboard.setPrimaryClip(ClipData.newPlainText(key, finalValue));
+                    Toast.makeText(getContext(), "Copied: " + key, 
+                        Toast.LENGTH_SHORT).show();
+                });
+            });
+        }
+        
         private int getTypeColor(String type) {
             switch (type) {
                 case "String": return 0xFF4CAF50;
                 case "Number": return 0xFFFF9800;
                 case "Boolean": return 0xFF9C27B0;
                 case "Null": return 0xFF757575;
-                case "Info": return 0xFF2196F3;
                 default: return 0xFFFFFFFF;
             }
         }
         
         @Override
         public int getItemCount() {
-            return displayItems.size();
+            if (pages == null) return 0;
+            return isFiltering() ? matchCount : pages.size();
         }
         
+        /**
+         * Starts filtering on the worker. A query that extends the last one only re-tests the
+         * shown cards and removes the ones that stop matching; any other walks every card and
+         * streams the matching ones to the list in batches.
+         */
         void filter(String query) {
+            int searchId = ++currentSearchId;
+            int shown = getItemCount();
+            boolean wasFiltering = isFiltering();
             currentSearchQuery = query;
-            
+            if (pages == null) {
+                searchInProgress = false;
+                notifyCounterUpdate();
+                return;
+            }
             if (query.isEmpty()) {
-                for (CardItem item : allItems) {
-                    item.matchesSearch = false;
+                matchCount = 0;
+                currentMatchIndex = -1;
+                baseQuery = null;
+                searchInProgress = false;
+                if (shown > 0) notifyItemRangeRemoved(0, shown);
+                notifyItemRangeInserted(0, pages.size());
+                notifyCounterUpdate();
+                return;
+            }
+
+            String lowerQuery = query.toLowerCase();
+            searchInProgress = true;
+            if (wasFiltering && baseQuery != null && lowerQuery.startsWith(baseQuery)) {
+                // The shown cards stay a superset of the matches while they are re-tested
+                baseQuery = lowerQuery;
+                refinedCount = 0;
+                refining = true;
+                int[] shownMatches = Arrays.copyOf(matches, matchCount);
+                notifyCounterUpdate();
+                executor.execute(new FilterTask(searchId, lowerQuery, null, shownMatches));
+                return;
+            }
+            baseQuery = null;
+            refining = false;
+            matchCount = 0;
+            currentMatchIndex = -1;
+            if (shown > 0) notifyItemRangeRemoved(0, shown);
+            notifyCounterUpdate();
+            executor.execute(
+                    new FilterTask(searchId, lowerQuery, candidatesFor(lowerQuery), null));
+        }
+
+        void cancelFilter() {
+            currentSearchId++;
+        }
+
+        boolean isSearchInProgress() {
+            return searchInProgress;
+        }
+
+        /** True while a running filter re-tests the shown cards, so the count can only shrink. */
+        boolean isRefining() {
+            return searchInProgress && refining;
+        }
+        
+        /**
+         * Nodes that may match, in document order, or null to test every card. Paths join keys
+         * with '.' and "[i]", so a query containing those can span keys and is not looked up.
+         */
+        private int[] candidatesFor(String lowerQuery) {
+            if (!(getActivity() instanceof ViewerActivity)) return null;
+            SearchIndex index = ((ViewerActivity) getActivity()).getSearchIndex();
+            if (index == null || lowerQuery.indexOf('.') >= 0 || lowerQuery.indexOf('[') >= 0
+                    || lowerQuery.indexOf(']') >= 0) {
+                return null;
+            }
+            return index.candidates(lowerQuery);
+        }
+
+        /** Main thread: appends a batch of matching card positions, unless it is stale. */
+        private void applyBatch(int searchId, int[] batch, boolean completed, String query) {
+            if (searchId != currentSearchId) return;
+            if (matchCount + batch.length > matches.length) {
+                matches = Arrays.copyOf(matches,
+                        Math.max(matches.length * 2, matchCount + batch.length));
+            }
+            System.arraycopy(batch, 0, matches, matchCount, batch.length);
+            int start = matchCount;
+            matchCount += batch.length;
+            if (completed) {
+                searchInProgress = false;
+                baseQuery = query;
+            }
+            if (batch.length > 0) {
+                notifyItemRangeInserted(start, batch.length);
+                if (currentMatchIndex < 0) moveToMatch(0);
+            }
+            notifyCounterUpdate();
+        }
+
+        /**
+         * Main thread: of the next {@code tested} shown matches, keeps the ones in {@code kept}
+         * and removes the rest, one range per run of removed cards.
+         */
+        private void applyRefinement(int searchId, int tested, int[] kept, boolean completed) {
+            if (searchId != currentSearchId) return;
+            int read = refinedCount;
+            int write = refinedCount;
+            int end = refinedCount + tested;
+            int next = 0;
+            int current = currentMatchIndex;
+            boolean currentRemoved = false;
+            while (read < end) {
+                if (next < kept.length && matches[read] == kept[next]) {
+                    matches[write++] = matches[read++];
+                    next++;
+                    continue;
+                }
+                // Cards before this run are already compacted, so the run starts at write
+                int runStart = read;
+                while (read < end && (next >= kept.length || matches[read] != kept[next])) read++;
+                int removed = read - runStart;
+                notifyItemRangeRemoved(write, removed);
+                if (current >= write + removed) {
+                    current -= removed;
+                } else if (current >= write) {
+                    current = write; // The next match takes the removed one's place
+                    currentRemoved = true;
                 }
-                displayItems = allItems;
-                searchMatches.clear();
+            }
+            System.arraycopy(matches, end, matches, write, matchCount - end);
+            matchCount -= end - write;
+            refinedCount = write;
+            if (completed) searchInProgress = false;
+
+            if (matchCount == 0) {
+                currentMatchIndex = -1;
+            } else if (currentRemoved) {
                 currentMatchIndex = -1;
+                moveToMatch(Math.min(current, matchCount - 1));
             } else {
-                List<CardItem> filtered = new ArrayList<>();
-                String lowerQuery = query.toLowerCase();
-                for (CardItem item : allItems) {
-                    boolean matches = item.key.toLowerCase().contains(lowerQuery) ||
-                        item.value.toLowerCase().contains(lowerQuery);
-                    item.matchesSearch = matches;
-                    if (matches) {
-                        filtered.add(item);
+                currentMatchIndex = current;
+            }
+            notifyCounterUpdate();
+        }
+        
+        /** Walks the cards on the worker and posts the matching positions in batches. */
+        private class FilterTask implements Runnable {
+            private static final int CHECK_INTERVAL = 4096; // Cards between cancel checks
+            private static final long BATCH_INTERVAL_MS = 150;
+            private static final int MAX_TESTED_CHARS = 1024; // Longer texts are searched as Strings
+
+            private final int searchId;
+            private final String query;
+            private final boolean spansSegments; // Query has '.', '[' or ']', so test whole paths
+            // Keys and values are decoded here; one cut inside a surrogate pair may stop 2 short
+            private final char[] text = new char[MAX_TESTED_CHARS + 2];
+            private final int[] candidates; // Sorted node ids from the index, null to test all
+            private final int[] shownMatches; // Card positions to re-test, null to walk all
+            private final CardPages pages = CardAdapter.this.pages;
+            private int[] found = new int[64];
+            private int foundCount;
+            private int tested; // Shown matches re-tested since the last post
+            private long lastPost = System.currentTimeMillis();
+
+            FilterTask(int searchId, String query, int[] candidates, int[] shownMatches) {
+                this.searchId = searchId;
+                this.query = query;
+                this.spansSegments = query.indexOf('.') >= 0 || query.indexOf('[') >= 0
+                        || query.indexOf(']') >= 0;
+                this.candidates = candidates;
+                this.shownMatches = shownMatches;
+            }
+
+            @Override
+            public void run() {
+                if (shownMatches != null) {
+                    refine();
+                } else {
+                    walk();
+                }
+            }
+
+            private void refine() {
+                CardPages.Cursor cursor = null;
+                try {
+                    for (int i = 0; i < shownMatches.length; i++) {
+                        if (i % CHECK_INTERVAL == 0) {
+                            if (searchId != currentSearchId) return;
+                            if (System.currentTimeMillis() - lastPost >= BATCH_INTERVAL_MS) {
+                                post(false);
+                            }
+                        }
+                        cursor = pages.cursorAt(shownMatches[i], cursor);
+                        if (matches(cursor)) add(shownMatches[i]);
+                        tested++;
                     }
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
-                displayItems = filtered;
-                
-                updateSearchMatches();
-                if (!searchMatches.isEmpty()) {
-                    currentMatchIndex = 0;
-                    scrollToCurrentMatch();
+                post(true);
+            }
+
+            private void walk() {
+                CardPages.Cursor cursor = new CardPages.Cursor(document, null);
+                int nextCandidate = 0;
+                int coveredUntil = 0; // Tape end of the candidates passed so far
+                int untilCheck = CHECK_INTERVAL;
+                try {
+                    while (cursor.next()) {
+                        if (--untilCheck == 0) {
+                            untilCheck = CHECK_INTERVAL;
+                            if (searchId != currentSearchId) return;
+                            if (System.currentTimeMillis() - lastPost >= BATCH_INTERVAL_MS) {
+                                post(false);
+                            }
+                        }
+                        int node = cursor.node();
+                        if (candidates != null) {
+                            // A card's key is its path, so a candidate ancestor can match it too
+                            while (nextCandidate < candidates.length
+                                    && candidates[nextCandidate] <= node) {
+                                coveredUntil = Math.max(coveredUntil,
+                                        document.getEnd(candidates[nextCandidate++]));
+                            }
+                            if (node >= coveredUntil) continue;
+                        }
+                        if (matches(cursor)) add(cursor.position());
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
+                post(true);
             }
-            notifyDataSetChanged();
-        }
-        
-        private void updateSearchMatches() {
-            searchMatches.clear();
-            for (int i = 0; i < displayItems.size(); i++) {
-                if (displayItems.get(i).matchesSearch) {
-                    searchMatches.add(i);
+
+            /** Folds case while comparing, so no lower-cased copy of the texts is made. */
+            private boolean matches(CardPages.Cursor cursor) {
+                if (spansSegments) {
+                    if (JsonStrings.indexOfIgnoreCase(cursor.path().toString(), query) >= 0) {
+                        return true;
+                    }
+                } else if (segmentMatches(cursor)) {
+                    return true;
+                }
+                int node = cursor.node();
+                int length = document.getValueChars(node, text, text.length);
+                if (length > MAX_TESTED_CHARS) {
+                    return JsonStrings.indexOfIgnoreCase(document.getValue(node), query) >= 0;
+                }
+                return JsonStrings.indexOfIgnoreCase(text, length, query) >= 0;
+            }
+
+            /**
+             * Tests each key and array index of the path on its own. Without a separator in the
+             * query, a hit in the joined path lies inside one of them.
+             */
+            private boolean segmentMatches(CardPages.Cursor cursor) {
+                for (int level = 0, count = cursor.segmentCount(); level < count; level++) {
+                    int index = cursor.segmentIndex(level);
+                    int length;
+                    if (index >= 0) {
+                        length = writeDigits(index, text);
+                    } else {
+                        int node = cursor.segmentNode(level);
+                        length = document.getKeyChars(node, text, text.length);
+                        if (length > MAX_TESTED_CHARS) {
+                            if (JsonStrings.indexOfIgnoreCase(document.getKey(node), query) >= 0) {
+                                return true;
+                            }
+                            continue;
+                        }
+                    }
+                    if (JsonStrings.indexOfIgnoreCase(text, length, query) >= 0) return true;
+                }
+                return false;
+            }
+
+            /** Writes the decimal digits of {@code value} from {@code text[0]}; returns the count. */
+            private int writeDigits(int value, char[] text) {
+                int digits = 1;
+                for (int rest = value; rest >= 10; rest /= 10) digits++;
+                for (int i = digits - 1, rest = value; i >= 0; i--, rest /= 10) {
+                    text[i] = (char) ('0' + rest % 10);
+                }
+                return digits;
+            }
+
+            private void add(int position) {
+                if (foundCount == found.length) {
+                    found = Arrays.copyOf(found, foundCount * 2);
+                }
+                found[foundCount++] = position;
+            }
+
+            private void post(boolean completed) {
+                int[] batch = Arrays.copyOf(found, foundCount);
+                int batchTested = tested;
+                foundCount = 0;
+                tested = 0;
+                lastPost = System.currentTimeMillis();
+                if (shownMatches != null) {
+                    mainHandler.post(() ->
+                            applyRefinement(searchId, batchTested, batch, completed));
+                } else {
+                    mainHandler.post(() -> applyBatch(searchId, batch, completed, query));
                 }
             }
         }
         
-        private void scrollToCurrentMatch() {
-            if (currentMatchIndex >= 0 && currentMatchIndex < searchMatches.size()) {
-                int position = searchMatches.get(currentMatchIndex);
-                RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
-                if (layoutManager instanceof LinearLayoutManager) {
-                    ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, 100);
-                }
-                notifyDataSetChanged();
+        /** Makes {@code index} the current match; only the cards whose stroke changes rebind. */
+        private void moveToMatch(int index) {
+            int previous = currentMatchIndex;
+            currentMatchIndex = index;
+            if (previous >= 0 && previous < matchCount && previous != index) {
+                notifyItemChanged(previous);
+            }
+            notifyItemChanged(index);
+            if (recyclerView == null) return;
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager instanceof LinearLayoutManager) {
+                ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(index, 100);
             }
         }
         
         public void nextMatch() {
-            if (searchMatches.isEmpty()) return;
-            currentMatchIndex = (currentMatchIndex + 1) % searchMatches.size();
-            scrollToCurrentMatch();
+            if (matchCount == 0) return;
+            moveToMatch((currentMatchIndex + 1) % matchCount);
         }
         
         public void previousMatch() {
-            if (searchMatches.isEmpty()) return;
-            currentMatchIndex--;
-            if (currentMatchIndex < 0) {
-                currentMatchIndex = searchMatches.size() - 1;
-            }
-            scrollToCurrentMatch();
+            if (matchCount == 0) return;
+            moveToMatch(currentMatchIndex > 0 ? currentMatchIndex - 1 : matchCount - 1);
         }
         
         public int getCurrentMatchIndex() {
@@ -352,7 +602,7 @@ public class CardViewFragment extends Fragment implements ViewerActivity.Searcha
         }
         
         public int getTotalMatches() {
-            return searchMatches.size();
+            return matchCount;
         }
         
         class ViewHolder extends RecyclerView.ViewHolder {
@@ -16,17 +16,12 @@ import android.widget.SeekBar;
 import android.widget.TextView;
 import androidx.fragment.app.Fragment;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class FlowChartViewFragment extends Fragment implements ViewerActivity.SearchableFragment {
 
     private FlowChartCanvas flowChartCanvas;
     private ProgressBar progressBar;
-    private String jsonData;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private JsonDocument document;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     public static FlowChartViewFragment newInstance() {
@@ -38,7 +33,7 @@ public class FlowChartViewFragment extends Fragment implements ViewerActivity.Se
             LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
 
         if (getActivity() instanceof ViewerActivity) {
-            jsonData = ((ViewerActivity) getActivity()).getJsonData();
+            document = ((ViewerActivity) getActivity()).getDocument();
         }
 
         // 1. Create the main container
@@ -72,8 +67,8 @@ public class FlowChartViewFragment extends Fragment implements ViewerActivity.Se
         progressBar.setIndeterminateTintList(android.content.res.ColorStateList.valueOf(0xFF00BCD4));
         rootLayout.addView(progressBar);
 
-        // 5. Parse JSON Async
-        if (jsonData != null) {
+        // 5. Build graph from the shared document
+        if (document != null) {
             loadGraphAsync();
         }
 
@@ -90,43 +85,15 @@ public class FlowChartViewFragment extends Fragment implements ViewerActivity.Se
         progressBar.setVisibility(View.VISIBLE);
         flowChartCanvas.setVisibility(View.GONE);
         
-        executor.execute(() -> {
+        // The document is already parsed; just hop to the next frame so the spinner can show
+        mainHandler.post(() -> {
             try {
-                String trimmed = jsonData.trim();
-                final Object result;
-                final boolean isObject;
-                
-                if (trimmed.startsWith("{")) {
-                    result = new JSONObject(jsonData);
-                    isObject = true;
-                } else if (trimmed.startsWith("[")) {
-                    result = new JSONArray(jsonData);
-                    isObject = false;
-                } else {
-                    result = null;
-                    isObject = false;
-                }
-                
-                mainHandler.post(() -> {
-                    if (result != null) {
-                        try {
-                            if (isObject) {
-                                flowChartCanvas.buildFromJSON((JSONObject) result);
-                            } else {
-                                flowChartCanvas.buildFromJSONArray((JSONArray) result);
-                            }
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    progressBar.setVisibility(View.GONE);
-                    flowChartCanvas.setVisibility(View.VISIBLE);
-                });
-                
+                flowChartCanvas.buildFromDocument(document);
             } catch (Exception e) {
                 e.printStackTrace();
-                mainHandler.post(() -> progressBar.setVisibility(View.GONE));
             }
+            progressBar.setVisibility(View.GONE);
+            flowChartCanvas.setVisibility(View.VISIBLE);
         });
     }
 
@@ -190,13 +157,11 @@ public class FlowChartViewFragment extends Fragment implements ViewerActivity.Se
     @Override
     public void onSearch(String query) {
         if (flowChartCanvas != null) {
-            flowChartCanvas.performSearch(query);
+            SearchIndex index =
+                    getActivity() instanceof ViewerActivity
+                            ? ((ViewerActivity) getActivity()).getSearchIndex()
+                            : null;
+            flowChartCanvas.performSearch(query, index);
         }
     }
-    
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        executor.shutdown();
-    }
 }
@@ -22,8 +22,7 @@ import io.github.rosemoe.sora.langs.textmate.registry.ThemeRegistry;
 import io.github.rosemoe.sora.langs.textmate.registry.model.ThemeModel;
 import io.github.rosemoe.sora.langs.textmate.registry.provider.AssetsFileResolver;
 import org.eclipse.tm4e.core.registry.IThemeSource;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -67,13 +66,15 @@ public class PrettyViewFragment extends Fragment implements ViewerActivity.Searc
         
         searcher = codeEditor.getSearcher();
 
-        String jsonData = null;
+        ByteBuffer source = null;
+        JsonDocument document = null;
         if (getActivity() instanceof ViewerActivity) {
-            jsonData = ((ViewerActivity) getActivity()).getJsonData();
+            source = ((ViewerActivity) getActivity()).getSource();
+            document = ((ViewerActivity) getActivity()).getDocument();
         }
 
-        if (jsonData != null) {
-            formatAndLoadAsync(jsonData);
+        if (source != null) {
+            formatAndLoadAsync(source, document);
         }
 
         return root;
@@ -87,25 +88,18 @@ public class PrettyViewFragment extends Fragment implements ViewerActivity.Searc
         }
     }
 
-    private void formatAndLoadAsync(String jsonData) {
+    private void formatAndLoadAsync(ByteBuffer source, JsonDocument document) {
         progressBar.setVisibility(View.VISIBLE);
         codeEditor.setVisibility(View.GONE);
 
         executor.execute(
                 () -> {
                     try {
-                        String trimmed = jsonData.trim();
-                        String result;
-                        if (trimmed.startsWith("{")) {
-                            JSONObject json = new JSONObject(jsonData);
-                            result = json.toString(4);
-                        } else if (trimmed.startsWith("[")) {
-                            JSONArray json = new JSONArray(jsonData);
-                            result = json.toString(4);
-                        } else {
-                            result = jsonData;
-                        }
-                        formattedJson = result;
+                        // Invalid JSON has no document; show it as-is
+                        formattedJson =
+                                document != null
+                                        ? document.toString(4)
+                                        : JsonLoader.decode(source);
 
                         handler.post(
                                 () -> {
@@ -119,10 +113,11 @@ public class PrettyViewFragment extends Fragment implements ViewerActivity.Searc
                                 });
                     } catch (Exception e) {
                         e.printStackTrace();
+                        String rawJson = JsonLoader.decode(source);
                         handler.post(
                                 () -> {
                                     if (codeEditor != null) {
-                                        codeEditor.setText(jsonData); // Fallback to raw
+                                        codeEditor.setText(rawJson); // Fallback to raw
                                         progressBar.setVisibility(View.GONE);
                                         codeEditor.setVisibility(View.VISIBLE);
                                     }
@@ -3,6 +3,9 @@ package aman.jsonviewer;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.style.BackgroundColorSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,8 +15,9 @@ import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -21,7 +25,7 @@ public class RawViewFragment extends Fragment implements ViewerActivity.Searchab
 
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
-    private static final int CHUNK_SIZE = 3000;
+    private static final int CHUNK_SIZE = 3000; // Bytes per row
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
@@ -40,42 +44,62 @@ public class RawViewFragment extends Fragment implements ViewerActivity.Searchab
         recyclerView.setHasFixedSize(true);
         recyclerView.setItemViewCacheSize(10);
 
-        String jsonData = null;
+        ByteBuffer source = null;
         if (getActivity() instanceof ViewerActivity) {
-            jsonData = ((ViewerActivity) getActivity()).getJsonData();
+            source = ((ViewerActivity) getActivity()).getSource();
         }
 
-        if (jsonData != null) {
-            loadDataAsync(jsonData);
+        if (source != null) {
+            loadDataAsync(source);
         }
 
         return view;
     }
 
-    private void loadDataAsync(String jsonData) {
+    private void loadDataAsync(ByteBuffer source) {
         progressBar.setVisibility(View.VISIBLE);
         recyclerView.setVisibility(View.GONE);
 
         executor.execute(() -> {
-            List<String> chunks = splitString(jsonData, CHUNK_SIZE);
+            int[] chunkStarts = splitChunks(source, CHUNK_SIZE);
+
+            // Invalid JSON: open at the row holding the failure and mark it
+            JsonParseException error = JsonDataHolder.getInstance().getParseError();
+            int errorPosition = error != null
+                    ? (int) Math.min(source.position() + error.getOffset(), source.limit())
+                    : -1;
 
             mainHandler.post(() -> {
                 if (recyclerView != null) {
-                    recyclerView.setAdapter(new TextChunkAdapter(chunks));
+                    TextChunkAdapter adapter = new TextChunkAdapter(source, chunkStarts, errorPosition);
+                    recyclerView.setAdapter(adapter);
                     progressBar.setVisibility(View.GONE);
                     recyclerView.setVisibility(View.VISIBLE);
+                    if (errorPosition >= 0) {
+                        ((LinearLayoutManager) recyclerView.getLayoutManager())
+                                .scrollToPositionWithOffset(adapter.rowOf(errorPosition), 0);
+                    }
                 }
             });
         });
     }
 
-    private List<String> splitString(String text, int interval) {
-        List<String> chunks = new ArrayList<>();
-        int length = text.length();
-        for (int i = 0; i < length; i += interval) {
-            chunks.add(text.substring(i, Math.min(length, i + interval)));
+    /**
+     * Row boundaries over the raw bytes, one extra entry for the end. Rows are only decoded when
+     * bound, so a mapped file is never copied onto the heap as a whole. A boundary is moved past
+     * UTF-8 continuation bytes so no character is split between rows.
+     */
+    private int[] splitChunks(ByteBuffer source, int interval) {
+        int start = source.position();
+        int end = source.limit();
+        int[] starts = new int[(end - start) / interval + 2];
+        int count = 0;
+        for (int i = start; i < end; i += interval) {
+            while (i < end && (source.get(i) & 0xC0) == 0x80) i++;
+            if (i < end) starts[count++] = i;
         }
-        return chunks;
+        starts[count++] = end;
+        return Arrays.copyOf(starts, count);
     }
 
     @Override
@@ -104,10 +128,21 @@ public class RawViewFragment extends Fragment implements ViewerActivity.Searchab
     }
 
     private static class TextChunkAdapter extends RecyclerView.Adapter<TextChunkAdapter.ChunkViewHolder> {
-        private final List<String> chunks;
+        private final ByteBuffer source;
+        private final int[] chunkStarts;
+        private final int errorPosition; // Buffer index of a parse error, or -1
+        private byte[] chunkBuffer = new byte[CHUNK_SIZE + 4];
+
+        TextChunkAdapter(ByteBuffer source, int[] chunkStarts, int errorPosition) {
+            this.source = source;
+            this.chunkStarts = chunkStarts;
+            this.errorPosition = errorPosition;
+        }
 
-        TextChunkAdapter(List<String> chunks) {
-            this.chunks = chunks;
+        int rowOf(int position) {
+            int row = Arrays.binarySearch(chunkStarts, position);
+            if (row < 0) row = -row - 2; // Insertion point minus one
+            return Math.max(0, Math.min(row, getItemCount() - 1));
         }
 
         @NonNull
@@ -129,12 +164,32 @@ public class RawViewFragment extends Fragment implements ViewerActivity.Searchab
 
         @Override
         public void onBindViewHolder(@NonNull ChunkViewHolder holder, int position) {
-            holder.text.setText(chunks.get(position));
+            int start = chunkStarts[position];
+            int length = chunkStarts[position + 1] - start;
+            if (chunkBuffer.length < length) chunkBuffer = new byte[length];
+            ByteBuffer view = source.duplicate();
+            view.position(start);
+            view.get(chunkBuffer, 0, length);
+            String text = new String(chunkBuffer, 0, length, StandardCharsets.UTF_8);
+
+            if (errorPosition >= 0 && rowOf(errorPosition) == position) {
+                // Chars before the error = decoded length of the bytes before it
+                int errorChar = new String(
+                        chunkBuffer, 0, errorPosition - start, StandardCharsets.UTF_8).length();
+                SpannableString spanned = new SpannableString(text);
+                if (errorChar < text.length()) {
+                    spanned.setSpan(new BackgroundColorSpan(0xFFFF5252),
+                            errorChar, errorChar + 1, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+                holder.text.setText(spanned);
+            } else {
+                holder.text.setText(text);
+            }
         }
 
         @Override
         public int getItemCount() {
-            return chunks.size();
+            return chunkStarts.length - 1;
         }
         
         @Override
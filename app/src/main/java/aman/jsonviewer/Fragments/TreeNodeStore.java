@@ -0,0 +1,407 @@
+package aman.jsonviewer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The rows of the tree view, kept in parallel primitive arrays instead of one object per row.
+ *
+ * <p>A row is an int id. Rows are created a sibling group at a time, when their parent is first
+ * expanded, so siblings have consecutive ids; an array element's index is its distance from the
+ * first sibling and the next sibling is the next id, so neither is stored. Per row that is five
+ * ints, a type byte and a few bits, about 22 bytes, independent of depth. Indentation guides are
+ * derived from the ancestor chain when a row is bound.
+ *
+ * <p>The store also maps display positions to rows. Every sibling group keeps a Fenwick tree over
+ * its rows' visible subtree sizes (the row itself plus, if expanded, its visible descendants), in
+ * the {@code visible} slots of the group. Finding the row at a position descends one group per
+ * level with a Fenwick search, and expanding or collapsing a row updates one Fenwick path per
+ * ancestor, so both are O(depth · log n) however many rows appear or disappear.
+ *
+ * <p>Arrays longer than {@link #MAX_GROUP} expand into at most {@link #FANOUT} bucket rows, each
+ * covering a range of {@code FANOUT^k} elements and subdivided the same way when opened, so
+ * opening any row creates a bounded number of rows. A bucket's range follows from its position
+ * under its parent and is not stored; the document id of its first element is looked up by
+ * walking sibling links the first time it is needed.
+ *
+ * <p>The store is not thread-safe. Bulk changes that may touch many rows run on a {@link #copy}
+ * taken and owned by a worker, and the copy replaces the original if {@link #modCount} did not
+ * move.
+ */
+final class TreeNodeStore {
+
+    static final int NONE = -1;
+
+    /** Row type of a range of array elements; not a {@code JsonDocument} type. */
+    static final int TYPE_BUCKET = 100;
+
+    /** Arrays with more elements than this are split into buckets. */
+    static final int MAX_GROUP = 1000;
+    static final int FANOUT = 100;
+
+    /** Rows past which a bulk expand leaves the rest collapsed; about 22 bytes each. */
+    static final int MAX_ROWS = 2_000_000;
+
+    private final JsonDocument document;
+
+    private int[] node = new int[64];        // Id in the JsonDocument; first element for buckets
+    private int[] parent = new int[64];
+    private int[] firstChild = new int[64];  // NONE until the children are created
+    private int[] depth = new int[64];
+    private int[] visible = new int[64];     // Fenwick nodes of the row's sibling group
+    private byte[] type = new byte[64];
+    private final BitSet expanded = new BitSet();
+    private final BitSet lastChild = new BitSet();
+    private int size;
+    private int modCount; // Bumped whenever the expanded state changes
+
+    /** Creates the store with the document root as row 0. */
+    TreeNodeStore(JsonDocument document) {
+        this.document = document;
+        add(document.getRoot(), document.getType(document.getRoot()), NONE, 0);
+        lastChild.set(0);
+        visible[0] = 1; // The root is a group of one
+    }
+
+    private TreeNodeStore(TreeNodeStore other) {
+        document = other.document;
+        modCount = other.modCount;
+        size = other.size;
+        node = Arrays.copyOf(other.node, size);
+        parent = Arrays.copyOf(other.parent, size);
+        firstChild = Arrays.copyOf(other.firstChild, size);
+        depth = Arrays.copyOf(other.depth, size);
+        visible = Arrays.copyOf(other.visible, size);
+        type = Arrays.copyOf(other.type, size);
+        expanded.or(other.expanded);
+        lastChild.or(other.lastChild);
+    }
+
+    /**
+     * Independent copy, for a worker to change while this one stays on screen. It may be taken on
+     * the worker while the main thread uses this store: if the store changes meanwhile the copy
+     * can be torn, but then {@link #modCount} moved, and the caller must drop it (and any error
+     * it caused). Resolving a bucket's first element is the one write that does not bump it; it
+     * only fills in a value both copies would compute the same.
+     */
+    TreeNodeStore copy() {
+        return new TreeNodeStore(this);
+    }
+
+    /** Changes whenever a row is expanded or collapsed. */
+    int modCount() {
+        return modCount;
+    }
+
+    /** True once a bulk expand stopped creating rows at {@link #MAX_ROWS}. */
+    boolean isFull() {
+        return size >= MAX_ROWS;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Document id of the row, or of the first element in a bucket. */
+    int node(int row) {
+        if (node[row] == NONE) resolveBucket(row);
+        return node[row];
+    }
+
+    int parent(int row) {
+        return parent[row];
+    }
+
+    int depth(int row) {
+        return depth[row];
+    }
+
+    /** One of the {@code JsonDocument.TYPE_*} constants. */
+    int type(int row) {
+        return type[row];
+    }
+
+    /** True for rows that can be expanded: objects, arrays and buckets. */
+    boolean isContainer(int row) {
+        return type[row] == JsonDocument.TYPE_OBJECT
+                || type[row] == JsonDocument.TYPE_ARRAY
+                || type[row] == TYPE_BUCKET;
+    }
+
+    boolean isBucket(int row) {
+        return type[row] == TYPE_BUCKET;
+    }
+
+    /** Number of child rows: elements or members, or buckets for a long array. */
+    int childCount(int row) {
+        if (!isContainer(row)) return 0;
+        int elements = elementCount(row);
+        if (elements <= MAX_GROUP || type[row] == JsonDocument.TYPE_OBJECT) return elements;
+        int span = span(row);
+        return (elements + span - 1) / span;
+    }
+
+    /** Position inside the parent array, or -1 if the parent is not an array or a bucket. */
+    int arrayIndex(int row) {
+        int p = parent[row];
+        if (p == NONE || type[row] == TYPE_BUCKET) return -1;
+        if (type[p] == TYPE_BUCKET) return bucketStart(p) + row - firstChild[p];
+        if (type[p] != JsonDocument.TYPE_ARRAY) return -1;
+        return row - firstChild[p];
+    }
+
+    /** Index of the first element covered by a bucket row. */
+    int bucketStart(int row) {
+        int p = parent[row];
+        int base = type[p] == TYPE_BUCKET ? bucketStart(p) : 0;
+        return base + (row - firstChild[p]) * span(p);
+    }
+
+    /** Number of elements covered by a bucket row. */
+    int bucketSize(int row) {
+        int p = parent[row];
+        int span = span(p);
+        return Math.min(span, elementCount(p) - (row - firstChild[p]) * span);
+    }
+
+    /** First child row, creating the sibling group on first use; NONE if there are none. */
+    int firstChild(int row) {
+        if (firstChild[row] == NONE && childCount(row) > 0) materialize(row);
+        return firstChild[row];
+    }
+
+    int nextSibling(int row) {
+        return lastChild.get(row) ? NONE : row + 1;
+    }
+
+    boolean isExpanded(int row) {
+        return expanded.get(row);
+    }
+
+    /**
+     * Expands or collapses a row, creating its children if needed.
+     *
+     * @return how many rows became visible (negative: hidden), 0 if the row or an ancestor is
+     *     collapsed or nothing changed
+     */
+    int setExpanded(int row, boolean value) {
+        if (expanded.get(row) == value) return 0;
+        int children = firstChild(row);
+        expanded.set(row, value);
+        modCount++;
+        if (children == NONE) return 0;
+        int hidden = prefix(children, childCount(row));
+        return propagate(row, value ? hidden : -hidden);
+    }
+
+    /**
+     * Expands {@code row} and its descendants down to {@code levels} levels below it and collapses
+     * every row deeper than that, so 0 collapses the whole subtree and {@link Integer#MAX_VALUE}
+     * expands it fully.
+     *
+     * <p>Only rows that are created or already exist in the subtree are touched: each affected
+     * sibling group gets its Fenwick tree rebuilt in linear time from its rows' sizes, deepest
+     * groups first, and the change reaches the ancestors through one path update.
+     *
+     * <p>Once the store holds {@link #MAX_ROWS} rows, rows that still need their children
+     * created stay collapsed, so the result is consistent but only partly expanded.
+     *
+     * @return how many rows became visible (negative: hidden), as for {@link #setExpanded}
+     */
+    int expandTo(int row, int levels) {
+        int before = visibleSize(row);
+        int baseDepth = depth[row];
+        int[] stack = new int[16];
+        int[] groups = new int[16]; // Rows whose group is rebuilt, parents before children
+        int stackSize = 0;
+        int groupCount = 0;
+        stack[stackSize++] = row;
+        while (stackSize > 0) {
+            int r = stack[--stackSize];
+            if (!isContainer(r)) continue;
+            boolean open = depth[r] - baseDepth < levels
+                    && (firstChild[r] != NONE || size < MAX_ROWS);
+            expanded.set(r, open);
+            // Rows below a collapsed one are only visited if they exist, to collapse them too
+            int first = open ? firstChild(r) : firstChild[r];
+            if (first == NONE) continue;
+            if (groupCount == groups.length) groups = Arrays.copyOf(groups, groupCount * 2);
+            groups[groupCount++] = r;
+            int n = childCount(r);
+            if (stackSize + n > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, stackSize + n));
+            }
+            for (int child = first + n - 1; child >= first; child--) stack[stackSize++] = child;
+        }
+        for (int i = groupCount - 1; i >= 0; i--) {
+            int first = firstChild[groups[i]];
+            int n = childCount(groups[i]);
+            for (int child = first; child < first + n; child++) visible[child] = visibleSize(child);
+            // Linear Fenwick build: each node passes its sum on to its parent node
+            for (int k = 1; k <= n; k++) {
+                int up = k + (k & -k);
+                if (up <= n) visible[first + up - 1] += visible[first + k - 1];
+            }
+        }
+        modCount++;
+        return propagate(row, visibleSize(row) - before);
+    }
+
+    /** Rows a row takes on screen: itself plus, if expanded, its visible descendants. */
+    int visibleSize(int row) {
+        int first = firstChild[row];
+        if (!expanded.get(row) || first == NONE) return 1;
+        return 1 + prefix(first, childCount(row));
+    }
+
+    /** Number of visible rows, including the root. */
+    int visibleCount() {
+        return visible[0];
+    }
+
+    /** Row shown at {@code position}, 0 being the root. */
+    int rowAt(int position) {
+        int row = 0;
+        while (position > 0) {
+            position--; // Skip the row itself
+            int first = firstChild[row];
+            int n = childCount(row);
+            // Fenwick descent: largest prefix of siblings whose sizes sum to <= position
+            int index = 0;
+            for (int step = Integer.highestOneBit(n); step > 0; step >>= 1) {
+                int next = index + step;
+                if (next <= n && visible[first + next - 1] <= position) {
+                    index = next;
+                    position -= visible[first + next - 1];
+                }
+            }
+            row = first + index;
+        }
+        return row;
+    }
+
+    /** Display position of a row; only meaningful while all its ancestors are expanded. */
+    int positionOf(int row) {
+        int position = 0;
+        for (int p = parent[row]; p != NONE; row = p, p = parent[p]) {
+            position += 1 + prefix(firstChild[p], row - firstChild[p]);
+        }
+        return position;
+    }
+
+    boolean isLastChild(int row) {
+        return lastChild.get(row);
+    }
+
+    /**
+     * Fills {@code out[0..depth-2]} with whether a guide line runs through that indentation level,
+     * i.e. whether the ancestor one level deeper still has siblings below it.
+     */
+    void verticalLines(int row, boolean[] out) {
+        int level = depth[row] - 2;
+        for (int a = parent[row]; a != NONE && level >= 0; a = parent[a], level--) {
+            out[level] = !lastChild.get(a);
+        }
+    }
+
+    /** Sum of the visible sizes of the first {@code count} rows of the group at {@code first}. */
+    private int prefix(int first, int count) {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i) sum += visible[first + i - 1];
+        return sum;
+    }
+
+    /** Adds {@code delta} to the visible size of {@code row} and of its expanded ancestors. */
+    private int propagate(int row, int delta) {
+        while (true) {
+            int p = parent[row];
+            if (p == NONE) {
+                visible[0] += delta;
+                return delta;
+            }
+            int first = firstChild[p];
+            int n = childCount(p);
+            for (int i = row - first + 1; i <= n; i += i & -i) visible[first + i - 1] += delta;
+            if (!expanded.get(p)) return 0; // Hidden under a collapsed ancestor
+            row = p;
+        }
+    }
+
+    private void materialize(int row) {
+        modCount++; // New rows, and maybe new arrays, that a copy taken meanwhile would miss
+        int count = childCount(row);
+        int childDepth = depth[row] + 1;
+        int first = size;
+        if (count < elementCount(row)) {
+            // Buckets: their first elements are found when needed
+            for (int i = 0; i < count; i++) add(NONE, TYPE_BUCKET, row, childDepth);
+        } else {
+            int child = type[row] == TYPE_BUCKET ? node(row) : document.getFirstChild(node[row]);
+            for (int i = 0; i < count; i++, child = document.getNextSibling(child)) {
+                add(child, document.getType(child), row, childDepth);
+            }
+        }
+        for (int id = first; id < size; id++) {
+            visible[id] = (id - first + 1) & -(id - first + 1); // Fenwick tree of all ones
+        }
+        if (size > first) lastChild.set(size - 1);
+        firstChild[row] = first;
+    }
+
+    /** Elements (or members) under a container or bucket row. */
+    private int elementCount(int row) {
+        return type[row] == TYPE_BUCKET ? bucketSize(row) : document.getChildCount(node[row]);
+    }
+
+    /**
+     * Elements per child bucket of a row that has buckets: the smallest power of FANOUT that
+     * keeps the number of buckets within FANOUT.
+     */
+    private int span(int row) {
+        int elements = elementCount(row);
+        int span = FANOUT;
+        while ((elements + span - 1) / span > FANOUT) span *= FANOUT;
+        return span;
+    }
+
+    /**
+     * Finds the first element of a bucket by stepping over the elements of the buckets before
+     * it, starting from the nearest one already known, and records it for those buckets too.
+     */
+    private void resolveBucket(int row) {
+        int p = parent[row];
+        int first = firstChild[p];
+        int from = row;
+        while (from > first && node[from] == NONE) from--;
+        if (node[from] == NONE) {
+            node[from] = type[p] == TYPE_BUCKET ? node(p) : document.getFirstChild(node[p]);
+        }
+        int span = span(p);
+        int element = node[from];
+        for (int b = from; b < row; b++) {
+            for (int i = 0; i < span; i++) element = document.getNextSibling(element);
+            node[b + 1] = element;
+        }
+    }
+
+    private int add(int docNode, int rowType, int parentRow, int rowDepth) {
+        if (size == node.length) grow();
+        int id = size++;
+        node[id] = docNode;
+        parent[id] = parentRow;
+        firstChild[id] = NONE;
+        depth[id] = rowDepth;
+        type[id] = (byte) rowType;
+        return id;
+    }
+
+    private void grow() {
+        int capacity = node.length * 2;
+        node = Arrays.copyOf(node, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        depth = Arrays.copyOf(depth, capacity);
+        visible = Arrays.copyOf(visible, capacity);
+        type = Arrays.copyOf(type, capacity);
+    }
+}
@@ -1,36 +1,27 @@
 package aman.jsonviewer;
 
-import android.graphics.Canvas;
-import android.graphics.ColorFilter;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PixelFormat;
-import android.graphics.drawable.Drawable;
+import android.content.ClipData;
+import android.content.ClipboardManager;
+import android.content.Context;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.text.Spannable;
-import android.text.SpannableString;
-import android.text.style.BackgroundColorSpan;
-import android.text.style.ForegroundColorSpan;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.FrameLayout;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.TextView;
+import android.widget.Toast;
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import com.google.android.material.bottomsheet.BottomSheetDialog;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -39,10 +30,11 @@ public class TreeViewFragment extends Fragment implements ViewerActivity.Searcha
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
     private TreeAdapter adapter;
-    private List<TreeNode> nodes = new ArrayList<>();
-    private String jsonData;
+    private JsonDocument document;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Runnable updateCounterCallback;
 
     public static TreeViewFragment newInstance() {
         return new TreeViewFragment();
@@ -54,7 +46,7 @@ public class TreeViewFragment extends Fragment implements ViewerActivity.Searcha
         View view = inflater.inflate(R.layout.fragment_tree_view, container, false);
 
         if (getActivity() instanceof ViewerActivity) {
-            jsonData = ((ViewerActivity) getActivity()).getJsonData();
+            document = ((ViewerActivity) getActivity()).getDocument();
         }
 
         recyclerView = view.findViewById(R.id.recyclerView);
@@ -62,40 +54,33 @@ public class TreeViewFragment extends Fragment implements ViewerActivity.Searcha
 
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
 
-        if (jsonData != null) {
-            parseJsonAsync();
+        if (document != null) {
+            buildTreeAsync();
         }
 
         return view;
     }
 
-    private void parseJsonAsync() {
+    private void buildTreeAsync() {
         progressBar.setVisibility(View.VISIBLE);
         recyclerView.setVisibility(View.GONE);
 
         executor.execute(
                 () -> {
-                    List<TreeNode> tempNodes = new ArrayList<>();
+                    // Only the root and its direct children; deeper rows are built on expand
+                    TreeNodeStore store = null;
                     try {
-                        String trimmed = jsonData.trim();
-                        boolean[] rootLines = new boolean[0];
-
-                        if (trimmed.startsWith("{")) {
-                            JSONObject json = new JSONObject(jsonData);
-                            parseObject(json, "", 0, tempNodes, rootLines);
-                        } else if (trimmed.startsWith("[")) {
-                            JSONArray json = new JSONArray(jsonData);
-                            parseArray(json, "", 0, tempNodes, rootLines);
-                        }
+                        store = new TreeNodeStore(document);
+                        store.firstChild(0);
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
 
+                    TreeNodeStore finalStore = store;
                     mainHandler.post(
                             () -> {
-                                nodes.clear();
-                                nodes.addAll(tempNodes);
-                                adapter = new TreeAdapter(nodes);
+                                if (finalStore == null || recyclerView == null) return;
+                                adapter = new TreeAdapter(finalStore);
                                 recyclerView.setAdapter(adapter);
                                 progressBar.setVisibility(View.GONE);
                                 recyclerView.setVisibility(View.VISIBLE);
@@ -113,81 +98,18 @@ public class TreeViewFragment extends Fragment implements ViewerActivity.Searcha
                 });
     }
 
-    private void parseObject(
-            JSONObject obj, String key, int level, List<TreeNode> list, boolean[] parentLines) {
-        TreeNode node = new TreeNode(key, "Object", level, NodeType.OBJECT);
-        node.childCount = obj.length();
-        node.verticalLines = parentLines;
-        list.add(node);
-
-        List<String> keysList = new ArrayList<>();
-        Iterator<String> it = obj.keys();
-        while (it.hasNext()) keysList.add(it.next());
-
-        for (int i = 0; i < keysList.size(); i++) {
-            String k = keysList.get(i);
-            boolean isLast = (i == keysList.size() - 1);
-            boolean[] nextLines = new boolean[level + 1];
-            System.arraycopy(parentLines, 0, nextLines, 0, parentLines.length);
-            nextLines[level] = !isLast;
-
-            try {
-                Object value = obj.get(k);
-                if (value instanceof JSONObject) {
-                    parseObject((JSONObject) value, k, level + 1, node.children, nextLines);
-                } else if (value instanceof JSONArray) {
-                    parseArray((JSONArray) value, k, level + 1, node.children, nextLines);
-                } else {
-                    TreeNode child =
-                            new TreeNode(k, String.valueOf(value), level + 1, getNodeType(value));
-                    child.verticalLines = nextLines;
-                    node.children.add(child);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-    }
-
-    private void parseArray(
-            JSONArray arr, String key, int level, List<TreeNode> list, boolean[] parentLines) {
-        TreeNode node = new TreeNode(key, "Array", level, NodeType.ARRAY);
-        node.childCount = arr.length();
-        node.verticalLines = parentLines;
-        list.add(node);
-
-        for (int i = 0; i < arr.length(); i++) {
-            boolean isLast = (i == arr.length() - 1);
-            boolean[] nextLines = new boolean[level + 1];
-            System.arraycopy(parentLines, 0, nextLines, 0, parentLines.length);
-            nextLines[level] = !isLast;
-
-            try {
-                Object value = arr.get(i);
-                String indexKey = "[" + i + "]";
-                if (value instanceof JSONObject) {
-                    parseObject((JSONObject) value, indexKey, level + 1, node.children, nextLines);
-                } else if (value instanceof JSONArray) {
-                    parseArray((JSONArray) value, indexKey, level + 1, node.children, nextLines);
-                } else {
-                    TreeNode child =
-                            new TreeNode(
-                                    indexKey, String.valueOf(value), level + 1, getNodeType(value));
-                    child.verticalLines = nextLines;
-                    node.children.add(child);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+    /** Row label, decoded from the document only when the row is bound or searched. */
+    private String keyOf(int node, int index) {
+        if (index >= 0) return "[" + index + "]";
+        String key = document.getKey(node);
+        return key != null ? key : "";
     }
 
-    private NodeType getNodeType(Object value) {
-        if (value instanceof String) return NodeType.STRING;
-        if (value instanceof Number) return NodeType.NUMBER;
-        if (value instanceof Boolean) return NodeType.BOOLEAN;
-        if (value == JSONObject.NULL) return NodeType.NULL;
-        return NodeType.STRING;
+    private String valueOf(int node) {
+        int type = document.getType(node);
+        if (type == JsonDocument.TYPE_OBJECT) return "Object";
+        if (type == JsonDocument.TYPE_ARRAY) return "Array";
+        return document.getValue(node);
     }
 
     @Override
@@ -199,233 +121,465 @@ public class TreeViewFragment extends Fragment implements ViewerActivity.Searcha
         return adapter;
     }
 
+    public void setCounterUpdateCallback(Runnable callback) {
+        this.updateCounterCallback = callback;
+    }
+
+    private void notifyCounterUpdate() {
+        if (updateCounterCallback != null) updateCounterCallback.run();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // Work posted back from the executors checks this before touching views or the context
+        recyclerView = null;
+        progressBar = null;
+        if (adapter != null) adapter.cancelSearch();
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
+        if (adapter != null) adapter.cancelSearch();
         executor.shutdown();
+        searchExecutor.shutdown();
     }
 
-    enum NodeType {
-        OBJECT,
-        ARRAY,
-        STRING,
-        NUMBER,
-        BOOLEAN,
-        NULL
-    }
+    /** Matches of a finished search, in document order, kept to refine a longer query. */
+    private static final class SearchResult {
+        final String query;
+        int[] nodes = new int[16];
+        int[] indexes = new int[16]; // Array index of each match, for its "[i]" label
+        String[] windows = new String[16]; // Value text around a hit past the row preview
+        int windowCount;
+        int count;
 
-    static class TreeNode {
-        String key;
-        String value;
-        int level;
-        NodeType type;
-        boolean expanded = false;
-        List<TreeNode> children = new ArrayList<>();
-        int childCount = 0;
-        boolean[] verticalLines;
-        boolean matchesSearch = false;
-        boolean hasMatchingDescendant = false;
-
-        TreeNode(String key, String value, int level, NodeType type) {
-            this.key = key;
-            this.value = value;
-            this.level = level;
-            this.type = type;
-            this.verticalLines = new boolean[level];
+        SearchResult(String query) {
+            this.query = query;
+        }
+
+        void add(int node, int index, String window) {
+            if (count == nodes.length) {
+                nodes = Arrays.copyOf(nodes, count * 2);
+                indexes = Arrays.copyOf(indexes, count * 2);
+                windows = Arrays.copyOf(windows, count * 2);
+            }
+            nodes[count] = node;
+            indexes[count] = index;
+            windows[count++] = window;
+            if (window != null) windowCount++;
         }
     }
 
     class TreeAdapter extends RecyclerView.Adapter<TreeAdapter.ViewHolder> {
-        private List<TreeNode> displayNodes;
-        private List<TreeNode> allNodes;
+        private TreeNodeStore store; // Also maps positions to rows, see TreeNodeStore
         private static final int INDENT_WIDTH_DP = 20;
-        private int indentPx;
-        private float density;
+        private static final int INLINE_BULK_NODES = 20_000; // Larger subtrees go to the worker
+        private static final int MAX_PICK_LEVELS = 10;
+        private static final int HIT_CONTEXT = 32; // Chars shown before a hit past the preview
+        private static final int MAX_WINDOWS = 10_000; // Further late hits show the plain preview
+        private static final int MAX_TESTED_CHARS = 1024; // Longer texts are searched as Strings
+        private static final int BUCKET_COLOR = 0xFF9E9E9E;
+        private final TreeRowView.Style rowStyle;
         private String currentSearchQuery = "";
-        private List<Integer> searchMatches = new ArrayList<>();
+        private BitSet matchingNodes = new BitSet(); // Document node ids
+        // Node -> text around a late hit; int keys, so binding a highlighted row does not box
+        private SparseArray<String> hitWindows = new SparseArray<>();
+        // Matching document nodes in document order; their positions are looked up when needed
+        private int[] matchNodes = new int[16];
+        private int matchCount;
         private int currentMatchIndex = -1;
+        private char[] highlightQuery; // Lower-case query, shared by all bound rows
+
+        // Bumped for every query; a worker still running an older one stops at its next check
+        private volatile int currentSearchId = 0;
+        private boolean searchInProgress;
+        private SearchResult lastResult;
+        private int bulkId; // Bumped per bulk change; only the latest one is applied
 
-        TreeAdapter(List<TreeNode> nodes) {
-            this.allNodes = new ArrayList<>(nodes);
-            this.displayNodes = new ArrayList<>();
-            this.density = getResources().getDisplayMetrics().density;
-            this.indentPx = (int) (INDENT_WIDTH_DP * density);
-            rebuildDisplayList();
+        TreeAdapter(TreeNodeStore store) {
+            this.store = store;
+            this.rowStyle = new TreeRowView.Style(requireContext(), INDENT_WIDTH_DP);
         }
 
         @NonNull
         @Override
         public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            View view =
-                    LayoutInflater.from(parent.getContext())
-                            .inflate(R.layout.item_tree_node, parent, false);
-            return new ViewHolder(view);
+            TreeRowView view = new TreeRowView(parent.getContext(), rowStyle);
+            view.setLayoutParams(
+                    new RecyclerView.LayoutParams(
+                            ViewGroup.LayoutParams.MATCH_PARENT,
+                            ViewGroup.LayoutParams.WRAP_CONTENT));
+            ViewHolder holder = new ViewHolder(view);
+            // Set once here rather than per bind; the row is looked up when clicked
+            view.setOnClickListener(
+                    v -> {
+                        int position = holder.getAdapterPosition();
+                        if (position == RecyclerView.NO_POSITION) return;
+                        if (store.isContainer(store.rowAt(position))) {
+                            toggleNodeAtPosition(position);
+                        } else {
+                            showValue(store.rowAt(position));
+                        }
+                    });
+            view.setOnLongClickListener(
+                    v -> {
+                        int position = holder.getAdapterPosition();
+                        if (position == RecyclerView.NO_POSITION) return false;
+                        int row = store.rowAt(position);
+                        if (store.isContainer(row)) {
+                            showRowMenu(row);
+                        } else {
+                            copyRow(row);
+                        }
+                        return true;
+                    });
+            return holder;
         }
 
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            TreeNode node = displayNodes.get(position);
-
-            ViewGroup.LayoutParams params = holder.indentationView.getLayoutParams();
-            params.width = node.level * indentPx;
-            holder.indentationView.setLayoutParams(params);
-
-            if (node.level > 0) {
-                boolean isLastChild = isLastChildOfParent(position, node.level);
-                holder.indentationView.setBackground(
-                        new IndentationDrawable(
-                                node.level, indentPx, isLastChild, density, node.verticalLines));
+            TreeRowView view = holder.row;
+            int row = store.rowAt(position);
+            int depth = store.depth(row);
+            if (depth > 0) store.verticalLines(row, view.guides(depth));
+            if (store.isContainer(row)) {
+                boolean expanded = store.isExpanded(row);
+                view.setRow(
+                        depth,
+                        store.isLastChild(row),
+                        expanded ? TreeRowView.ICON_MINUS : TreeRowView.ICON_PLUS,
+                        expanded && store.childCount(row) > 0);
             } else {
-                holder.indentationView.setBackground(null);
+                view.setRow(depth, store.isLastChild(row), TreeRowView.ICON_LEAF, false);
             }
 
-            if (node.type == NodeType.OBJECT || node.type == NodeType.ARRAY) {
-                if (node.expanded && !node.children.isEmpty()) {
-                    holder.iconWrapper.setBackground(new ParentLineDrawable(density));
-                } else {
-                    holder.iconWrapper.setBackground(null);
-                }
-                holder.icon.setImageResource(
-                        node.expanded ? R.drawable.ic_tree_minus : R.drawable.ic_tree_plus);
-                holder.icon.setColorFilter(null);
-            } else {
-                holder.iconWrapper.setBackground(new LeafLineDrawable(density));
-                holder.icon.setImageResource(R.drawable.ic_tree_arrow);
-                holder.icon.setColorFilter(null);
-            }
-
-            SpannableString spanned;
-            if (!node.key.isEmpty()) {
-                String text = node.key + ": " + node.value;
-                spanned = new SpannableString(text);
-                spanned.setSpan(
-                        new ForegroundColorSpan(0xFF00BCD4),
-                        0,
-                        node.key.length(),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                int valueColor = getColorForType(node.type);
-                spanned.setSpan(
-                        new ForegroundColorSpan(valueColor),
-                        node.key.length() + 2,
-                        text.length(),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                if (!currentSearchQuery.isEmpty() && node.matchesSearch) {
-                    highlightSearchInText(spanned, text, currentSearchQuery);
-                }
-            } else {
-                spanned = new SpannableString(node.value);
-                int valueColor = getColorForType(node.type);
-                spanned.setSpan(
-                        new ForegroundColorSpan(valueColor),
-                        0,
-                        node.value.length(),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                if (!currentSearchQuery.isEmpty() && node.matchesSearch) {
-                    highlightSearchInText(spanned, node.value, currentSearchQuery);
-                }
+            char[] text = view.textBuffer();
+            if (store.isBucket(row)) {
+                int length = writeRange(store.bucketStart(row), store.bucketSize(row), text);
+                view.setText(0, length, BUCKET_COLOR, null);
+                return;
             }
-            holder.text.setText(spanned);
 
-            holder.itemLayout.setOnClickListener(
-                    v -> {
-                        if (node.type == NodeType.OBJECT || node.type == NodeType.ARRAY) {
-                            int clickedPosition = holder.getAdapterPosition();
-                            if (clickedPosition != RecyclerView.NO_POSITION) {
-                                toggleNodeAtPosition(clickedPosition);
-                            }
+            int node = store.node(row);
+            int keyLength = writeKey(node, store.arrayIndex(row), text);
+            int length = keyLength;
+            if (keyLength > 0) {
+                text[length++] = ':';
+                text[length++] = ' ';
+            }
+            boolean highlight = !currentSearchQuery.isEmpty() && matchingNodes.get(node);
+            String window = highlight ? hitWindows.get(node) : null;
+            length += window != null
+                    ? writeWindow(window, text, length)
+                    : writeValue(node, text, length);
+            int valueEnd = length;
+            if (document.isContainer(node)) {
+                text[length++] = ' ';
+                text[length++] = ' ';
+                length = StatsFormat.write(document.getDescendantCount(node),
+                        document.getByteLength(node), text, length);
+            }
+            view.setText(
+                    keyLength,
+                    valueEnd,
+                    length,
+                    getColorForType(store.type(row)),
+                    highlight ? highlightQuery : null);
+        }
+
+        /** Writes the row label into {@code text}, like {@link #keyOf} without a String. */
+        private int writeKey(int node, int index, char[] text) {
+            if (index >= 0) {
+                text[0] = '[';
+                int length = writeNumber(index, text, 1);
+                text[length] = ']';
+                return length + 1;
+            }
+            int length = document.getKeyChars(node, text, TreeRowView.MAX_KEY_CHARS + 1);
+            if (length > TreeRowView.MAX_KEY_CHARS) {
+                TreeRowView.ellipsize(text, TreeRowView.MAX_KEY_CHARS);
+                return TreeRowView.MAX_KEY_CHARS;
+            }
+            return Math.max(length, 0);
+        }
+
+        /** Writes a bucket label such as "[10000…19999]". */
+        private int writeRange(int start, int size, char[] text) {
+            text[0] = '[';
+            int length = writeNumber(start, text, 1);
+            text[length++] = '…';
+            length = writeNumber(start + size - 1, text, length);
+            text[length] = ']';
+            return length + 1;
+        }
+
+        /** Writes the decimal digits of {@code value} at {@code offset}; returns the end. */
+        private int writeNumber(int value, char[] text, int offset) {
+            int digits = 1;
+            for (int rest = value; rest >= 10; rest /= 10) digits++;
+            for (int i = offset + digits - 1, rest = value; i >= offset; i--, rest /= 10) {
+                text[i] = (char) ('0' + rest % 10);
+            }
+            return offset + digits;
+        }
+
+        /**
+         * Writes a preview of the row value at {@code offset}, like {@link #valueOf} without a
+         * String: only the first {@link TreeRowView#MAX_VALUE_CHARS} chars are decoded, so a
+         * long value costs no more than a short one.
+         */
+        private int writeValue(int node, char[] text, int offset) {
+            int type = document.getType(node);
+            if (type == JsonDocument.TYPE_OBJECT || type == JsonDocument.TYPE_ARRAY) {
+                String label = type == JsonDocument.TYPE_OBJECT ? "Object" : "Array";
+                label.getChars(0, label.length(), text, offset);
+                return label.length();
+            }
+            int room = TreeRowView.MAX_VALUE_CHARS;
+            // Decode one char more than fits, to tell whether the value was cut
+            int length = document.getValueChars(node, text, offset, room + 1);
+            if (length > room) {
+                length = room;
+                TreeRowView.ellipsize(text, offset + room);
+            }
+            return length;
+        }
+
+        /** Writes "…" and a search window cut by {@link #windowAround}, in place of a preview. */
+        private int writeWindow(String window, char[] text, int offset) {
+            text[offset] = '…';
+            int length = Math.min(window.length(), TreeRowView.MAX_VALUE_CHARS);
+            window.getChars(0, length, text, offset + 1);
+            if (window.length() > length) TreeRowView.ellipsize(text, offset + 1 + length);
+            return length + 1;
+        }
+
+        /** Opens the full value of a leaf row; only now is it decoded in full. */
+        private void showValue(int row) {
+            int node = store.node(row);
+            String key = keyOf(node, store.arrayIndex(row));
+            String type = typeName(store.type(row));
+            executor.execute(
+                    () -> {
+                        String value = null;
+                        try {
+                            value = valueOf(node);
+                        } catch (Exception e) {
+                            e.printStackTrace();
                         }
+                        String finalValue = value;
+                        mainHandler.post(
+                                () -> {
+                                    if (finalValue == null || recyclerView == null) return;
+                                    showValueBottomSheet(key, finalValue, type);
+                                });
                     });
         }
 
-        private void highlightSearchInText(SpannableString spanned, String text, String query) {
-            String lowerText = text.toLowerCase();
-            String lowerQuery = query.toLowerCase();
-            int index = 0;
-            while ((index = lowerText.indexOf(lowerQuery, index)) != -1) {
-                spanned.setSpan(
-                        new BackgroundColorSpan(0xFFFFD54F),
-                        index,
-                        index + query.length(),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                index += query.length();
+        private void showValueBottomSheet(String key, String value, String type) {
+            BottomSheetDialog bottomSheet = new BottomSheetDialog(requireContext());
+            View sheetView = getLayoutInflater().inflate(R.layout.bottom_sheet_value, null);
+
+            TextView keyText = sheetView.findViewById(R.id.keyText);
+            TextView valueText = sheetView.findViewById(R.id.valueText);
+            TextView typeText = sheetView.findViewById(R.id.typeText);
+
+            keyText.setText(key);
+            valueText.setText(value);
+            typeText.setText(type);
+
+            bottomSheet.setContentView(sheetView);
+            bottomSheet.show();
+        }
+
+        private String typeName(int type) {
+            switch (type) {
+                case JsonDocument.TYPE_STRING:
+                    return "String";
+                case JsonDocument.TYPE_NUMBER:
+                    return "Number";
+                case JsonDocument.TYPE_BOOLEAN:
+                    return "Boolean";
+                default:
+                    return "Null";
             }
         }
 
-        private void toggleNodeAtPosition(int position) {
-            TreeNode node = displayNodes.get(position);
-            node.expanded = !node.expanded;
-
-            if (node.expanded) {
-                // Expanding is already fast because addAll handles shifting efficiently
-                List<TreeNode> childrenToAdd = new ArrayList<>();
-                addVisibleNodes(node.children, childrenToAdd);
-                displayNodes.addAll(position + 1, childrenToAdd);
-                notifyItemChanged(position);
-                notifyItemRangeInserted(position + 1, childrenToAdd.size());
-            } else {
-                // Collapsing
-                int removeCount = countDescendants(position);
+        private void copyRow(int row) {
+            int node = store.node(row);
+            String key = keyOf(node, store.arrayIndex(row));
+            executor.execute(
+                    () -> {
+                        String value = null;
+                        try {
+                            value = valueOf(node);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        }
+                        String finalValue = value;
+                        mainHandler.post(
+                                () -> {
+                                    if (finalValue == null || recyclerView == null) return;
+                                    ClipboardManager clipboard =
+                                            (ClipboardManager) requireContext()
+                                                    .getSystemService(Context.CLIPBOARD_SERVICE);
+                                    clipboard.setPrimaryClip(ClipData.newPlainText(key, finalValue));
+                                    Toast.makeText(getContext(),
+                                            "Copied: " + (key.isEmpty() ? finalValue : key),
+                                            Toast.LENGTH_SHORT).show();
+                                });
+                    });
+        }
 
-                if (removeCount > 0) {
-                    // OPTIMIZATION: remove the whole range at once
-                    // This prevents repeated array shifting which causes the freeze
-                    displayNodes.subList(position + 1, position + 1 + removeCount).clear();
+        /** Bulk expand and collapse for a container row, plus copy for non-bucket rows. */
+        private void showRowMenu(int row) {
+            String[] items =
+                    store.isBucket(row)
+                            ? new String[] {"Expand all", "Expand levels…", "Collapse all"}
+                            : new String[] {"Expand all", "Expand levels…", "Collapse all", "Copy"};
+            new AlertDialog.Builder(requireContext())
+                    .setItems(
+                            items,
+                            (dialog, which) -> {
+                                if (which == 0) {
+                                    expandRow(row, Integer.MAX_VALUE);
+                                } else if (which == 1) {
+                                    showLevelPicker(row);
+                                } else if (which == 2) {
+                                    expandRow(row, 0);
+                                } else {
+                                    copyRow(row);
+                                }
+                            })
+                    .show();
+        }
 
-                    notifyItemChanged(position);
-                    notifyItemRangeRemoved(position + 1, removeCount);
-                }
+        private void showLevelPicker(int row) {
+            String[] items = new String[MAX_PICK_LEVELS];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = (i + 1) + (i == 0 ? " level" : " levels");
+            }
+            new AlertDialog.Builder(requireContext())
+                    .setTitle("Expand levels")
+                    .setItems(items, (dialog, which) -> expandRow(row, which + 1))
+                    .show();
+        }
+
+        /**
+         * Applies {@link TreeNodeStore#expandTo}. Small subtrees change in place; larger ones are
+         * changed on a copy of the store the worker takes, which is swapped in unless a row was
+         * toggled meanwhile, so the list stays usable while a big document expands.
+         */
+        private void expandRow(int row, int levels) {
+            int id = ++bulkId;
+            if (subtreeNodes(row) <= INLINE_BULK_NODES) {
+                progressBar.setVisibility(View.GONE); // A larger one may still be running
+                boolean shown = isShown(row);
+                int position = shown ? store.positionOf(row) : 0;
+                int before = store.visibleSize(row);
+                store.expandTo(row, levels);
+                notifyResized(row, levels, shown, position, before);
+                return;
             }
 
-            if (!currentSearchQuery.isEmpty()) updateSearchMatches();
+            // Copied on the worker too: at up to MAX_ROWS rows the copy is the slow part
+            TreeNodeStore current = store;
+            int version = current.modCount();
+            progressBar.setVisibility(View.VISIBLE);
+            executor.execute(
+                    () -> {
+                        TreeNodeStore changed;
+                        try {
+                            changed = current.copy();
+                            changed.expandTo(row, levels);
+                        } catch (Exception e) {
+                            e.printStackTrace(); // Also a copy torn by a toggle, redone below
+                            changed = null;
+                        }
+                        TreeNodeStore result = changed;
+                        mainHandler.post(
+                                () -> {
+                                    if (id != bulkId || recyclerView == null) return;
+                                    progressBar.setVisibility(View.GONE);
+                                    if (store != current || store.modCount() != version) {
+                                        expandRow(row, levels); // Toggled meanwhile: redo
+                                    } else if (result == null) {
+                                        Toast.makeText(getContext(), "Could not expand",
+                                                Toast.LENGTH_SHORT).show();
+                                    } else {
+                                        replaceStore(result, row, levels);
+                                    }
+                                });
+                    });
         }
 
-        private int countDescendants(int parentPosition) {
-            TreeNode parent = displayNodes.get(parentPosition);
-            int count = 0;
-            int checkLevel = parent.level;
-            for (int i = parentPosition + 1; i < displayNodes.size(); i++) {
-                TreeNode node = displayNodes.get(i);
-                if (node.level <= checkLevel) break;
-                count++;
-            }
-            return count;
+        /** Document nodes under a row; a bucket counts its whole array. */
+        private int subtreeNodes(int row) {
+            while (store.isBucket(row)) row = store.parent(row);
+            return document.getDescendantCount(store.node(row));
         }
 
-        private void addVisibleNodes(List<TreeNode> nodes, List<TreeNode> targetList) {
-            for (TreeNode node : nodes) {
-                targetList.add(node);
-                if (node.expanded && !node.children.isEmpty())
-                    addVisibleNodes(node.children, targetList);
-            }
+        /** Shows {@code changed} in place of the store. */
+        private void replaceStore(TreeNodeStore changed, int row, int levels) {
+            boolean shown = isShown(row);
+            int position = shown ? store.positionOf(row) : 0;
+            int before = store.visibleSize(row);
+            store = changed;
+            notifyResized(row, levels, shown, position, before);
         }
 
-        private void rebuildDisplayList() {
-            displayNodes.clear();
-            addVisibleNodes(allNodes, displayNodes);
+        /** One range update for a row whose subtree took {@code before} rows. */
+        private void notifyResized(int row, int levels, boolean shown, int position, int before) {
+            if (shown) {
+                int after = store.visibleSize(row);
+                notifyItemRangeChanged(position, Math.min(before, after));
+                if (after > before) {
+                    notifyItemRangeInserted(position + before, after - before);
+                } else if (after < before) {
+                    notifyItemRangeRemoved(position + after, before - after);
+                }
+            }
+            if (levels > 0 && store.isFull()) {
+                Toast.makeText(getContext(), "Too many rows; expanded partly",
+                        Toast.LENGTH_SHORT).show();
+            }
+            notifyCounterUpdate();
         }
 
-        private boolean isLastChildOfParent(int position, int currentLevel) {
-            for (int i = position + 1; i < displayNodes.size(); i++) {
-                TreeNode nextNode = displayNodes.get(i);
-                if (nextNode.level == currentLevel) return false;
-                if (nextNode.level < currentLevel) return true;
+        /** True if every ancestor of the row is expanded. */
+        private boolean isShown(int row) {
+            for (int p = store.parent(row); p != TreeNodeStore.NONE; p = store.parent(p)) {
+                if (!store.isExpanded(p)) return false;
             }
             return true;
         }
 
-        private int getColorForType(NodeType type) {
+        private void toggleNodeAtPosition(int position) {
+            int row = store.rowAt(position);
+            int change = store.setExpanded(row, !store.isExpanded(row));
+            notifyItemChanged(position);
+            if (change > 0) {
+                notifyItemRangeInserted(position + 1, change);
+            } else if (change < 0) {
+                notifyItemRangeRemoved(position + 1, -change);
+            }
+        }
+
+        private int getColorForType(int type) {
             switch (type) {
-                case STRING:
+                case JsonDocument.TYPE_STRING:
                     return 0xFF4CAF50;
-                case NUMBER:
+                case JsonDocument.TYPE_NUMBER:
                     return 0xFFFF9800;
-                case BOOLEAN:
+                case JsonDocument.TYPE_BOOLEAN:
                     return 0xFF9C27B0;
-                case NULL:
+                case JsonDocument.TYPE_NULL:
                     return 0xFF757575;
-                case OBJECT:
+                case JsonDocument.TYPE_OBJECT:
                     return 0xFF2196F3;
-                case ARRAY:
+                case JsonDocument.TYPE_ARRAY:
                     return 0xFFE91E63;
                 default:
                     return 0xFFFFFFFF;
@@ -434,93 +588,315 @@ public class TreeViewFragment extends Fragment implements ViewerActivity.Searcha
 
         @Override
         public int getItemCount() {
-            return displayNodes.size();
+            return store.visibleCount();
         }
 
+        /**
+         * Starts a search on the worker. Matches arrive in batches while the document is
+         * scanned; a query that extends the previous finished one only re-tests its matches.
+         */
         void search(String query) {
+            int searchId = ++currentSearchId;
             currentSearchQuery = query;
+            highlightQuery = query.toLowerCase().toCharArray();
+            matchingNodes = new BitSet();
+            hitWindows = new SparseArray<>();
+            matchCount = 0;
+            currentMatchIndex = -1;
+            // Only the rows on screen rebind, to drop their highlights
+            notifyItemRangeChanged(0, getItemCount());
+
             if (query.isEmpty()) {
-                clearSearchState(allNodes);
-                rebuildDisplayList();
-                searchMatches.clear();
-                currentMatchIndex = -1;
-                notifyDataSetChanged();
-            } else {
-                clearSearchState(allNodes);
-                markSearchMatches(allNodes, query.toLowerCase());
-                expandNodesWithMatches(allNodes);
-                rebuildDisplayList();
-                updateSearchMatches();
-                if (!searchMatches.isEmpty()) {
+                searchInProgress = false;
+                lastResult = null;
+                notifyCounterUpdate();
+                return;
+            }
+
+            String lowerQuery = query.toLowerCase();
+            SearchResult previous =
+                    lastResult != null && lowerQuery.startsWith(lastResult.query)
+                            ? lastResult
+                            : null;
+            SearchIndex index =
+                    getActivity() instanceof ViewerActivity
+                            ? ((ViewerActivity) getActivity()).getSearchIndex()
+                            : null;
+            searchInProgress = true;
+            notifyCounterUpdate();
+            searchExecutor.execute(new SearchTask(searchId, lowerQuery, previous, index));
+        }
+
+        void cancelSearch() {
+            currentSearchId++;
+        }
+
+        boolean isSearchInProgress() {
+            return searchInProgress;
+        }
+
+        /**
+         * Main thread: records a batch of matches from the worker, unless it is stale. Rows are
+         * only opened for the match being shown, see {@link #scrollToCurrentMatch}.
+         */
+        private void applyBatch(
+                int searchId, int[] batch, String[] windows, SearchResult completed) {
+            if (searchId != currentSearchId || recyclerView == null) return;
+            if (matchCount + batch.length > matchNodes.length) {
+                matchNodes = Arrays.copyOf(matchNodes,
+                        Math.max(matchNodes.length * 2, matchCount + batch.length));
+            }
+            for (int i = 0; i < batch.length; i++) {
+                matchingNodes.set(batch[i]);
+                if (windows[i] != null) hitWindows.append(batch[i], windows[i]);
+                matchNodes[matchCount++] = batch[i];
+            }
+            if (completed != null) {
+                lastResult = completed;
+                searchInProgress = false;
+            }
+            if (batch.length > 0) {
+                // Rebinds the rows on screen, which picks up their highlights
+                notifyItemRangeChanged(0, getItemCount());
+                if (currentMatchIndex < 0) {
                     currentMatchIndex = 0;
                     scrollToCurrentMatch();
                 }
-                notifyDataSetChanged();
             }
-        }
+            notifyCounterUpdate();
+        }
+
+        /**
+         * Expands the rows leading to a document node, so that it is visible, and returns its row.
+         * Inside a long array only the buckets holding the node are opened. Each opened row
+         * notifies its own range; it is shown, as the rows above it were opened first.
+         */
+        private int expandPathTo(int node) {
+            int row = 0;
+            while (store.node(row) != node || store.isBucket(row)) {
+                if (!store.isExpanded(row)) {
+                    int change = store.setExpanded(row, true);
+                    int position = store.positionOf(row);
+                    notifyItemChanged(position);
+                    if (change > 0) notifyItemRangeInserted(position + 1, change);
+                }
+                // Siblings' node ids grow in document order: the last one <= node holds it.
+                // For buckets that is the id of their first element.
+                int low = store.firstChild(row);
+                int high = low + store.childCount(row) - 1;
+                while (low < high) {
+                    int mid = (low + high + 1) >>> 1;
+                    if (store.node(mid) <= node) low = mid;
+                    else high = mid - 1;
+                }
+                row = low;
+            }
+            return row;
+        }
+
+        /** Scans (or re-filters) on the search executor and posts matches in batches. */
+        private class SearchTask implements Runnable {
+            private static final int CHECK_INTERVAL = 4096; // Nodes between cancel checks
+            private static final long BATCH_INTERVAL_MS = 150;
+
+            private final int searchId;
+            private final String query;
+            private final SearchResult previous;
+            private final SearchIndex index;
+            private final SearchResult result;
+            // Keys and values are decoded here; one cut inside a surrogate pair may stop 2 short
+            private final char[] text = new char[MAX_TESTED_CHARS + 2];
+            private int[] candidates; // Sorted node ids from the index, null to test every node
+            private int nextCandidate;
+            private int posted;
+            private int untilCheck = CHECK_INTERVAL;
+            private long lastPost = System.currentTimeMillis();
+
+            SearchTask(int searchId, String query, SearchResult previous, SearchIndex index) {
+                this.searchId = searchId;
+                this.query = query;
+                this.previous = previous;
+                this.index = index;
+                this.result = new SearchResult(query);
+            }
 
-        private void clearSearchState(List<TreeNode> nodes) {
-            for (TreeNode node : nodes) {
-                node.matchesSearch = false;
-                node.hasMatchingDescendant = false;
-                if (!node.children.isEmpty()) clearSearchState(node.children);
+            @Override
+            public void run() {
+                try {
+                    if (previous != null) {
+                        // Anything matching the longer query matched the shorter one
+                        for (int i = 0; i < previous.count; i++) {
+                            test(previous.nodes[i], previous.indexes[i]);
+                        }
+                    } else {
+                        // Container rows read "Object"/"Array", which the index does not hold
+                        if (index != null
+                                && !"object".contains(query)
+                                && !"array".contains(query)) {
+                            candidates = index.candidates(query);
+                        }
+                        scan(document.getRoot());
+                    }
+                    post(result);
+                } catch (CancellationException e) {
+                    // Superseded by a newer query
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
             }
-        }
 
-        private boolean markSearchMatches(List<TreeNode> nodes, String query) {
-            boolean hasMatch = false;
-            for (TreeNode node : nodes) {
-                boolean nodeMatches =
-                        node.key.toLowerCase().contains(query)
-                                || node.value.toLowerCase().contains(query);
-                boolean childrenMatch = false;
-                if (!node.children.isEmpty())
-                    childrenMatch = markSearchMatches(node.children, query);
-                node.matchesSearch = nodeMatches;
-                node.hasMatchingDescendant = childrenMatch;
-                if (nodeMatches || childrenMatch) hasMatch = true;
+            /**
+             * Tests the nodes under {@code root} in document order. Open containers are kept on
+             * an explicit stack, so deeply nested input cannot overflow the worker's stack.
+             */
+            private void scan(int root) {
+                int[] parents = new int[16];
+                int[] indexes = new int[16]; // Current child's index in each open array, else -1
+                int depth = 0;
+                int node = root;
+                int index = -1;
+                while (true) {
+                    if (visit(node, index)
+                            && document.isContainer(node)
+                            && document.getChildCount(node) > 0) {
+                        if (depth == parents.length) {
+                            parents = Arrays.copyOf(parents, depth * 2);
+                            indexes = Arrays.copyOf(indexes, depth * 2);
+                        }
+                        index = document.getType(node) == JsonDocument.TYPE_ARRAY ? 0 : -1;
+                        parents[depth] = node;
+                        indexes[depth++] = index;
+                        node = document.getFirstChild(node);
+                        continue;
+                    }
+                    // Next sibling, leaving the containers that are done
+                    while (true) {
+                        if (depth == 0) return;
+                        int next = document.getNextSibling(node);
+                        if (next < document.getEnd(parents[depth - 1])) {
+                            node = next;
+                            index = indexes[depth - 1] >= 0 ? ++indexes[depth - 1] : -1;
+                            break;
+                        }
+                        node = parents[--depth];
+                    }
+                }
             }
-            return hasMatch;
-        }
 
-        private void expandNodesWithMatches(List<TreeNode> nodes) {
-            for (TreeNode node : nodes) {
-                if (node.hasMatchingDescendant) {
-                    node.expanded = true;
-                    expandNodesWithMatches(node.children);
+            /** Tests one node; returns false if nothing under it can match. */
+            private boolean visit(int node, int index) {
+                if (candidates == null) {
+                    test(node, index);
+                    return true;
+                }
+                // Candidates come in document order, as do the nodes visited here
+                while (nextCandidate < candidates.length && candidates[nextCandidate] < node) {
+                    nextCandidate++;
+                }
+                if (nextCandidate == candidates.length
+                        || candidates[nextCandidate] >= document.getEnd(node)) {
+                    return false; // Nothing in this subtree can match
                 }
+                if (candidates[nextCandidate] == node) test(node, index);
+                return true;
+            }
+
+            private void test(int node, int index) {
+                if (--untilCheck == 0) {
+                    untilCheck = CHECK_INTERVAL;
+                    if (searchId != currentSearchId) throw new CancellationException();
+                    if (System.currentTimeMillis() - lastPost >= BATCH_INTERVAL_MS) post(null);
+                }
+                if (labelMatches(node, index)) {
+                    result.add(node, index, null);
+                    return;
+                }
+                String value = null; // Only made for long values and for hit windows
+                int length = 0;
+                int hit;
+                if (document.isContainer(node)) {
+                    value = valueOf(node);
+                    hit = JsonStrings.indexOfIgnoreCase(value, query);
+                } else {
+                    length = document.getValueChars(node, text, text.length);
+                    if (length > MAX_TESTED_CHARS) {
+                        value = document.getValue(node);
+                        hit = JsonStrings.indexOfIgnoreCase(value, query);
+                    } else {
+                        hit = JsonStrings.indexOfIgnoreCase(text, length, query);
+                    }
+                }
+                if (hit < 0) return;
+                // Rows show a preview; keep the text around a later hit to show it instead
+                boolean inPreview = hit + query.length() <= TreeRowView.MAX_VALUE_CHARS;
+                if (inPreview || result.windowCount >= MAX_WINDOWS) {
+                    result.add(node, index, null);
+                    return;
+                }
+                if (value == null) value = new String(text, 0, length);
+                result.add(node, index, windowAround(value, hit));
+            }
+
+            /** Tests the row label, like {@link #keyOf}, decoded into {@link #text}. */
+            private boolean labelMatches(int node, int index) {
+                int length;
+                if (index >= 0) {
+                    text[0] = '[';
+                    length = writeNumber(index, text, 1);
+                    text[length++] = ']';
+                } else {
+                    length = document.getKeyChars(node, text, text.length);
+                    if (length > MAX_TESTED_CHARS) {
+                        return JsonStrings.indexOfIgnoreCase(document.getKey(node), query) >= 0;
+                    }
+                    length = Math.max(length, 0); // No key: an empty label
+                }
+                return JsonStrings.indexOfIgnoreCase(text, length, query) >= 0;
+            }
+
+            /** Text from a little before {@code hit}, one char longer than a preview. */
+            private String windowAround(String value, int hit) {
+                int from = Math.max(0, hit - HIT_CONTEXT);
+                if (from > 0 && Character.isLowSurrogate(value.charAt(from))) from++;
+                return value.substring(
+                        from, Math.min(value.length(), from + TreeRowView.MAX_VALUE_CHARS + 1));
             }
-        }
 
-        private void updateSearchMatches() {
-            searchMatches.clear();
-            for (int i = 0; i < displayNodes.size(); i++) {
-                if (displayNodes.get(i).matchesSearch) searchMatches.add(i);
+            private void post(SearchResult completed) {
+                if (completed == null && posted == result.count) return;
+                int[] batch = Arrays.copyOfRange(result.nodes, posted, result.count);
+                String[] windows = Arrays.copyOfRange(result.windows, posted, result.count);
+                posted = result.count;
+                lastPost = System.currentTimeMillis();
+                mainHandler.post(() -> applyBatch(searchId, batch, windows, completed));
             }
-            if (currentMatchIndex >= searchMatches.size())
-                currentMatchIndex = searchMatches.isEmpty() ? -1 : 0;
         }
 
+        /**
+         * Scrolls to the current match. Its position is found from its row, and a match hidden
+         * by a collapse since it was found is shown again.
+         */
         private void scrollToCurrentMatch() {
-            if (currentMatchIndex >= 0 && currentMatchIndex < searchMatches.size()) {
-                int position = searchMatches.get(currentMatchIndex);
-                RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
-                if (layoutManager instanceof LinearLayoutManager) {
-                    ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, 100);
-                }
+            if (currentMatchIndex < 0 || currentMatchIndex >= matchCount) return;
+            if (recyclerView == null) return;
+            int row = expandPathTo(matchNodes[currentMatchIndex]);
+            int position = store.positionOf(row);
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager instanceof LinearLayoutManager) {
+                ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, 100);
             }
         }
 
         public void nextMatch() {
-            if (searchMatches.isEmpty()) return;
-            currentMatchIndex = (currentMatchIndex + 1) % searchMatches.size();
+            if (matchCount == 0) return;
+            currentMatchIndex = (currentMatchIndex + 1) % matchCount;
             scrollToCurrentMatch();
         }
 
         public void previousMatch() {
-            if (searchMatches.isEmpty()) return;
+            if (matchCount == 0) return;
             currentMatchIndex--;
-            if (currentMatchIndex < 0) currentMatchIndex = searchMatches.size() - 1;
+            if (currentMatchIndex < 0) currentMatchIndex = matchCount - 1;
             scrollToCurrentMatch();
         }
 
@@ -529,174 +905,16 @@ public class TreeViewFragment extends Fragment implements ViewerActivity.Searcha
         }
 
         public int getTotalMatches() {
-            return searchMatches.size();
+            return matchCount;
         }
 
         class ViewHolder extends RecyclerView.ViewHolder {
-            LinearLayout itemLayout;
-            View indentationView;
-            FrameLayout iconWrapper;
-            ImageView icon;
-            TextView text;
-
-            ViewHolder(View view) {
-                super(view);
-                itemLayout = view.findViewById(R.id.itemLayout);
-                indentationView = view.findViewById(R.id.indentationView);
-                iconWrapper = view.findViewById(R.id.iconWrapper);
-                icon = view.findViewById(R.id.icon);
-                text = view.findViewById(R.id.text);
-            }
-        }
-    }
-
-    private static class ParentLineDrawable extends Drawable {
-        private final Paint paint;
-        private final float density;
-
-        ParentLineDrawable(float density) {
-            this.density = density;
-            this.paint = new Paint();
-            this.paint.setColor(0xFF444444);
-            this.paint.setStyle(Paint.Style.STROKE);
-            this.paint.setStrokeWidth(3f);
-            this.paint.setAntiAlias(true);
-        }
-
-        @Override
-        public void draw(@NonNull Canvas canvas) {
-            float width = getBounds().width();
-            float height = getBounds().height();
-            float centerX = width / 2f;
-            float startY = 13f * density;
-            canvas.drawLine(centerX, startY, centerX, height, paint);
-        }
+            final TreeRowView row;
 
-        @Override
-        public void setAlpha(int alpha) {
-            paint.setAlpha(alpha);
-        }
-
-        @Override
-        public void setColorFilter(@Nullable ColorFilter colorFilter) {
-            paint.setColorFilter(colorFilter);
-        }
-
-        @Override
-        public int getOpacity() {
-            return PixelFormat.TRANSLUCENT;
-        }
-    }
-
-    private static class LeafLineDrawable extends Drawable {
-        private final Paint paint;
-        private final float density;
-
-        LeafLineDrawable(float density) {
-            this.density = density;
-            this.paint = new Paint();
-            this.paint.setColor(0xFF444444);
-            this.paint.setStyle(Paint.Style.STROKE);
-            this.paint.setStrokeWidth(3f);
-            this.paint.setAntiAlias(true);
-        }
-
-        @Override
-        public void draw(@NonNull Canvas canvas) {
-            float width = getBounds().width();
-            float centerX = width / 2f;
-            float centerY = 13f * density;
-            canvas.drawLine(0, centerY, centerX, centerY, paint);
-        }
-
-        @Override
-        public void setAlpha(int alpha) {
-            paint.setAlpha(alpha);
-        }
-
-        @Override
-        public void setColorFilter(@Nullable ColorFilter colorFilter) {
-            paint.setColorFilter(colorFilter);
-        }
-
-        @Override
-        public int getOpacity() {
-            return PixelFormat.TRANSLUCENT;
-        }
-    }
-
-    private static class IndentationDrawable extends Drawable {
-        private final int levels;
-        private final int stepPx;
-        private final boolean isLastChild;
-        private final float density;
-        private final boolean[] verticalLines;
-        private final Paint paint;
-        private final Path path = new Path();
-
-        public IndentationDrawable(
-                int levels,
-                int stepPx,
-                boolean isLastChild,
-                float density,
-                boolean[] verticalLines) {
-            this.levels = levels;
-            this.stepPx = stepPx;
-            this.isLastChild = isLastChild;
-            this.density = density;
-            this.verticalLines = verticalLines;
-            this.paint = new Paint();
-            this.paint.setColor(0xFF444444);
-            this.paint.setStyle(Paint.Style.STROKE);
-            this.paint.setStrokeWidth(3f);
-            this.paint.setAntiAlias(true);
-        }
-
-        @Override
-        public void draw(@NonNull Canvas canvas) {
-            int height = getBounds().height();
-            for (int i = 0; i < levels - 1; i++) {
-                if (i < verticalLines.length && verticalLines[i]) {
-                    float x = (i * stepPx) + (stepPx / 2f);
-                    canvas.drawLine(x, 0, x, height, paint);
-                }
-            }
-            if (levels > 0) {
-                int i = levels - 1;
-                float x = (i * stepPx) + (stepPx / 2f);
-                float centerY = 13f * density;
-                float curveRadius = 10f * density;
-
-                path.reset();
-                path.moveTo(x, 0);
-
-                if (isLastChild) {
-                    path.lineTo(x, centerY - curveRadius);
-                    path.quadTo(x, centerY, x + curveRadius, centerY);
-                    path.lineTo(getBounds().width(), centerY);
-                } else {
-                    canvas.drawLine(x, 0, x, height, paint);
-                    path.moveTo(x, centerY - curveRadius);
-                    path.quadTo(x, centerY, x + curveRadius, centerY);
-                    path.lineTo(getBounds().width(), centerY);
-                }
-                canvas.drawPath(path, paint);
+            ViewHolder(TreeRowView row) {
+                super(row);
+                this.row = row;
             }
         }
-
-        @Override
-        public void setAlpha(int alpha) {
-            paint.setAlpha(alpha);
-        }
-
-        @Override
-        public void setColorFilter(@Nullable ColorFilter colorFilter) {
-            paint.setColorFilter(colorFilter);
-        }
-
-        @Override
-        public int getOpacity() {
-            return PixelFormat.TRANSLUCENT;
-        }
     }
 }
@@ -14,6 +14,7 @@ import android.widget.EditText;
 import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.activity.OnBackPressedCallback;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
@@ -21,21 +22,34 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public class MainActivity extends AppCompatActivity {
+
+    private static final long HTTP_CACHE_BYTES = 64L * 1024 * 1024;
     
     private ActivityResultLauncher<String> filePickerLauncher;
     private MaterialCardView loadingCard;
+    private TextView loadingText;
+    private HttpJsonLoader httpLoader;
+    private LoadJob loadJob; // The load the card is showing, or null
+
+    // Back cancels the running load instead of leaving the app
+    private final OnBackPressedCallback cancelOnBack = new OnBackPressedCallback(false) {
+        @Override
+        public void handleOnBackPressed() {
+            cancelLoad();
+        }
+    };
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        httpLoader = new HttpJsonLoader(new File(getCacheDir(), "http"), HTTP_CACHE_BYTES);
         
         filePickerLauncher = registerForActivityResult(
             new ActivityResultContracts.GetContent(),
@@ -46,14 +60,22 @@ public class MainActivity extends AppCompatActivity {
             }
         );
         
+        getOnBackPressedDispatcher().addCallback(this, cancelOnBack);
         setupViews();
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (loadJob != null) loadJob.cancel();
+    }
     
     private void setupViews() {
         MaterialCardView pasteCard = findViewById(R.id.pasteCard);
         MaterialCardView fileCard = findViewById(R.id.fileCard);
         MaterialCardView urlCard = findViewById(R.id.urlCard);
         loadingCard = findViewById(R.id.loadingCard);
+        loadingText = findViewById(R.id.loadingText);
         
         animateCard(pasteCard, 0);
         animateCard(fileCard, 100);
@@ -117,27 +139,23 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void loadJsonFromFile(Uri uri) {
-        setLoading(true);
+        LoadJob job = startLoad();
         new Thread(() -> {
+            job.attach(Thread.currentThread());
             try {
-                InputStream inputStream = getContentResolver().openInputStream(uri);
-                if (inputStream == null) {
-                    runOnUiThread(() -> {
+                // Memory mapped when the picker hands back a real file, streamed otherwise
+                LoadResult result = JsonLoader.load(this, uri, job);
+                if (result == null) {
+                    finishLoad(job, () -> {
                         Toast.makeText(this, "Cannot open file", Toast.LENGTH_SHORT).show();
                         setLoading(false);
                     });
                     return;
                 }
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                StringBuilder builder = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    builder.append(line).append("\n");
-                }
-                reader.close();
-                validateJsonInBackground(builder.toString());
+                handleResult(result, job);
             } catch (Exception e) {
-                runOnUiThread(() -> {
+                if (job.isCancelled()) return;
+                finishLoad(job, () -> {
                     Toast.makeText(this, "Error reading file", Toast.LENGTH_SHORT).show();
                     setLoading(false);
                 });
@@ -146,23 +164,16 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void loadJsonFromUrl(String url) {
-        setLoading(true);
+        LoadJob job = startLoad();
         new Thread(() -> {
+            job.attach(Thread.currentThread());
             try {
-                java.net.URL urlObj = new java.net.URL(url);
-                java.net.HttpURLConnection conn = (java.net.HttpURLConnection) urlObj.openConnection();
-                conn.setRequestMethod("GET");
-                conn.connect();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder builder = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    builder.append(line).append("\n");
-                }
-                reader.close();
-                validateJsonInBackground(builder.toString());
+                // Streamed into the parser, inflated if compressed, revalidated against the cache
+                LoadResult result = httpLoader.load(url, job);
+                handleResult(result, job);
             } catch (Exception e) {
-                runOnUiThread(() -> {
+                if (job.isCancelled()) return;
+                finishLoad(job, () -> {
                     Toast.makeText(this, "Error loading URL", Toast.LENGTH_SHORT).show();
                     setLoading(false);
                 });
@@ -171,52 +182,91 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void validateAndOpenViewer(String jsonText) {
-        setLoading(true);
-        new Thread(() -> validateJsonInBackground(jsonText)).start();
+        LoadJob job = startLoad();
+        new Thread(() -> {
+            job.attach(Thread.currentThread());
+            try {
+                handleResult(JsonLoader.parseSource(
+                        ByteBuffer.wrap(jsonText.getBytes(StandardCharsets.UTF_8)), job), job);
+            } catch (IOException e) {
+                // Only thrown once the job is cancelled, and the card is already gone
+            }
+        }).start();
     }
     
-    private void validateJsonInBackground(String rawJson) {
-        if (rawJson == null) {
-            runOnUiThread(() -> {
-                Toast.makeText(this, "No data", Toast.LENGTH_SHORT).show();
-                setLoading(false);
-            });
-            return;
-        }
-
-        String jsonText = rawJson.trim();
-        
-        if (jsonText.isEmpty()) {
-            runOnUiThread(() -> {
+    private void handleResult(LoadResult result, LoadJob job) {
+        ByteBuffer source = result.source;
+        if (JsonLoader.isBlank(source)) {
+            finishLoad(job, () -> {
                 Toast.makeText(this, "Empty JSON", Toast.LENGTH_SHORT).show();
                 setLoading(false);
             });
             return;
         }
         
-        try {
-            if (jsonText.startsWith("{")) {
-                new JSONObject(jsonText);
-            } else if (jsonText.startsWith("[")) {
-                new JSONArray(jsonText);
-            } else {
-                throw new Exception("Invalid start character");
-            }
-            
-            // Success: Open default tab (0)
-            runOnUiThread(() -> openViewer(jsonText, 0));
+        if (result.document != null) {
+            // Success: Open default tab (0). The viewer reuses this document for every tab
+            finishLoad(job, () -> openViewer(source, result.document, null, 0));
             
-        } catch (Exception e) {
+        } else {
+            JsonParseException e = result.error;
             String safeError = getFastTruncatedText(e.getMessage(), 250); 
-            String safePreview = getFastTruncatedText(jsonText, 2000); 
+            String safePreview = getFastTruncatedText(
+                    JsonLoader.decodeAround(source, e.getOffset(), 1000).trim(), 2000); 
+
+            finishLoad(job, () -> showErrorDialog(source, e, safeError, safePreview));
+        }
+    }
+
+    /** Shows the loading card and starts a job that reports to it; replaces any running load. */
+    private LoadJob startLoad() {
+        if (loadJob != null) loadJob.cancel();
+        LoadJob job = new LoadJob(progress -> runOnUiThread(() -> showProgress(progress)));
+        loadJob = job;
+        if (loadingText != null) loadingText.setText("Validating JSON...");
+        setLoading(true);
+        return job;
+    }
+
+    /** Runs {@code action} on the main thread, unless {@code job} was cancelled or replaced. */
+    private void finishLoad(LoadJob job, Runnable action) {
+        runOnUiThread(() -> {
+            if (job != loadJob || job.isCancelled()) return;
+            loadJob = null;
+            action.run();
+        });
+    }
+
+    /** Stops the running load; reading and parsing give up within a few milliseconds. */
+    private void cancelLoad() {
+        if (loadJob != null) loadJob.cancel();
+        loadJob = null;
+        setLoading(false);
+    }
 
-            runOnUiThread(() -> showErrorDialog(jsonText, safeError, safePreview));
+    /** Phase, percentage and size of the running load, e.g. "Reading 45% · 12.3 MB". */
+    private void showProgress(LoadJob job) {
+        if (job != loadJob || loadingText == null) return;
+        String phase;
+        switch (job.getPhase()) {
+            case LoadJob.PHASE_VALIDATING: phase = "Validating"; break;
+            case LoadJob.PHASE_PARSING: phase = "Parsing"; break;
+            default: phase = "Reading"; break;
         }
+        StringBuilder status = new StringBuilder(phase);
+        int percent = job.getPercent();
+        if (percent >= 0) status.append(' ').append(percent).append('%');
+        status.append(" · ").append(StatsFormat.bytes(job.getBytesDone()));
+        loadingText.setText(status);
     }
 
     // UPDATED: Accepts tabIndex to open specific tab (0=Tree, 4=Raw)
-    private void openViewer(String jsonText, int tabIndex) {
-        JsonDataHolder.getInstance().setJsonData(jsonText);
+    private void openViewer(
+            ByteBuffer source, JsonDocument document, JsonParseException error, int tabIndex) {
+        JsonDataHolder holder = JsonDataHolder.getInstance();
+        holder.setSource(source);
+        holder.setDocument(document);
+        holder.setParseError(error);
         Intent intent = new Intent(MainActivity.this, ViewerActivity.class);
         intent.putExtra("default_tab", tabIndex);
         startActivity(intent);
@@ -224,7 +274,8 @@ public class MainActivity extends AppCompatActivity {
         setLoading(false); 
     }
     
-    private void showErrorDialog(String jsonText, String errorMessage, String truncatedText) {
+    private void showErrorDialog(
+            ByteBuffer source, JsonParseException error, String errorMessage, String truncatedText) {
         setLoading(false);
         
         ScrollView scrollView = new ScrollView(this);
@@ -261,7 +312,7 @@ public class MainActivity extends AppCompatActivity {
             .setTitle("Invalid JSON")
             .setView(scrollView) 
             // UPDATED: Pass 4 to open the Raw View tab
-            .setPositiveButton("Open Raw", (dialog, which) -> openViewer(jsonText, 4))
+            .setPositiveButton("Open Raw", (dialog, which) -> openViewer(source, null, error, 4))
             .setNegativeButton("Close", (dialog, which) -> dialog.dismiss())
             .show();
     }
@@ -278,5 +329,6 @@ public class MainActivity extends AppCompatActivity {
         if (loadingCard != null) {
             loadingCard.setVisibility(isLoading ? View.VISIBLE : View.GONE);
         }
+        cancelOnBack.setEnabled(isLoading);
     }
 }
@@ -0,0 +1,599 @@
+package aman.jsonviewer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The parsed form of the loaded JSON, built exactly once per load and shared by every viewer tab.
+ *
+ * <p>The document is a flat tape of {@code long} words over the retained UTF-8 source. Each value
+ * is one word holding its type, whether it contains escapes, and the offset and length of its raw
+ * bytes; containers take one more word with their child count and the tape index just past their
+ * subtree. An object member is a KEY word followed by its value. Strings, numbers and keys are only
+ * decoded when {@link #getKey(int)} or {@link #getValue(int)} is called, so the tape costs about
+ * 8 bytes per token on top of the source instead of a String and a wrapper per value.
+ *
+ * <p>Containers also get a stats word, filled in as they close: the byte length of their JSON
+ * text and the number of values under them. Their depth goes in the value word's length field.
+ * The views read these in constant time instead of walking the subtree.
+ *
+ * <p>A node id is the tape index of a value; the root is always 0. Children are walked with:
+ *
+ * <pre>
+ * for (int child = doc.getFirstChild(node); child &lt; doc.getEnd(node);
+ *         child = doc.getNextSibling(child)) { ... }
+ * </pre>
+ *
+ * The tape and source are never written after {@link #parse(ByteBuffer)} returns, so the fragments
+ * can read the document concurrently from their own executors.
+ */
+public final class JsonDocument {
+
+    public static final int TYPE_OBJECT = 0;
+    public static final int TYPE_ARRAY = 1;
+    public static final int TYPE_STRING = 2;
+    public static final int TYPE_NUMBER = 3;
+    public static final int TYPE_BOOLEAN = 4;
+    public static final int TYPE_NULL = 5;
+
+    // Tape-only tags, never returned from getType()
+    private static final int TAG_KEY = 6;
+    private static final int TAG_CONTAINER = 7;
+
+    /** Tape words used by a container: its value word, the count/end word and the stats word. */
+    static final int CONTAINER_WORDS = 3;
+
+    // Value word: tag (4) | escaped (1) | source offset (35) | byte length (24)
+    private static final int TAG_SHIFT = 60;
+    private static final long ESCAPED_BIT = 1L << 59;
+    private static final int OFFSET_SHIFT = 24;
+    private static final long OFFSET_MASK = (1L << 35) - 1;
+    private static final int LENGTH_MASK = 0xFFFFFF;
+    /** Stored for tokens too long for the length field; the length is rescanned on demand. */
+    private static final int LONG_TOKEN = LENGTH_MASK;
+
+    // Container word: tag (4) | child count (28) | end index (32)
+    private static final int COUNT_SHIFT = 32;
+    private static final long COUNT_MASK = (1L << 28) - 1;
+
+    // Stats word: byte length (35) | descendant count (28); depth is in the value word's length.
+    // Sources stay under 2 GB, so its top bits are 0 and getKey never takes it for a KEY word
+    private static final int BYTES_SHIFT = 28;
+
+    // Saved index: magic, version, source length, node count, tape length, then the tape
+    private static final int INDEX_MAGIC = 0x4A544150; // "JTAP"
+    private static final int INDEX_VERSION = 3;
+    private static final int INDEX_HEADER_BYTES = 24;
+
+    /** Tokens between {@link ParseProgress} polls; a few hundred microseconds of parsing. */
+    private static final int PROGRESS_INTERVAL = 4096;
+
+    private final ByteBuffer source;
+    private final long[] tape;
+    private final int tapeLength;
+    private final int nodeCount;
+
+    private JsonDocument(ByteBuffer source, Builder builder) {
+        this.source = source;
+        // Drop the growth slack; it can be close to half of the array
+        this.tape = Arrays.copyOf(builder.tape, builder.length);
+        this.tapeLength = builder.length;
+        this.nodeCount = builder.nodes;
+    }
+
+    private JsonDocument(ByteBuffer source, long[] tape, int nodeCount) {
+        this.source = source;
+        this.tape = tape;
+        this.tapeLength = tape.length;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Parses UTF-8 JSON and keeps {@code source} as the backing store for lazily decoded text.
+     * The root must be an object or array. The bytes between the buffer's position and limit are
+     * used, and must not be modified afterwards.
+     *
+     * @throws JsonParseException if the input is not well-formed
+     */
+    public static JsonDocument parse(ByteBuffer source) throws IOException {
+        return parse(source, null);
+    }
+
+    /**
+     * Same as {@link #parse(ByteBuffer)}, reporting progress every few thousand tokens.
+     *
+     * @throws java.io.InterruptedIOException if {@code progress} asked to stop
+     */
+    public static JsonDocument parse(ByteBuffer source, ParseProgress progress)
+            throws IOException {
+        source = source.slice(); // Offsets on the tape are relative to the current position
+        Builder builder = build(
+                new JsonTokenizer(new BufferInputStream(source.duplicate())), progress);
+        return new JsonDocument(source, builder);
+    }
+
+    /**
+     * Parses while the input is still arriving. The stream keeps every byte it delivers, and
+     * that copy becomes the source once the document is complete.
+     *
+     * @throws JsonParseException if the input is not well-formed
+     */
+    public static JsonDocument parse(RetainingInputStream in) throws IOException {
+        return parse(in, null);
+    }
+
+    public static JsonDocument parse(RetainingInputStream in, ParseProgress progress)
+            throws IOException {
+        Builder builder = build(new JsonTokenizer(in), progress);
+        return new JsonDocument(in.toBuffer(), builder);
+    }
+
+    private static Builder build(JsonTokenizer tokenizer, ParseProgress progress)
+            throws IOException {
+        Builder builder = new Builder();
+
+        int token = tokenizer.next();
+        if (token != JsonTokenizer.BEGIN_OBJECT && token != JsonTokenizer.BEGIN_ARRAY) {
+            throw new JsonParseException("Invalid start character", tokenizer.getTokenOffset());
+        }
+
+        // Explicit stack of open containers, so nesting depth is not bounded by the thread stack
+        int[] open = new int[32];
+        int openCount = 0;
+        int untilPoll = PROGRESS_INTERVAL;
+
+        while (token != JsonTokenizer.END_DOCUMENT) {
+            if (progress != null && --untilPoll == 0) {
+                untilPoll = PROGRESS_INTERVAL;
+                if (!progress.onProgress(tokenizer.getBytesConsumed())) {
+                    throw new InterruptedIOException("Cancelled");
+                }
+            }
+            switch (token) {
+                case JsonTokenizer.BEGIN_OBJECT:
+                case JsonTokenizer.BEGIN_ARRAY: {
+                    int type = token == JsonTokenizer.BEGIN_OBJECT ? TYPE_OBJECT : TYPE_ARRAY;
+                    if (openCount > 0) builder.childAdded(open[openCount - 1]);
+                    int id = builder.addContainer(type, tokenizer.getTokenOffset());
+                    if (openCount == open.length) {
+                        int[] grown = new int[open.length * 2];
+                        System.arraycopy(open, 0, grown, 0, openCount);
+                        open = grown;
+                    }
+                    open[openCount++] = id;
+                    break;
+                }
+                case JsonTokenizer.END_OBJECT:
+                case JsonTokenizer.END_ARRAY: {
+                    int id = open[--openCount];
+                    builder.close(id, tokenizer.getTokenOffset() + 1);
+                    if (openCount > 0) builder.nested(open[openCount - 1], id);
+                    break;
+                }
+                case JsonTokenizer.NAME:
+                    builder.add(TAG_KEY, tokenizer);
+                    break;
+                default:
+                    builder.childAdded(open[openCount - 1]);
+                    builder.add(scalarType(token), tokenizer);
+                    break;
+            }
+            token = tokenizer.next();
+        }
+        return builder;
+    }
+
+    /**
+     * Writes the tape in native byte order, so {@link #readIndex} can rebuild the document over
+     * the same source without tokenizing it again.
+     */
+    public void writeIndex(WritableByteChannel out) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(64 * 1024).order(ByteOrder.nativeOrder());
+        block.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(source.limit())
+                .putInt(nodeCount).putInt(tapeLength);
+        int written = 0;
+        while (true) {
+            LongBuffer words = block.asLongBuffer(); // Starts at the block's position
+            int n = Math.min(words.remaining(), tapeLength - written);
+            words.put(tape, written, n);
+            written += n;
+            block.position(block.position() + n * 8);
+            block.flip();
+            while (block.hasRemaining()) out.write(block);
+            if (written == tapeLength) return;
+            block.clear();
+        }
+    }
+
+    /**
+     * Rebuilds a document from an index written by {@link #writeIndex} for this exact source.
+     *
+     * @return the document, or null if the index is damaged or was written for another source
+     */
+    public static JsonDocument readIndex(ByteBuffer source, ByteBuffer index) {
+        source = source.slice();
+        index = index.duplicate().order(ByteOrder.nativeOrder());
+        if (index.remaining() < INDEX_HEADER_BYTES
+                || index.getInt() != INDEX_MAGIC
+                || index.getInt() != INDEX_VERSION
+                || index.getLong() != source.limit()) {
+            return null;
+        }
+        int nodeCount = index.getInt();
+        int tapeLength = index.getInt();
+        if (tapeLength <= 0 || nodeCount <= 0 || index.remaining() != (long) tapeLength * 8) {
+            return null;
+        }
+        long[] tape = new long[tapeLength];
+        index.asLongBuffer().get(tape); // A bulk copy; far cheaper than tokenizing again
+        return new JsonDocument(source, tape, nodeCount);
+    }
+
+    public static JsonDocument parse(byte[] utf8) throws IOException {
+        return parse(ByteBuffer.wrap(utf8));
+    }
+
+    public static JsonDocument parse(String text) throws IOException {
+        if (text == null) throw new JsonParseException("No data", 0);
+        return parse(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int scalarType(int token) {
+        switch (token) {
+            case JsonTokenizer.STRING: return TYPE_STRING;
+            case JsonTokenizer.NUMBER: return TYPE_NUMBER;
+            case JsonTokenizer.TRUE:
+            case JsonTokenizer.FALSE: return TYPE_BOOLEAN;
+            default: return TYPE_NULL;
+        }
+    }
+
+    // --- Read API ---
+
+    public int getRoot() {
+        return 0;
+    }
+
+    /** Number of values in the document (keys not included). */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /** Size of the UTF-8 source in bytes. */
+    public int getSourceLength() {
+        return source.limit();
+    }
+
+    public boolean isObject() {
+        return tag(0) == TYPE_OBJECT;
+    }
+
+    public boolean isArray() {
+        return tag(0) == TYPE_ARRAY;
+    }
+
+    public int getType(int node) {
+        return tag(node);
+    }
+
+    public boolean isContainer(int node) {
+        return tag(node) <= TYPE_ARRAY;
+    }
+
+    /** Number of direct children of a container, 0 for scalars. */
+    public int getChildCount(int node) {
+        if (!isContainer(node)) return 0;
+        return (int) ((tape[node + 1] >>> COUNT_SHIFT) & COUNT_MASK);
+    }
+
+    public int getFirstChild(int node) {
+        int first = node + CONTAINER_WORDS;
+        return tag(node) == TYPE_OBJECT ? first + 1 : first;
+    }
+
+    /** Number of values under a container at any depth, 0 for scalars. */
+    public int getDescendantCount(int node) {
+        if (!isContainer(node)) return 0;
+        return (int) (tape[node + 2] & COUNT_MASK);
+    }
+
+    /** Bytes of the node's JSON text in the source, brackets and quotes included. */
+    public long getByteLength(int node) {
+        if (!isContainer(node)) return length(node);
+        return (tape[node + 2] >>> BYTES_SHIFT) & OFFSET_MASK;
+    }
+
+    /** Levels of containers in the subtree: 1 for a container of scalars, 0 for a scalar. */
+    public int getMaxDepth(int node) {
+        if (!isContainer(node)) return 0;
+        return (int) (tape[node] & LENGTH_MASK);
+    }
+
+    /** Id just past the node's subtree. */
+    public int getEnd(int node) {
+        if (!isContainer(node)) return node + 1;
+        return (int) tape[node + 1];
+    }
+
+    public int getNextSibling(int node) {
+        int end = getEnd(node);
+        return end < tapeLength && tag(end) == TAG_KEY ? end + 1 : end;
+    }
+
+    /** Member name if the node sits directly inside an object, else null. */
+    public String getKey(int node) {
+        if (node == 0 || tag(node - 1) != TAG_KEY) return null;
+        return decodeString(node - 1);
+    }
+
+    /** Text of a scalar: the decoded string, or the literal/number exactly as written. */
+    public String getValue(int node) {
+        int tag = tag(node);
+        if (tag == TYPE_STRING) return decodeString(node);
+        if (tag <= TYPE_ARRAY) return null;
+        int offset = offset(node);
+        int length = length(node);
+        byte[] raw = new byte[length];
+        copy(offset, raw, length);
+        return new String(raw, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decodes at most {@code max} chars of a scalar's text into {@code dst} without building a
+     * String, for previews of values that may be huge.
+     *
+     * @return number of chars written
+     */
+    public int getValueChars(int node, char[] dst, int max) {
+        return getValueChars(node, dst, 0, max);
+    }
+
+    /** Same as {@link #getValueChars(int, char[], int)}, writing from {@code dst[offset]}. */
+    public int getValueChars(int node, char[] dst, int offset, int max) {
+        int tag = tag(node);
+        if (tag <= TYPE_ARRAY) return 0;
+        return decodeInto(node, tag == TYPE_STRING, dst, offset, max);
+    }
+
+    /** Same as {@link #getValueChars} for the node's key; returns -1 if it has none. */
+    public int getKeyChars(int node, char[] dst, int max) {
+        if (node == 0 || tag(node - 1) != TAG_KEY) return -1;
+        return decodeInto(node - 1, true, dst, 0, max);
+    }
+
+    // --- Tape access ---
+
+    private int tag(int index) {
+        return (int) (tape[index] >>> TAG_SHIFT);
+    }
+
+    private int offset(int index) {
+        return (int) ((tape[index] >>> OFFSET_SHIFT) & OFFSET_MASK);
+    }
+
+    /** Raw byte length of a scalar or key, rescanning the source for very long tokens. */
+    private int length(int index) {
+        int length = (int) (tape[index] & LENGTH_MASK);
+        if (length != LONG_TOKEN) return length;
+        int start = offset(index);
+        int i = start + 1;
+        if (tag(index) == TYPE_NUMBER) {
+            while (i < source.limit() && isNumberByte(source.get(i))) i++;
+        } else {
+            while (source.get(i) != '"') i += source.get(i) == '\\' ? 2 : 1;
+            i++;
+        }
+        return i - start;
+    }
+
+    private static boolean isNumberByte(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+
+    private String decodeString(int index) {
+        int offset = offset(index) + 1; // Skip the quotes
+        int length = length(index) - 2;
+        boolean escaped = (tape[index] & ESCAPED_BIT) != 0;
+        if (source.hasArray()) {
+            return JsonStrings.decode(
+                    source.array(), source.arrayOffset() + offset, length, escaped);
+        }
+        byte[] raw = new byte[length];
+        copy(offset, raw, length);
+        return JsonStrings.decode(raw, 0, length, escaped);
+    }
+
+    private int decodeInto(int index, boolean quoted, char[] dst, int dstOffset, int max) {
+        int offset = offset(index);
+        int length = length(index);
+        if (quoted) {
+            offset++;
+            length -= 2;
+        }
+        max = Math.min(max, dst.length - dstOffset);
+        if (source.hasArray()) {
+            return JsonStrings.decodeInto(
+                    source.array(), source.arrayOffset() + offset, length, dst, dstOffset, max);
+        }
+        return JsonStrings.decodeInto(source, offset, length, dst, dstOffset, max);
+    }
+
+    private void copy(int offset, byte[] dst, int length) {
+        if (source.hasArray()) {
+            System.arraycopy(source.array(), source.arrayOffset() + offset, dst, 0, length);
+        } else {
+            ByteBuffer view = source.duplicate();
+            view.position(offset);
+            view.get(dst, 0, length);
+        }
+    }
+
+    // --- Serialization ---
+
+    /** Pretty-prints the whole document with the given indent. */
+    public String toString(int indentSpaces) {
+        return toString(getRoot(), indentSpaces);
+    }
+
+    /** Serializes one subtree; an indent of 0 produces compact single-line JSON. */
+    public String toString(int node, int indentSpaces) {
+        StringBuilder out = new StringBuilder();
+        write(node, indentSpaces, out);
+        return out.toString();
+    }
+
+    private void write(int node, int indentSpaces, StringBuilder out) {
+        int end = getEnd(node);
+        int[] stack = new int[16]; // Open containers, innermost last
+        boolean[] hasChild = new boolean[16];
+        int depth = 0;
+
+        int i = node;
+        while (i < end) {
+            while (depth > 0 && getEnd(stack[depth - 1]) <= i) {
+                depth = close(stack, depth, indentSpaces, out);
+            }
+
+            int tag = tag(i);
+            if (depth > 0) {
+                if (hasChild[depth - 1]) out.append(',');
+                hasChild[depth - 1] = true;
+                newline(depth, indentSpaces, out);
+                if (tag == TAG_KEY) {
+                    JsonStrings.quote(decodeString(i), out);
+                    out.append(indentSpaces > 0 ? ": " : ":");
+                    tag = tag(++i);
+                }
+            }
+
+            switch (tag) {
+                case TYPE_OBJECT:
+                case TYPE_ARRAY:
+                    out.append(tag == TYPE_OBJECT ? '{' : '[');
+                    if (getChildCount(i) == 0) {
+                        out.append(tag == TYPE_OBJECT ? '}' : ']');
+                    } else {
+                        if (depth == stack.length) {
+                            int[] grownStack = new int[depth * 2];
+                            boolean[] grownFlags = new boolean[depth * 2];
+                            System.arraycopy(stack, 0, grownStack, 0, depth);
+                            System.arraycopy(hasChild, 0, grownFlags, 0, depth);
+                            stack = grownStack;
+                            hasChild = grownFlags;
+                        }
+                        stack[depth] = i;
+                        hasChild[depth] = false;
+                        depth++;
+                    }
+                    i += CONTAINER_WORDS;
+                    break;
+                case TYPE_STRING:
+                    JsonStrings.quote(decodeString(i), out);
+                    i++;
+                    break;
+                default:
+                    out.append(getValue(i));
+                    i++;
+                    break;
+            }
+        }
+        while (depth > 0) depth = close(stack, depth, indentSpaces, out);
+    }
+
+    private int close(int[] stack, int depth, int indentSpaces, StringBuilder out) {
+        depth--;
+        newline(depth, indentSpaces, out);
+        out.append(tag(stack[depth]) == TYPE_OBJECT ? '}' : ']');
+        return depth;
+    }
+
+    private static void newline(int depth, int indentSpaces, StringBuilder out) {
+        if (indentSpaces <= 0) return;
+        out.append('\n');
+        for (int i = 0, n = depth * indentSpaces; i < n; i++) out.append(' ');
+    }
+
+    // --- Construction ---
+
+    private static final class Builder {
+        long[] tape = new long[4096];
+        int length;
+        int nodes;
+
+        int addContainer(int type, long offset) {
+            ensure(CONTAINER_WORDS);
+            int id = length;
+            tape[length++] = ((long) type << TAG_SHIFT) | (offset << OFFSET_SHIFT) | 1;
+            tape[length++] = (long) TAG_CONTAINER << TAG_SHIFT;
+            nodes++;
+            tape[length++] = nodes; // Values before its first child, until close()
+            return id;
+        }
+
+        void add(int tag, JsonTokenizer tokenizer) {
+            ensure(1);
+            long word = ((long) tag << TAG_SHIFT)
+                    | (tokenizer.getTokenOffset() << OFFSET_SHIFT)
+                    | Math.min(tokenizer.getTokenLength(), LONG_TOKEN);
+            if (tokenizer.hasEscapes()) word |= ESCAPED_BIT;
+            tape[length++] = word;
+            if (tag != TAG_KEY) nodes++;
+        }
+
+        void childAdded(int container) {
+            tape[container + 1] += 1L << COUNT_SHIFT;
+        }
+
+        /** Ends a container whose closing bracket finishes just before {@code endOffset}. */
+        void close(int container, long endOffset) {
+            tape[container + 1] |= length;
+            long descendants = Math.min(nodes - tape[container + 2], COUNT_MASK);
+            long bytes = endOffset - ((tape[container] >>> OFFSET_SHIFT) & OFFSET_MASK);
+            tape[container + 2] = (bytes << BYTES_SHIFT) | descendants;
+        }
+
+        /** Raises the depth of {@code container} to cover its closed child container. */
+        void nested(int container, int child) {
+            long depth = Math.min((tape[child] & LENGTH_MASK) + 1, LENGTH_MASK);
+            if (depth > (tape[container] & LENGTH_MASK)) {
+                tape[container] = (tape[container] & ~(long) LENGTH_MASK) | depth;
+            }
+        }
+
+        private void ensure(int words) {
+            if (length + words <= tape.length) return;
+            long[] grown = new long[tape.length * 2];
+            System.arraycopy(tape, 0, grown, 0, length);
+            tape = grown;
+        }
+    }
+
+    /** Feeds a buffer to the tokenizer without copying it into a byte[] first. */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package aman.jsonviewer;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the input is not well-formed JSON. Carries the byte offset of the failure so the
+ * UI can point at it, and the line and column when the reporter tracked them.
+ */
+public class JsonParseException extends IOException {
+
+    private final long offset;
+    private final long line;
+    private final long column;
+
+    public JsonParseException(String message, long offset) {
+        super(message + " at offset " + offset);
+        this.offset = offset;
+        this.line = -1;
+        this.column = -1;
+    }
+
+    public JsonParseException(String message, long offset, long line, long column) {
+        super(message + " at line " + line + ", column " + column);
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
+    }
+
+    /** Byte offset into the UTF-8 input where parsing failed. */
+    public long getOffset() {
+        return offset;
+    }
+
+    /** 1-based line of the failure, or -1 if unknown. */
+    public long getLine() {
+        return line;
+    }
+
+    /** 1-based column (in characters) of the failure, or -1 if unknown. */
+    public long getColumn() {
+        return column;
+    }
+}
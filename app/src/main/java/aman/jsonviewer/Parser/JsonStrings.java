@@ -0,0 +1,257 @@
+package aman.jsonviewer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 / JSON string helpers shared by the tokenizer and the document.
+ *
+ * <p>Decoding works straight from the raw bytes between the quotes and resolves escape sequences
+ * in the same pass, so no intermediate String is built for the escaped form.
+ */
+public final class JsonStrings {
+
+    private JsonStrings() {}
+
+    /**
+     * Decodes the raw (still escaped) UTF-8 bytes of a JSON string body.
+     *
+     * @param escaped false lets plain strings skip the escape handling entirely
+     */
+    public static String decode(byte[] src, int offset, int length, boolean escaped) {
+        if (!escaped && isAscii(src, offset, length)) {
+            return new String(src, offset, length, StandardCharsets.ISO_8859_1);
+        }
+        char[] out = new char[length];
+        int count = decodeInto(src, offset, length, out, 0, out.length);
+        return new String(out, 0, count);
+    }
+
+    /**
+     * Decodes into {@code dst} and stops once {@code max} chars were written.
+     *
+     * @return number of chars written
+     */
+    public static int decodeInto(
+            byte[] src, int offset, int length, char[] dst, int dstOffset, int max) {
+        int i = offset;
+        int end = offset + length;
+        int o = dstOffset;
+        int limit = dstOffset + max;
+
+        while (i < end && o < limit) {
+            int b = src[i] & 0xFF;
+            if (b == '\\' && i + 1 < end) {
+                char e = (char) src[i + 1];
+                i += 2;
+                switch (e) {
+                    case 'n': dst[o++] = '\n'; break;
+                    case 't': dst[o++] = '\t'; break;
+                    case 'r': dst[o++] = '\r'; break;
+                    case 'b': dst[o++] = '\b'; break;
+                    case 'f': dst[o++] = '\f'; break;
+                    case 'u':
+                        if (i + 4 <= end) {
+                            dst[o++] = (char) parseHex4(src, i);
+                            i += 4;
+                        }
+                        break;
+                    default: dst[o++] = e; break; // \" \\ \/
+                }
+            } else if (b < 0x80) {
+                dst[o++] = (char) b;
+                i++;
+            } else if (b < 0xE0 && i + 1 < end) {
+                dst[o++] = (char) (((b & 0x1F) << 6) | (src[i + 1] & 0x3F));
+                i += 2;
+            } else if (b < 0xF0 && i + 2 < end) {
+                dst[o++] = (char) (((b & 0x0F) << 12)
+                        | ((src[i + 1] & 0x3F) << 6)
+                        | (src[i + 2] & 0x3F));
+                i += 3;
+            } else if (i + 3 < end) {
+                int cp = ((b & 0x07) << 18)
+                        | ((src[i + 1] & 0x3F) << 12)
+                        | ((src[i + 2] & 0x3F) << 6)
+                        | (src[i + 3] & 0x3F);
+                i += 4;
+                if (o + 1 >= limit) break;
+                dst[o++] = Character.highSurrogate(cp);
+                dst[o++] = Character.lowSurrogate(cp);
+            } else {
+                dst[o++] = '\uFFFD'; // Truncated sequence
+                i = end;
+            }
+        }
+        return o - dstOffset;
+    }
+
+    /**
+     * Same as {@link #decodeInto(byte[], int, int, char[], int, int)} reading a buffer with
+     * absolute gets, so a memory-mapped source needs no copy and the buffer is not modified.
+     */
+    public static int decodeInto(
+            ByteBuffer src, int offset, int length, char[] dst, int dstOffset, int max) {
+        int i = offset;
+        int end = offset + length;
+        int o = dstOffset;
+        int limit = dstOffset + max;
+
+        while (i < end && o < limit) {
+            int b = src.get(i) & 0xFF;
+            if (b == '\\' && i + 1 < end) {
+                char e = (char) src.get(i + 1);
+                i += 2;
+                switch (e) {
+                    case 'n': dst[o++] = '\n'; break;
+                    case 't': dst[o++] = '\t'; break;
+                    case 'r': dst[o++] = '\r'; break;
+                    case 'b': dst[o++] = '\b'; break;
+                    case 'f': dst[o++] = '\f'; break;
+                    case 'u':
+                        if (i + 4 <= end) {
+                            dst[o++] = (char) parseHex4(src, i);
+                            i += 4;
+                        }
+                        break;
+                    default: dst[o++] = e; break; // \" \\ \/
+                }
+            } else if (b < 0x80) {
+                dst[o++] = (char) b;
+                i++;
+            } else if (b < 0xE0 && i + 1 < end) {
+                dst[o++] = (char) (((b & 0x1F) << 6) | (src.get(i + 1) & 0x3F));
+                i += 2;
+            } else if (b < 0xF0 && i + 2 < end) {
+                dst[o++] = (char) (((b & 0x0F) << 12)
+                        | ((src.get(i + 1) & 0x3F) << 6)
+                        | (src.get(i + 2) & 0x3F));
+                i += 3;
+            } else if (i + 3 < end) {
+                int cp = ((b & 0x07) << 18)
+                        | ((src.get(i + 1) & 0x3F) << 12)
+                        | ((src.get(i + 2) & 0x3F) << 6)
+                        | (src.get(i + 3) & 0x3F);
+                i += 4;
+                if (o + 1 >= limit) break;
+                dst[o++] = Character.highSurrogate(cp);
+                dst[o++] = Character.lowSurrogate(cp);
+            } else {
+                dst[o++] = '\uFFFD'; // Truncated sequence
+                i = end;
+            }
+        }
+        return o - dstOffset;
+    }
+
+    /** Appends {@code value} as a quoted, escaped JSON string. */
+    public static void quote(CharSequence value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                case '\b': out.append("\\b"); break;
+                case '\f': out.append("\\f"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00");
+                        out.append(Character.forDigit(c >> 4, 16));
+                        out.append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    static int hexValue(int c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static int parseHex4(byte[] src, int i) {
+        int v = 0;
+        for (int k = 0; k < 4; k++) {
+            int h = hexValue(src[i + k]);
+            if (h < 0) return '\uFFFD';
+            v = (v << 4) | h;
+        }
+        return v;
+    }
+
+    private static int parseHex4(ByteBuffer src, int i) {
+        int v = 0;
+        for (int k = 0; k < 4; k++) {
+            int h = hexValue(src.get(i + k));
+            if (h < 0) return '\uFFFD';
+            v = (v << 4) | h;
+        }
+        return v;
+    }
+
+    /** Case-insensitive indexOf without lower-casing a copy of {@code text}; -1 if absent. */
+    public static int indexOfIgnoreCase(String text, String lowerQuery) {
+        int length = lowerQuery.length();
+        if (length == 0) return 0;
+        char first = lowerQuery.charAt(0);
+        char firstUpper = Character.toUpperCase(first);
+        boolean asciiFirst = first < 0x80;
+        for (int i = 0, last = text.length() - length; i <= last; i++) {
+            // Most positions fail on the first char, which is cheap to compare exactly
+            char c = text.charAt(i);
+            if (c != first && c != firstUpper
+                    && (asciiFirst && c < 0x80
+                            || !text.regionMatches(true, i, lowerQuery, 0, 1))) {
+                continue;
+            }
+            if (text.regionMatches(true, i + 1, lowerQuery, 1, length - 1)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@link #indexOfIgnoreCase(String, String)} over the first {@code length} chars of
+     * {@code text}, so a value decoded into a reused buffer can be searched without a String.
+     */
+    public static int indexOfIgnoreCase(char[] text, int length, String lowerQuery) {
+        int queryLength = lowerQuery.length();
+        if (queryLength == 0) return 0;
+        char first = lowerQuery.charAt(0);
+        char firstUpper = Character.toUpperCase(first);
+        boolean asciiFirst = first < 0x80;
+        for (int i = 0, last = length - queryLength; i <= last; i++) {
+            char c = text[i];
+            if (c != first && c != firstUpper
+                    && (asciiFirst && c < 0x80 || !equalsIgnoreCase(c, first))) {
+                continue;
+            }
+            int k = 1;
+            while (k < queryLength && equalsIgnoreCase(text[i + k], lowerQuery.charAt(k))) k++;
+            if (k == queryLength) return i;
+        }
+        return -1;
+    }
+
+    /** The per-char rule of {@link String#regionMatches(boolean, int, String, int, int)}. */
+    private static boolean equalsIgnoreCase(char a, char b) {
+        if (a == b) return true;
+        char upperA = Character.toUpperCase(a);
+        char upperB = Character.toUpperCase(b);
+        return upperA == upperB || Character.toLowerCase(upperA) == Character.toLowerCase(upperB);
+    }
+
+    private static boolean isAscii(byte[] src, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (src[i] < 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,390 @@
+package aman.jsonviewer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pull tokenizer that reads UTF-8 bytes straight from an {@link InputStream}.
+ *
+ * <p>Each call to {@link #next()} returns the next token and leaves its raw bytes in the internal
+ * buffer until the following call. Nothing is decoded unless the caller asks for it through
+ * {@link #getString()} or {@link #getText()}, so walking a document only costs the scan itself.
+ * Commas and colons are consumed internally and the grammar is enforced as tokens are pulled.
+ */
+public final class JsonTokenizer {
+
+    public static final int END_DOCUMENT = 0;
+    public static final int BEGIN_OBJECT = 1;
+    public static final int END_OBJECT = 2;
+    public static final int BEGIN_ARRAY = 3;
+    public static final int END_ARRAY = 4;
+    public static final int NAME = 5;
+    public static final int STRING = 6;
+    public static final int NUMBER = 7;
+    public static final int TRUE = 8;
+    public static final int FALSE = 9;
+    public static final int NULL = 10;
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // What the grammar allows next
+    private static final int STATE_ROOT = 0;
+    private static final int STATE_OBJECT_START = 1;
+    private static final int STATE_OBJECT_NEXT = 2;
+    private static final int STATE_AFTER_NAME = 3;
+    private static final int STATE_ARRAY_START = 4;
+    private static final int STATE_ARRAY_NEXT = 5;
+    private static final int STATE_DONE = 6;
+
+    private static final byte IN_OBJECT = 1;
+    private static final byte IN_ARRAY = 2;
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private long bufferOffset; // Absolute offset of buf[0]
+    private boolean eof;
+
+    private byte[] stack = new byte[32];
+    private int depth;
+    private int state = STATE_ROOT;
+
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean tokenEscaped;
+
+    public JsonTokenizer(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public JsonTokenizer(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /** Advances to the next token and returns its type. */
+    public int next() throws IOException {
+        int c = skipWhitespace();
+        switch (state) {
+            case STATE_ROOT:
+                if (c == -1) throw error("Empty JSON");
+                skipByteOrderMark(c);
+                return readValue(skipWhitespace());
+
+            case STATE_OBJECT_START:
+                if (c == '}') return endContainer(IN_OBJECT, END_OBJECT);
+                return readName(c);
+
+            case STATE_OBJECT_NEXT:
+                if (c == '}') return endContainer(IN_OBJECT, END_OBJECT);
+                if (c != ',') throw error("Expected ',' or '}'");
+                pos++;
+                return readName(skipWhitespace());
+
+            case STATE_AFTER_NAME:
+                if (c != ':') throw error("Expected ':'");
+                pos++;
+                return readValue(skipWhitespace());
+
+            case STATE_ARRAY_START:
+                if (c == ']') return endContainer(IN_ARRAY, END_ARRAY);
+                return readValue(c);
+
+            case STATE_ARRAY_NEXT:
+                if (c == ']') return endContainer(IN_ARRAY, END_ARRAY);
+                if (c != ',') throw error("Expected ',' or ']'");
+                pos++;
+                return readValue(skipWhitespace());
+
+            default:
+                if (c != -1) throw error("Unexpected data after root value");
+                tokenStart = tokenEnd = pos;
+                return END_DOCUMENT;
+        }
+    }
+
+    /** Absolute byte offset of the current token's first byte (the quote for strings). */
+    public long getTokenOffset() {
+        return bufferOffset + tokenStart;
+    }
+
+    /** Byte length of the current token, including quotes for strings. */
+    public int getTokenLength() {
+        return tokenEnd - tokenStart;
+    }
+
+    /** True if the current string or name contains backslash escapes. */
+    public boolean hasEscapes() {
+        return tokenEscaped;
+    }
+
+    /** Nesting depth after the current token (1 inside the root container). */
+    public int getDepth() {
+        return depth;
+    }
+
+    /** Total bytes consumed from the stream so far. */
+    public long getBytesConsumed() {
+        return bufferOffset + pos;
+    }
+
+    /** Decodes the current NAME or STRING token. Allocates; call only when the text is needed. */
+    public String getString() {
+        return JsonStrings.decode(buf, tokenStart + 1, tokenEnd - tokenStart - 2, tokenEscaped);
+    }
+
+    /**
+     * Decodes the current string body into {@code dst} without allocating.
+     *
+     * @return number of chars written, at most {@code max}
+     */
+    public int getString(char[] dst, int max) {
+        return JsonStrings.decodeInto(
+                buf, tokenStart + 1, tokenEnd - tokenStart - 2, dst, 0, max);
+    }
+
+    /** Raw token text, e.g. the digits of a NUMBER exactly as written. */
+    public String getText() {
+        return new String(buf, tokenStart, tokenEnd - tokenStart, StandardCharsets.ISO_8859_1);
+    }
+
+    // --- Grammar ---
+
+    private int readValue(int c) throws IOException {
+        tokenStart = pos;
+        tokenEscaped = false;
+        switch (c) {
+            case '{':
+                push(IN_OBJECT);
+                pos++;
+                tokenEnd = pos;
+                state = STATE_OBJECT_START;
+                return BEGIN_OBJECT;
+            case '[':
+                push(IN_ARRAY);
+                pos++;
+                tokenEnd = pos;
+                state = STATE_ARRAY_START;
+                return BEGIN_ARRAY;
+            case '"':
+                scanString();
+                afterValue();
+                return STRING;
+            case 't':
+                scanLiteral("true");
+                afterValue();
+                return TRUE;
+            case 'f':
+                scanLiteral("false");
+                afterValue();
+                return FALSE;
+            case 'n':
+                scanLiteral("null");
+                afterValue();
+                return NULL;
+            case -1:
+                throw error("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    scanNumber();
+                    afterValue();
+                    return NUMBER;
+                }
+                throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private int readName(int c) throws IOException {
+        if (c != '"') throw error(c == -1 ? "Unexpected end of input" : "Expected a key");
+        tokenStart = pos;
+        scanString();
+        state = STATE_AFTER_NAME;
+        return NAME;
+    }
+
+    private int endContainer(byte expected, int token) throws IOException {
+        if (depth == 0 || stack[depth - 1] != expected) throw error("Mismatched bracket");
+        depth--;
+        tokenStart = pos;
+        pos++;
+        tokenEnd = pos;
+        tokenEscaped = false;
+        afterValue();
+        return token;
+    }
+
+    private void afterValue() {
+        if (depth == 0) {
+            state = STATE_DONE;
+        } else {
+            state = stack[depth - 1] == IN_OBJECT ? STATE_OBJECT_NEXT : STATE_ARRAY_NEXT;
+        }
+    }
+
+    private void push(byte container) {
+        if (depth == stack.length) {
+            byte[] grown = new byte[stack.length * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = container;
+    }
+
+    // --- Scanners (pos sits on the token's first byte) ---
+
+    private void scanString() throws IOException {
+        boolean escaped = false;
+        pos++; // Opening quote
+        while (true) {
+            if (pos == limit && !fill()) throw error("Unterminated string");
+            int b = buf[pos] & 0xFF;
+            if (b == '"') {
+                pos++;
+                break;
+            }
+            if (b == '\\') {
+                escaped = true;
+                pos++;
+                if (pos == limit && !fill()) throw error("Unterminated string");
+                int e = buf[pos];
+                if (e == 'u') {
+                    for (int k = 0; k < 4; k++) {
+                        pos++;
+                        if (pos == limit && !fill()) throw error("Unterminated string");
+                        if (JsonStrings.hexValue(buf[pos]) < 0) throw error("Bad unicode escape");
+                    }
+                } else if (e != '"' && e != '\\' && e != '/' && e != 'b' && e != 'f'
+                        && e != 'n' && e != 'r' && e != 't') {
+                    throw error("Bad escape sequence");
+                }
+            } else if (b < 0x20) {
+                throw error("Control character in string");
+            }
+            pos++;
+        }
+        tokenEnd = pos;
+        tokenEscaped = escaped;
+    }
+
+    private void scanNumber() throws IOException {
+        int c = peek();
+        if (c == '-') {
+            pos++;
+            c = peek();
+        }
+        if (c == '0') {
+            pos++;
+            c = peek();
+        } else if (c >= '1' && c <= '9') {
+            c = skipDigits();
+        } else {
+            throw error("Malformed number");
+        }
+        if (c == '.') {
+            pos++;
+            if (!isDigit(peek())) throw error("Malformed number");
+            c = skipDigits();
+        }
+        if (c == 'e' || c == 'E') {
+            pos++;
+            c = peek();
+            if (c == '+' || c == '-') {
+                pos++;
+                c = peek();
+            }
+            if (!isDigit(c)) throw error("Malformed number");
+            skipDigits();
+        }
+        tokenEnd = pos;
+    }
+
+    private int skipDigits() throws IOException {
+        int c;
+        while (isDigit(c = peek())) pos++;
+        return c;
+    }
+
+    private void scanLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (peek() != literal.charAt(i)) throw error("Unexpected literal");
+            pos++;
+        }
+        tokenEnd = pos;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // --- Buffering ---
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit) {
+                tokenStart = pos;
+                if (!fill()) return -1;
+            }
+            int b = buf[pos];
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                pos++;
+            } else {
+                return b & 0xFF;
+            }
+        }
+    }
+
+    private void skipByteOrderMark(int c) throws IOException {
+        if (c == 0xEF
+                && ensure(3)
+                && (buf[pos + 1] & 0xFF) == 0xBB
+                && (buf[pos + 2] & 0xFF) == 0xBF) {
+            pos += 3;
+        }
+    }
+
+    private boolean ensure(int count) throws IOException {
+        while (limit - pos < count) {
+            if (!fill()) return false;
+        }
+        return true;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos] & 0xFF;
+    }
+
+    /**
+     * Reads more bytes, keeping everything from the current token start so its raw bytes stay
+     * contiguous. Grows the buffer only when a single token is larger than it.
+     */
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        int keep = tokenStart;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, limit - keep);
+            bufferOffset += keep;
+            limit -= keep;
+            pos -= keep;
+            tokenStart = 0;
+            tokenEnd = Math.max(0, tokenEnd - keep);
+        } else if (limit == buf.length) {
+            byte[] grown = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, grown, 0, limit);
+            buf = grown;
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n <= 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private JsonParseException error(String message) {
+        return new JsonParseException(message, bufferOffset + pos);
+    }
+}
@@ -0,0 +1,372 @@
+package aman.jsonviewer;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Single-pass structural validator over raw UTF-8 bytes.
+ *
+ * <p>It is a push state machine: bytes can be fed in any slicing with {@link #feed} and the state
+ * carries over, so nothing is buffered or allocated per token (the only allocation is the nesting
+ * stack, and only when a document nests deeper than 64 levels). Failures are reported as a
+ * {@link JsonParseException} carrying the byte offset plus the 1-based line and column.
+ *
+ * <p>The grammar is the same one {@link JsonTokenizer} enforces, including the object-or-array
+ * root that {@link JsonDocument} requires.
+ */
+public final class JsonValidator {
+
+    private static final int WINDOW_SIZE = 64 * 1024;
+    /** Bytes validated between {@link ParseProgress} polls. */
+    private static final int PROGRESS_INTERVAL = 1024 * 1024;
+
+    private static final int START = 0;
+    private static final int BOM_2 = 1;
+    private static final int BOM_3 = 2;
+    private static final int VALUE = 3;          // After ':' or ','
+    private static final int ARRAY_FIRST = 4;    // After '[': value or ']'
+    private static final int OBJECT_FIRST = 5;   // After '{': key or '}'
+    private static final int KEY = 6;            // After ',' in an object
+    private static final int COLON = 7;
+    private static final int AFTER_VALUE = 8;    // ',' or a closing bracket
+    private static final int STRING = 9;
+    private static final int ESCAPE = 10;
+    private static final int UNICODE = 11;
+    private static final int NUMBER_MINUS = 12;  // Needs a digit
+    private static final int NUMBER_ZERO = 13;   // Leading 0: no more integer digits
+    private static final int NUMBER_INT = 14;
+    private static final int NUMBER_DOT = 15;    // Needs a digit
+    private static final int NUMBER_FRACTION = 16;
+    private static final int NUMBER_EXP = 17;    // Sign or digit
+    private static final int NUMBER_EXP_SIGN = 18; // Needs a digit
+    private static final int NUMBER_EXP_DIGITS = 19;
+    private static final int LITERAL = 20;
+    private static final int DONE = 21;
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private int state = START;
+    private boolean stringIsKey;
+    private int hexRemaining;
+    private byte[] literal;
+    private int literalIndex;
+
+    private byte[] stack = new byte[64]; // '{' or '['
+    private int depth;
+
+    private long offset;     // Absolute offset of the next byte
+    private long line = 1;
+    private long lineStart;  // Offset of the current line's first byte
+    private long continuationBytes; // UTF-8 continuation bytes since lineStart, for the column
+
+    /** Validates a whole buffer; mapped buffers are read through a small reusable window. */
+    public static void validate(ByteBuffer source) throws JsonParseException {
+        JsonValidator validator = new JsonValidator();
+        if (source.hasArray()) {
+            validator.feed(source.array(), source.arrayOffset() + source.position(),
+                    source.remaining());
+        } else {
+            ByteBuffer view = source.duplicate();
+            byte[] window = new byte[Math.min(WINDOW_SIZE, Math.max(view.remaining(), 1))];
+            while (view.hasRemaining()) {
+                int n = Math.min(window.length, view.remaining());
+                view.get(window, 0, n);
+                validator.feed(window, 0, n);
+            }
+        }
+        validator.finish();
+    }
+
+    /**
+     * Same as {@link #validate(ByteBuffer)}, polling {@code progress} after every megabyte.
+     *
+     * @throws InterruptedIOException if {@code progress} asked to stop
+     */
+    public static void validate(ByteBuffer source, ParseProgress progress)
+            throws JsonParseException, InterruptedIOException {
+        if (progress == null) {
+            validate(source);
+            return;
+        }
+        JsonValidator validator = new JsonValidator();
+        ByteBuffer view = source.duplicate();
+        byte[] window = source.hasArray() ? null : new byte[WINDOW_SIZE];
+        long done = 0;
+        while (view.hasRemaining()) {
+            int step = Math.min(PROGRESS_INTERVAL, view.remaining());
+            if (window == null) {
+                validator.feed(view.array(), view.arrayOffset() + view.position(), step);
+                view.position(view.position() + step);
+            } else {
+                for (int left = step; left > 0; ) {
+                    int n = Math.min(window.length, left);
+                    view.get(window, 0, n);
+                    validator.feed(window, 0, n);
+                    left -= n;
+                }
+            }
+            done += step;
+            if (!progress.onProgress(done)) throw new InterruptedIOException("Cancelled");
+        }
+        validator.finish();
+    }
+
+    public static void validate(byte[] utf8) throws JsonParseException {
+        validate(ByteBuffer.wrap(utf8));
+    }
+
+    /** Consumes the next {@code length} bytes of the document. */
+    public void feed(byte[] buf, int start, int length) throws JsonParseException {
+        int end = start + length;
+        int i = start;
+        long base = offset - start; // Absolute offset of buf[0]
+
+        while (i < end) {
+            int b = buf[i] & 0xFF;
+            switch (state) {
+                case STRING: {
+                    // Hot loop: plain string bytes
+                    while (b != '"' && b != '\\' && b >= 0x20) {
+                        if ((b & 0xC0) == 0x80) continuationBytes++;
+                        if (++i == end) break;
+                        b = buf[i] & 0xFF;
+                    }
+                    if (i == end) break;
+                    if (b == '"') {
+                        state = stringIsKey ? COLON : AFTER_VALUE;
+                    } else if (b == '\\') {
+                        state = ESCAPE;
+                    } else {
+                        throw error("Control character in string", base + i);
+                    }
+                    i++;
+                    break;
+                }
+                case ESCAPE:
+                    if (b == 'u') {
+                        hexRemaining = 4;
+                        state = UNICODE;
+                    } else if (b == '"' || b == '\\' || b == '/' || b == 'b' || b == 'f'
+                            || b == 'n' || b == 'r' || b == 't') {
+                        state = STRING;
+                    } else {
+                        throw error("Bad escape sequence", base + i);
+                    }
+                    i++;
+                    break;
+                case UNICODE:
+                    if (JsonStrings.hexValue(b) < 0) throw error("Bad unicode escape", base + i);
+                    if (--hexRemaining == 0) state = STRING;
+                    i++;
+                    break;
+
+                case NUMBER_MINUS:
+                    if (b == '0') state = NUMBER_ZERO;
+                    else if (isDigit(b)) state = NUMBER_INT;
+                    else throw error("Malformed number", base + i);
+                    i++;
+                    break;
+                case NUMBER_INT:
+                    while (isDigit(b)) {
+                        if (++i == end) break;
+                        b = buf[i] & 0xFF;
+                    }
+                    if (i == end) break;
+                    // fall through
+                case NUMBER_ZERO:
+                    if (b == '.') {
+                        state = NUMBER_DOT;
+                        i++;
+                    } else if (b == 'e' || b == 'E') {
+                        state = NUMBER_EXP;
+                        i++;
+                    } else {
+                        state = AFTER_VALUE; // Reprocess b as a delimiter
+                    }
+                    break;
+                case NUMBER_DOT:
+                    if (!isDigit(b)) throw error("Malformed number", base + i);
+                    state = NUMBER_FRACTION;
+                    i++;
+                    break;
+                case NUMBER_FRACTION:
+                    if (isDigit(b)) {
+                        i++;
+                    } else if (b == 'e' || b == 'E') {
+                        state = NUMBER_EXP;
+                        i++;
+                    } else {
+                        state = AFTER_VALUE;
+                    }
+                    break;
+                case NUMBER_EXP:
+                    if (b == '+' || b == '-') state = NUMBER_EXP_SIGN;
+                    else if (isDigit(b)) state = NUMBER_EXP_DIGITS;
+                    else throw error("Malformed number", base + i);
+                    i++;
+                    break;
+                case NUMBER_EXP_SIGN:
+                    if (!isDigit(b)) throw error("Malformed number", base + i);
+                    state = NUMBER_EXP_DIGITS;
+                    i++;
+                    break;
+                case NUMBER_EXP_DIGITS:
+                    if (isDigit(b)) i++;
+                    else state = AFTER_VALUE;
+                    break;
+
+                case LITERAL:
+                    if (b != literal[literalIndex]) throw error("Unexpected literal", base + i);
+                    if (++literalIndex == literal.length) state = AFTER_VALUE;
+                    i++;
+                    break;
+
+                case START:
+                    if (b == 0xEF) {
+                        state = BOM_2;
+                        i++;
+                        break;
+                    }
+                    state = VALUE;
+                    break;
+                case BOM_2:
+                case BOM_3:
+                    if (b != (state == BOM_2 ? 0xBB : 0xBF)) {
+                        throw error("Invalid start character", 0);
+                    }
+                    state = state == BOM_2 ? BOM_3 : VALUE;
+                    i++;
+                    break;
+
+                default:
+                    // Structural states: skip whitespace first
+                    if (b == ' ' || b == '\t' || b == '\r') {
+                        i++;
+                        break;
+                    }
+                    if (b == '\n') {
+                        i++;
+                        line++;
+                        lineStart = base + i;
+                        continuationBytes = 0;
+                        break;
+                    }
+                    structural(b, base + i);
+                    i++;
+                    break;
+            }
+        }
+        offset = base + end;
+    }
+
+    /** Call after the last byte; fails if the document is incomplete. */
+    public void finish() throws JsonParseException {
+        if (state == DONE) return;
+        if (depth == 0 && (state == START || state == VALUE)) throw error("Empty JSON", offset);
+        throw error("Unexpected end of input", offset);
+    }
+
+    private void structural(int b, long at) throws JsonParseException {
+        switch (state) {
+            case VALUE:
+            case ARRAY_FIRST:
+                if (state == ARRAY_FIRST && b == ']') {
+                    close('[', at);
+                    return;
+                }
+                beginValue(b, at);
+                return;
+            case OBJECT_FIRST:
+                if (b == '}') {
+                    close('{', at);
+                    return;
+                }
+                // fall through
+            case KEY:
+                if (b != '"') throw error("Expected a key", at);
+                stringIsKey = true;
+                state = STRING;
+                return;
+            case COLON:
+                if (b != ':') throw error("Expected ':'", at);
+                state = VALUE;
+                return;
+            case AFTER_VALUE:
+                if (b == ',') {
+                    state = stack[depth - 1] == '{' ? KEY : VALUE;
+                } else if (b == '}' || b == ']') {
+                    close(b == '}' ? '{' : '[', at);
+                } else {
+                    throw error(stack[depth - 1] == '{' ? "Expected ',' or '}'"
+                            : "Expected ',' or ']'", at);
+                }
+                return;
+            default: // DONE
+                throw error("Unexpected data after root value", at);
+        }
+    }
+
+    private void beginValue(int b, long at) throws JsonParseException {
+        if (depth == 0 && b != '{' && b != '[') throw error("Invalid start character", at);
+        switch (b) {
+            case '{':
+            case '[':
+                if (depth == stack.length) {
+                    byte[] grown = new byte[depth * 2];
+                    System.arraycopy(stack, 0, grown, 0, depth);
+                    stack = grown;
+                }
+                stack[depth++] = (byte) b;
+                state = b == '{' ? OBJECT_FIRST : ARRAY_FIRST;
+                return;
+            case '"':
+                stringIsKey = false;
+                state = STRING;
+                return;
+            case 't':
+                startLiteral(TRUE);
+                return;
+            case 'f':
+                startLiteral(FALSE);
+                return;
+            case 'n':
+                startLiteral(NULL);
+                return;
+            case '-':
+                state = NUMBER_MINUS;
+                return;
+            case '0':
+                state = NUMBER_ZERO;
+                return;
+            default:
+                if (b >= '1' && b <= '9') {
+                    state = NUMBER_INT;
+                    return;
+                }
+                throw error("Unexpected character '" + (char) b + "'", at);
+        }
+    }
+
+    private void startLiteral(byte[] expected) {
+        literal = expected;
+        literalIndex = 1;
+        state = LITERAL;
+    }
+
+    private void close(int open, long at) throws JsonParseException {
+        if (stack[depth - 1] != open) throw error("Mismatched bracket", at);
+        depth--;
+        state = depth == 0 ? DONE : AFTER_VALUE;
+    }
+
+    private static boolean isDigit(int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private JsonParseException error(String message, long at) {
+        long column = at - lineStart - continuationBytes + 1;
+        return new JsonParseException(message, at, line, column);
+    }
+}
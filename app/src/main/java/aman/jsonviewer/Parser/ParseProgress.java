@@ -0,0 +1,15 @@
+package aman.jsonviewer;
+
+/**
+ * Polled by long-running parses and validations, so they can report how far they got and be
+ * stopped. Implementations must be cheap; they are called every few thousand tokens.
+ */
+public interface ParseProgress {
+
+    /**
+     * @param bytes bytes of the input consumed so far
+     * @return false to abandon the work; the caller then throws {@link
+     *     java.io.InterruptedIOException}
+     */
+    boolean onProgress(long bytes);
+}
@@ -0,0 +1,74 @@
+package aman.jsonviewer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Passes a stream through while keeping a copy of every byte read, so a document parsed from a
+ * stream still has a source to decode its values from.
+ */
+public final class RetainingInputStream extends InputStream {
+
+    private final InputStream in;
+    private byte[] data;
+    private int length;
+
+    public RetainingInputStream(InputStream in, int sizeHint) {
+        this.in = in;
+        this.data = new byte[Math.max(sizeHint, 64 * 1024)];
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            ensure(1);
+            data[length++] = (byte) b;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            ensure(n);
+            System.arraycopy(b, off, data, length, n);
+            length += n;
+        }
+        return n;
+    }
+
+    /** Reads whatever is left, e.g. after a parse error, so the source is complete. */
+    public void drain() throws IOException {
+        while (true) {
+            ensure(1);
+            int n = in.read(data, length, data.length - length);
+            if (n < 0) return;
+            length += n;
+        }
+    }
+
+    /** Number of bytes retained so far. */
+    public long getCount() {
+        return length;
+    }
+
+    /** The retained bytes. Must not be called while the stream is still being read. */
+    public ByteBuffer toBuffer() {
+        return ByteBuffer.wrap(data, 0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void ensure(int count) {
+        if (length + count <= data.length) return;
+        byte[] grown = new byte[Math.max(data.length * 2, length + count)];
+        System.arraycopy(data, 0, grown, 0, length);
+        data = grown;
+    }
+}
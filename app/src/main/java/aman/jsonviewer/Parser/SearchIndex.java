@@ -0,0 +1,302 @@
+package aman.jsonviewer;
+
+import java.util.Arrays;
+
+/**
+ * Trigram index over the case-folded key and value text of every node in a {@link JsonDocument},
+ * so a search only has to look at the nodes that can contain the query.
+ *
+ * <p>Each distinct run of three folded chars maps to the sorted ids of the nodes whose key, array
+ * label ("[i]") or scalar value contains it. A query of three or more chars can only match nodes
+ * in every one of its trigrams' lists, so {@link #candidates} intersects them. Values longer than
+ * {@link #MAX_TEXT_CHARS} are not broken into trigrams; they are always candidates instead, which
+ * keeps the index small for documents with a few huge strings.
+ *
+ * <p>Candidates are a superset: callers still test them with their own match rule. The postings
+ * take about four bytes per trigram per node, and the build gives up (returning null) once they
+ * would pass the memory cap, in which case callers scan as before.
+ */
+public final class SearchIndex {
+
+    /** Shorter queries have no trigram to look up. */
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private static final int MAX_TEXT_CHARS = 256;
+    private static final int CHECK_INTERVAL = 4096; // Nodes between interrupt checks
+    private static final long PRESENT = 1L << 48;  // Marks a used slot; a trigram uses 48 bits
+
+    private long[] keys;      // Trigram | PRESENT, 0 for an empty slot
+    private int[] offsets;    // Start of the slot's run in postings
+    private int[] counts;     // Length of the run
+    private int[] lastNode;   // Build only: last node counted in the slot, to count a node once
+    private int slotsUsed;
+    private int[] postings;
+    private int[] longNodes = new int[16]; // Nodes with text too long to index, sorted
+    private int longCount;
+
+    private final JsonDocument document;
+    private final long maxBytes;
+    // Two chars past the limit: decoding stops before a surrogate pair that does not fit, so a
+    // text cut at the limit could otherwise come back exactly MAX_TEXT_CHARS long
+    private final char[] text = new char[MAX_TEXT_CHARS + 2];
+    private long postingCount;
+    private int untilCheck = CHECK_INTERVAL;
+    private boolean filling;
+
+    private SearchIndex(JsonDocument document, long maxBytes) {
+        this.document = document;
+        this.maxBytes = maxBytes;
+        allocate(1024);
+    }
+
+    /**
+     * Builds the index for {@code document}; meant for a background thread.
+     *
+     * @return the index, or null if it would take more than {@code maxBytes} or the thread was
+     *     interrupted
+     */
+    public static SearchIndex build(JsonDocument document, long maxBytes) {
+        SearchIndex index = new SearchIndex(document, maxBytes);
+        try {
+            // Count each trigram's nodes, then lay the lists out back to back and fill them
+            index.walk(document.getRoot());
+            index.layout();
+            index.walk(document.getRoot());
+        } catch (StopBuild e) {
+            return null; // Over the cap or cancelled
+        }
+        index.lastNode = null;
+        return index;
+    }
+
+    /**
+     * Sorted ids of the nodes that may match {@code lowerQuery}, or null if the index cannot
+     * narrow it down (the query is too short) and the caller has to scan.
+     */
+    public int[] candidates(String lowerQuery) {
+        if (lowerQuery.length() < MIN_QUERY_LENGTH) return null;
+        int trigrams = lowerQuery.length() - 2;
+        int[] slots = new int[trigrams];
+        for (int i = 0; i < trigrams; i++) {
+            int slot = find(trigram(fold(lowerQuery.charAt(i)),
+                    fold(lowerQuery.charAt(i + 1)), fold(lowerQuery.charAt(i + 2))));
+            if (keys[slot] == 0) return Arrays.copyOf(longNodes, longCount);
+            slots[i] = slot;
+        }
+
+        // Intersect from the shortest list, so the working set only shrinks
+        int shortest = 0;
+        for (int i = 1; i < trigrams; i++) {
+            if (counts[slots[i]] < counts[slots[shortest]]) shortest = i;
+        }
+        int[] result = Arrays.copyOfRange(postings, offsets[slots[shortest]],
+                offsets[slots[shortest]] + counts[slots[shortest]]);
+        int size = result.length;
+        for (int i = 0; i < trigrams && size > 0; i++) {
+            if (i != shortest) size = retain(result, size, slots[i]);
+        }
+        return merge(result, size, longNodes, longCount);
+    }
+
+    /** Approximate heap taken by the index. */
+    public long sizeInBytes() {
+        return keys.length * 16L + postings.length * 4L + longNodes.length * 4L;
+    }
+
+    /**
+     * Indexes every node in document order. Open containers are kept on an explicit stack, so
+     * deeply nested input cannot overflow the stack.
+     */
+    private void walk(int root) {
+        int[] parents = new int[16];
+        int[] indexes = new int[16]; // Current child's index in each open array, else -1
+        int depth = 0;
+        int node = root;
+        int index = -1;
+        while (true) {
+            visit(node, index);
+            if (document.isContainer(node) && document.getChildCount(node) > 0) {
+                if (depth == parents.length) {
+                    parents = Arrays.copyOf(parents, depth * 2);
+                    indexes = Arrays.copyOf(indexes, depth * 2);
+                }
+                index = document.getType(node) == JsonDocument.TYPE_ARRAY ? 0 : -1;
+                parents[depth] = node;
+                indexes[depth++] = index;
+                node = document.getFirstChild(node);
+                continue;
+            }
+            // Next sibling, leaving the containers that are done
+            while (true) {
+                if (depth == 0) return;
+                int next = document.getNextSibling(node);
+                if (next < document.getEnd(parents[depth - 1])) {
+                    node = next;
+                    index = indexes[depth - 1] >= 0 ? ++indexes[depth - 1] : -1;
+                    break;
+                }
+                node = parents[--depth];
+            }
+        }
+    }
+
+    private void visit(int node, int index) {
+        if (--untilCheck == 0) {
+            untilCheck = CHECK_INTERVAL;
+            if (Thread.currentThread().isInterrupted()) throw new StopBuild();
+        }
+        boolean tooLong = addText(node,
+                index >= 0 ? label(index) : document.getKeyChars(node, text, text.length));
+        if (!document.isContainer(node)) {
+            tooLong |= addText(node, document.getValueChars(node, text, text.length));
+        }
+        // Before the children, so the list stays in document order
+        if (tooLong) addLong(node);
+    }
+
+    /** Writes "[index]" into {@code text}. */
+    private int label(int index) {
+        String label = "[" + index + "]";
+        label.getChars(0, label.length(), text, 0);
+        return label.length();
+    }
+
+    /** Adds the trigrams of {@code text[0..length)}; returns true if it was too long to index. */
+    private boolean addText(int node, int length) {
+        if (length > MAX_TEXT_CHARS) return true;
+        if (length < MIN_QUERY_LENGTH) return false;
+        int a = fold(text[0]);
+        int b = fold(text[1]);
+        for (int i = 2; i < length; i++) {
+            int c = fold(text[i]);
+            add(trigram(a, b, c), node);
+            a = b;
+            b = c;
+        }
+        return false;
+    }
+
+    private void add(long trigram, int node) {
+        int slot = find(trigram);
+        if (keys[slot] == 0) {
+            if (filling) return; // Cannot happen: both passes see the same text
+            keys[slot] = trigram;
+            lastNode[slot] = -1;
+            if (++slotsUsed * 2 > keys.length) {
+                rehash();
+                slot = find(trigram);
+            }
+        }
+        if (lastNode[slot] == node) return;
+        lastNode[slot] = node;
+        if (filling) {
+            postings[offsets[slot] + counts[slot]++] = node;
+        } else {
+            counts[slot]++;
+            if (++postingCount * 4 + keys.length * 20L > maxBytes) throw new StopBuild();
+        }
+    }
+
+    private void addLong(int node) {
+        if (filling) return;
+        if (longCount == longNodes.length) longNodes = Arrays.copyOf(longNodes, longCount * 2);
+        longNodes[longCount++] = node;
+    }
+
+    /** Turns the counts into offsets and resets them to act as fill cursors. */
+    private void layout() {
+        postings = new int[(int) postingCount];
+        int offset = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == 0) continue;
+            offsets[slot] = offset;
+            offset += counts[slot];
+            counts[slot] = 0;
+            lastNode[slot] = -1;
+        }
+        longNodes = Arrays.copyOf(longNodes, longCount);
+        filling = true;
+        untilCheck = CHECK_INTERVAL;
+    }
+
+    /** Keeps the entries of {@code result[0..size)} that are also in the slot's list. */
+    private int retain(int[] result, int size, int slot) {
+        int from = offsets[slot];
+        int to = from + counts[slot];
+        int kept = 0;
+        for (int i = 0; i < size && from < to; i++) {
+            from = lowerBound(postings, from, to, result[i]);
+            if (from < to && postings[from] == result[i]) result[kept++] = result[i];
+        }
+        return kept;
+    }
+
+    private static int lowerBound(int[] array, int from, int to, int value) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (array[mid] < value) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+    /** Sorted union of two sorted runs. */
+    private static int[] merge(int[] a, int aSize, int[] b, int bSize) {
+        int[] out = new int[aSize + bSize];
+        int i = 0, j = 0, n = 0;
+        while (i < aSize || j < bSize) {
+            if (j == bSize || (i < aSize && a[i] < b[j])) {
+                out[n++] = a[i++];
+            } else {
+                if (i < aSize && a[i] == b[j]) i++;
+                out[n++] = b[j++];
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private int find(long trigram) {
+        int mask = keys.length - 1;
+        int slot = (int) (trigram * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        while (keys[slot] != 0 && keys[slot] != trigram) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        int[] oldLast = lastNode;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            counts[slot] = oldCounts[i];
+            lastNode[slot] = oldLast[i];
+        }
+        if (postingCount * 4 + keys.length * 20L > maxBytes) throw new StopBuild();
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        offsets = new int[capacity];
+        counts = new int[capacity];
+        lastNode = new int[capacity];
+    }
+
+    private static long trigram(int a, int b, int c) {
+        return PRESENT | (long) a << 32 | (long) b << 16 | c;
+    }
+
+    /** Case folding that agrees with {@code String.regionMatches(true, ...)}. */
+    private static int fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /** Stops the build: over the memory cap, or interrupted. */
+    private static final class StopBuild extends RuntimeException {
+        StopBuild() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package aman.jsonviewer;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * What a {@link JsonDocument}'s bytes are spent on: the largest subtrees by JSON text size and by
+ * value count, with their paths, and the key names whose values take the most bytes in total.
+ *
+ * <p>One pass over the document feeds the subtree stats recorded at parse time into bounded
+ * min-heaps, so it takes O(n log k) time and O(k) memory besides the per-key totals. A second pass
+ * only descends into the subtrees that hold a result, to spell out their paths.
+ */
+public final class SizeReport {
+
+    private static final int CHECK_INTERVAL = 4096; // Nodes between interrupt checks
+
+    /** One subtree or key in the report. */
+    public static final class Entry {
+        public final String path;  // "$.a.b[0]" for a subtree, the key name for a key total
+        public final long bytes;
+        public final int count;    // Values under a subtree, or occurrences of a key
+
+        Entry(String path, long bytes, int count) {
+            this.path = path;
+            this.bytes = bytes;
+            this.count = count;
+        }
+    }
+
+    public final long totalBytes;
+    public final Entry[] largestByBytes;
+    public final Entry[] largestByCount;
+    public final Entry[] largestKeys;
+
+    private SizeReport(long totalBytes, Entry[] byBytes, Entry[] byCount, Entry[] keys) {
+        this.totalBytes = totalBytes;
+        this.largestByBytes = byBytes;
+        this.largestByCount = byCount;
+        this.largestKeys = keys;
+    }
+
+    /**
+     * Builds the report with at most {@code k} entries per list; meant for a background thread.
+     *
+     * @return the report, or null if the thread was interrupted
+     */
+    public static SizeReport build(JsonDocument document, int k) {
+        Builder builder = new Builder(document, k);
+        if (!builder.walk()) return null;
+        int[] bytesNodes = builder.byBytes.sortedNodes();
+        int[] countNodes = builder.byCount.sortedNodes();
+        int[] targets = new int[bytesNodes.length + countNodes.length];
+        System.arraycopy(bytesNodes, 0, targets, 0, bytesNodes.length);
+        System.arraycopy(countNodes, 0, targets, bytesNodes.length, countNodes.length);
+        Arrays.sort(targets);
+        String[] paths = paths(document, targets);
+
+        Entry[] byBytes = new Entry[bytesNodes.length];
+        for (int i = 0; i < byBytes.length; i++) {
+            int node = bytesNodes[i];
+            byBytes[i] = new Entry(paths[Arrays.binarySearch(targets, node)],
+                    document.getByteLength(node), document.getDescendantCount(node));
+        }
+        Entry[] byCount = new Entry[countNodes.length];
+        for (int i = 0; i < byCount.length; i++) {
+            int node = countNodes[i];
+            byCount[i] = new Entry(paths[Arrays.binarySearch(targets, node)],
+                    document.getByteLength(node), document.getDescendantCount(node));
+        }
+        return new SizeReport(document.getByteLength(document.getRoot()), byBytes, byCount,
+                builder.largestKeys(k));
+    }
+
+    /** Share of the whole document, in percent. */
+    public double percentOf(long bytes) {
+        return totalBytes > 0 ? bytes * 100.0 / totalBytes : 0;
+    }
+
+    /** Bytes and values of the subtrees and key names seen by the first pass. */
+    private static final class Builder {
+        final JsonDocument document;
+        final TopK byBytes;
+        final TopK byCount;
+        final HashMap<String, KeyTotal> keys = new HashMap<>();
+        int untilCheck = CHECK_INTERVAL;
+
+        Builder(JsonDocument document, int k) {
+            this.document = document;
+            this.byBytes = new TopK(k);
+            this.byCount = new TopK(k);
+        }
+
+        /** Visits every value below the root in document order; false if interrupted. */
+        boolean walk() {
+            int root = document.getRoot();
+            int[] parents = new int[16];
+            int depth = 0;
+            int parent = root;
+            int node = document.getFirstChild(root);
+            while (true) {
+                if (node >= document.getEnd(parent)) {
+                    // Leave the containers that are done
+                    if (depth == 0) return true;
+                    node = document.getNextSibling(parent);
+                    parent = parents[--depth];
+                    continue;
+                }
+                if (--untilCheck == 0) {
+                    untilCheck = CHECK_INTERVAL;
+                    if (Thread.currentThread().isInterrupted()) return false;
+                }
+                visit(node, document.getType(parent) == JsonDocument.TYPE_OBJECT);
+                if (document.isContainer(node)) {
+                    if (depth == parents.length) parents = Arrays.copyOf(parents, depth * 2);
+                    parents[depth++] = parent;
+                    parent = node;
+                    node = document.getFirstChild(node);
+                } else {
+                    node = document.getNextSibling(node);
+                }
+            }
+        }
+
+        private void visit(int node, boolean member) {
+            long bytes = document.getByteLength(node);
+            byBytes.offer(bytes, node);
+            if (document.isContainer(node)) byCount.offer(document.getDescendantCount(node), node);
+            if (!member) return;
+
+            String key = document.getKey(node);
+            KeyTotal total = keys.get(key);
+            if (total == null) {
+                total = new KeyTotal(key);
+                keys.put(key, total);
+            }
+            total.count++;
+            // A key nested in a value of the same key is already counted in the outer bytes
+            if (node >= total.openEnd) {
+                total.bytes += bytes;
+                total.openEnd = document.getEnd(node);
+            }
+        }
+
+        Entry[] largestKeys(int k) {
+            KeyTotal[] totals = keys.values().toArray(new KeyTotal[0]);
+            TopK top = new TopK(k);
+            for (int i = 0; i < totals.length; i++) top.offer(totals[i].bytes, i);
+            int[] picked = top.sortedNodes();
+            Entry[] entries = new Entry[picked.length];
+            for (int i = 0; i < picked.length; i++) {
+                KeyTotal total = totals[picked[i]];
+                entries[i] = new Entry(total.key, total.bytes, total.count);
+            }
+            return entries;
+        }
+    }
+
+    private static final class KeyTotal {
+        final String key;
+        long bytes;
+        int count;
+        int openEnd; // End of the last counted value, to skip the same key nested inside it
+
+        KeyTotal(String key) {
+            this.key = key;
+        }
+    }
+
+    /** The k largest values offered so far, in a min-heap of primitives. */
+    private static final class TopK {
+        final long[] values;
+        final int[] nodes;
+        int size;
+
+        TopK(int k) {
+            values = new long[k];
+            nodes = new int[k];
+        }
+
+        void offer(long value, int node) {
+            if (size < values.length) {
+                values[size] = value;
+                nodes[size] = node;
+                siftUp(size++);
+            } else if (size > 0 && value > values[0]) {
+                values[0] = value;
+                nodes[0] = node;
+                siftDown(0);
+            }
+        }
+
+        /** The nodes, largest value first; empties the heap. */
+        int[] sortedNodes() {
+            int[] sorted = new int[size];
+            for (int i = sorted.length - 1; i >= 0; i--) {
+                sorted[i] = nodes[0];
+                size--;
+                values[0] = values[size];
+                nodes[0] = nodes[size];
+                siftDown(0);
+            }
+            return sorted;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!less(i, parent)) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && less(left, smallest)) smallest = left;
+                if (right < size && less(right, smallest)) smallest = right;
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        /** Smaller value first; among equal ones the later node, so ties list in document order. */
+        private boolean less(int a, int b) {
+            return values[a] < values[b] || (values[a] == values[b] && nodes[a] > nodes[b]);
+        }
+
+        private void swap(int a, int b) {
+            long value = values[a];
+            values[a] = values[b];
+            values[b] = value;
+            int node = nodes[a];
+            nodes[a] = nodes[b];
+            nodes[b] = node;
+        }
+    }
+
+    /** An open container while {@link #paths} descends towards the targets. */
+    private static final class Frame {
+        final int node;
+        final String path;
+        final boolean isArray;
+        int child;
+        int index;
+
+        Frame(JsonDocument document, int node, String path) {
+            this.node = node;
+            this.path = path;
+            this.isArray = document.getType(node) == JsonDocument.TYPE_ARRAY;
+            this.child = document.getFirstChild(node);
+        }
+    }
+
+    /**
+     * Paths of the sorted {@code targets}, descending only into subtrees that contain one, so the
+     * cost is bounded by the siblings along the way rather than the whole document.
+     */
+    private static String[] paths(JsonDocument document, int[] targets) {
+        String[] paths = new String[targets.length];
+        int next = 0;
+        int root = document.getRoot();
+        while (next < targets.length && targets[next] == root) paths[next++] = "$";
+
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(document, root, "$"));
+        while (!stack.isEmpty() && next < targets.length) {
+            Frame frame = stack.peek();
+            int end = document.getEnd(frame.node);
+            if (frame.child >= end || targets[next] >= end) {
+                stack.pop();
+                continue;
+            }
+            int child = frame.child;
+            int index = frame.index++;
+            frame.child = document.getNextSibling(child);
+            int childEnd = document.getEnd(child);
+            if (targets[next] >= childEnd) continue; // Nothing wanted in this subtree
+
+            String path = frame.isArray
+                    ? frame.path + "[" + index + "]"
+                    : frame.path + member(document.getKey(child));
+            while (next < targets.length && targets[next] == child) paths[next++] = path;
+            if (document.isContainer(child) && next < targets.length && targets[next] < childEnd) {
+                stack.push(new Frame(document, child, path));
+            }
+        }
+        return paths;
+    }
+
+    /** ".name" for a plain identifier, else the bracketed form "['a b']". */
+    private static String member(String key) {
+        boolean plain = !key.isEmpty() && !Character.isDigit(key.charAt(0));
+        for (int i = 0; i < key.length() && plain; i++) {
+            char c = key.charAt(i);
+            plain = Character.isLetterOrDigit(c) || c == '_' || c == '$';
+        }
+        if (plain) return "." + key;
+        return "['" + key.replace("\\", "\\\\").replace("'", "\\'") + "']";
+    }
+}
@@ -1,31 +1,69 @@
 package aman.jsonviewer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Singleton to hold large JSON data in memory instead of passing through Intent
  * This avoids TransactionTooLargeException for files > 1MB
+ *
+ * Also holds the single parsed {@link JsonDocument} so the viewer never has to parse twice.
  */
 public class JsonDataHolder {
     private static JsonDataHolder instance;
-    private String jsonData;
-    
+    private volatile ByteBuffer source;
+    private volatile JsonDocument document;
+    private volatile boolean parsed;
+    private volatile JsonParseException parseError;
+
     private JsonDataHolder() {}
-    
-    public static JsonDataHolder getInstance() {
+
+    public static synchronized JsonDataHolder getInstance() {
         if (instance == null) {
             instance = new JsonDataHolder();
         }
         return instance;
     }
-    
-    public void setJsonData(String data) {
-        this.jsonData = data;
+
+    /** Raw UTF-8 bytes of the loaded JSON; a memory-mapped buffer when it came from a file. */
+    public void setSource(ByteBuffer source) {
+        this.source = source;
+        this.document = null;
+        this.parsed = false;
+        this.parseError = null;
+    }
+
+    public ByteBuffer getSource() {
+        return source;
+    }
+
+    /** Stores the parse result for the current data. A null document means it was invalid. */
+    public void setDocument(JsonDocument document) {
+        this.document = document;
+        this.parsed = true;
+    }
+
+    public JsonDocument getDocument() {
+        return document;
+    }
+
+    /** Where the current data stopped being valid JSON, or null. Lets the Raw tab jump there. */
+    public void setParseError(JsonParseException parseError) {
+        this.parseError = parseError;
+    }
+
+    public JsonParseException getParseError() {
+        return parseError;
     }
-    
-    public String getJsonData() {
-        return jsonData;
+
+    /** True once the current data has been parsed (successfully or not). */
+    public boolean isParsed() {
+        return parsed;
     }
-    
+
     public void clear() {
-        this.jsonData = null;
+        this.source = null;
+        this.document = null;
+        this.parsed = false;
+        this.parseError = null;
     }
-}
\ No newline at end of file
+}
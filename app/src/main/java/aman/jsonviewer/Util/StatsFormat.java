@@ -0,0 +1,90 @@
+package aman.jsonviewer;
+
+/**
+ * Formats the subtree statistics of a container as a badge such as "12,431 items · 3.4 MB". The
+ * char[] form allocates nothing, for the tree rows that are rebound while scrolling.
+ */
+public final class StatsFormat {
+
+    /** Longest badge {@link #write} produces. */
+    public static final int MAX_CHARS = 40;
+
+    private static final String[] UNITS = {"KB", "MB", "GB", "TB"};
+
+    private StatsFormat() {}
+
+    /** The badge of a container node in {@code document}. */
+    public static String format(JsonDocument document, int node) {
+        char[] text = new char[MAX_CHARS];
+        int length = write(
+                document.getDescendantCount(node), document.getByteLength(node), text, 0);
+        return new String(text, 0, length);
+    }
+
+    /** Writes the badge at {@code offset}; returns the end. */
+    public static int write(int items, long bytes, char[] dst, int offset) {
+        offset = writeGrouped(items, dst, offset);
+        offset = append(items == 1 ? " item · " : " items · ", dst, offset);
+        return writeBytes(bytes, dst, offset);
+    }
+
+    /** A byte size such as "3.4 MB". */
+    public static String bytes(long bytes) {
+        char[] text = new char[MAX_CHARS];
+        return new String(text, 0, writeBytes(bytes, text, 0));
+    }
+
+    /** A count with grouped digits, such as "12,431". */
+    public static String count(long count) {
+        char[] text = new char[MAX_CHARS];
+        return new String(text, 0, writeGrouped(count, text, 0));
+    }
+
+    private static int writeBytes(long bytes, char[] dst, int offset) {
+        if (bytes < 1024) {
+            offset = writeGrouped(bytes, dst, offset);
+            return append(" B", dst, offset);
+        }
+        // One decimal, rounded, in the largest unit that keeps the value at least 1
+        int unit = 0;
+        long scale = 1024;
+        while (unit < UNITS.length - 1 && bytes >= scale * 1024) {
+            scale *= 1024;
+            unit++;
+        }
+        long tenths = (bytes * 10 + scale / 2) / scale;
+        if (tenths >= 10240 && unit < UNITS.length - 1) {
+            // Rounded up to a whole next unit, e.g. 1,023.95 KB
+            scale *= 1024;
+            unit++;
+            tenths = (bytes * 10 + scale / 2) / scale;
+        }
+        offset = writeGrouped(tenths / 10, dst, offset);
+        dst[offset++] = '.';
+        dst[offset++] = (char) ('0' + tenths % 10);
+        dst[offset++] = ' ';
+        return append(UNITS[unit], dst, offset);
+    }
+
+    /** Writes {@code value} with a comma between each group of three digits. */
+    private static int writeGrouped(long value, char[] dst, int offset) {
+        int digits = 1;
+        for (long rest = value; rest >= 10; rest /= 10) digits++;
+        int length = digits + (digits - 1) / 3;
+        long rest = value;
+        for (int i = offset + length - 1, n = 0; i >= offset; i--, n++) {
+            if (n % 4 == 3) {
+                dst[i] = ',';
+            } else {
+                dst[i] = (char) ('0' + rest % 10);
+                rest /= 10;
+            }
+        }
+        return offset + length;
+    }
+
+    private static int append(String s, char[] dst, int offset) {
+        s.getChars(0, s.length(), dst, offset);
+        return offset + s.length();
+    }
+}
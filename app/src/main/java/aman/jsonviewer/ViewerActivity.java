@@ -30,24 +30,32 @@ import androidx.fragment.app.Fragment;
 
 import com.google.android.material.tabs.TabLayout;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class ViewerActivity extends AppCompatActivity {
 
+    private static final int SIZE_REPORT_ENTRIES = 20; // Per list in the size report
+
     private JsonLoader jsonLoader;
     private FragmentController fragmentController;
     private SearchNavigator searchNavigator;
-    private String jsonData;
+    private ByteBuffer source;
+    private JsonDocument document;
+    private volatile SearchIndex searchIndex;
 
     // Async handling components
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
-    private ProgressBar loadingSpinner;
+    private View loadingPanel;
+    private ProgressBar loadProgress;
+    private TextView loadStatus;
     private View fragmentContainerView;
+    private LoadJob loadJob;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -66,8 +74,11 @@ public class ViewerActivity extends AppCompatActivity {
         }
 
         // Initialize UI elements for loading state
-        loadingSpinner = findViewById(R.id.loadingSpinner);
+        loadingPanel = findViewById(R.id.loadingPanel);
+        loadProgress = findViewById(R.id.loadProgress);
+        loadStatus = findViewById(R.id.loadStatus);
         fragmentContainerView = findViewById(R.id.fragmentContainer);
+        findViewById(R.id.btnCancelLoad).setOnClickListener(v -> cancelLoad());
 
         jsonLoader = new JsonLoader(this);
         fragmentController =
@@ -83,39 +94,69 @@ public class ViewerActivity extends AppCompatActivity {
 
     private void loadDataAsync(Bundle savedInstanceState) {
         // 1. Show Spinner, Hide Fragment Container immediately
-        if (loadingSpinner != null) loadingSpinner.setVisibility(View.VISIBLE);
+        if (loadingPanel != null) loadingPanel.setVisibility(View.VISIBLE);
         if (fragmentContainerView != null) fragmentContainerView.setVisibility(View.GONE);
 
+        LoadJob job = new LoadJob(progress -> mainHandler.post(() -> showProgress(progress)));
+        loadJob = job;
+
         executor.execute(
                 () -> {
+                    job.attach(Thread.currentThread());
+
                     // 2. Background Thread: Load Data
-                    String data = jsonLoader.loadJson(getIntent());
+                    ByteBuffer data = jsonLoader.loadJson(getIntent(), job);
+                    if (job.isCancelled()) return;
+
+                    // 3. Background Thread: Parse once (skipped if MainActivity already did)
+                    JsonDataHolder holder = JsonDataHolder.getInstance();
+                    JsonDocument parsedDocument = holder.getDocument();
+                    Exception parseError = jsonLoader.getParseError();
+                    if (data != null && !holder.isParsed()) {
+                        try {
+                            parsedDocument = JsonLoader.parse(data, job);
+                        } catch (JsonParseException e) {
+                            parsedDocument = null;
+                            parseError = e;
+                            holder.setParseError(e);
+                        } catch (InterruptedIOException e) {
+                            return; // Cancelled; the activity is already finishing
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                            parsedDocument = null;
+                            parseError = e;
+                        }
+                        holder.setDocument(parsedDocument);
+                    }
+                    // Clear the interrupt a late cancel may have left on the pooled thread
+                    Thread.interrupted();
 
-                    // 3. Background Thread: Validate Data (Heavy Parsing)
                     Exception validationError = null;
-                    if (data != null) {
-                        String action = getIntent().getAction();
-                        if (Intent.ACTION_VIEW.equals(action)
-                                || Intent.ACTION_SEND.equals(action)) {
-                            validationError = checkJsonValidity(data);
-                        }
+                    String action = getIntent().getAction();
+                    if (Intent.ACTION_VIEW.equals(action) || Intent.ACTION_SEND.equals(action)) {
+                        validationError = parseError;
                     }
 
                     // Capture results for the main thread
-                    String finalData = data;
+                    ByteBuffer finalData = data;
+                    JsonDocument finalDocument = parsedDocument;
                     Exception finalError = validationError;
 
                     // 4. Main Thread: Update UI
                     mainHandler.post(
                             () -> {
+                                if (job.isCancelled()) return;
+                                loadJob = null;
+
                                 // Hide spinner
-                                if (loadingSpinner != null) loadingSpinner.setVisibility(View.GONE);
+                                if (loadingPanel != null) loadingPanel.setVisibility(View.GONE);
                                 if (fragmentContainerView != null)
                                     fragmentContainerView.setVisibility(View.VISIBLE);
 
-                                jsonData = finalData;
+                                source = finalData;
+                                document = finalDocument;
 
-                                if (jsonData == null) {
+                                if (source == null) {
                                     Toast.makeText(
                                                     ViewerActivity.this,
                                                     "No JSON data found",
@@ -128,7 +169,8 @@ public class ViewerActivity extends AppCompatActivity {
                                 if (finalError != null) {
                                     String safeError =
                                             getFastTruncatedText(finalError.getMessage(), 250);
-                                    String safePreview = getFastTruncatedText(jsonData, 2000);
+                                    String safePreview =
+                                            getFastTruncatedText(errorPreview(finalError), 2000);
                                     showErrorDialog(safeError, safePreview);
                                 }
 
@@ -149,30 +191,55 @@ public class ViewerActivity extends AppCompatActivity {
                                 }
 
                                 setupFragmentCallbacks();
+                                if (document != null) buildSearchIndexAsync(document);
                             });
                 });
     }
 
-    /**
-     * Checks if JSON is valid without interacting with UI. Returns the Exception if invalid, or
-     * null if valid.
-     */
-    private Exception checkJsonValidity(String jsonText) {
-        if (jsonText == null || jsonText.isEmpty()) return null;
+    /** Indexes the document for search once the tabs are up; until then searches scan. */
+    private void buildSearchIndexAsync(JsonDocument document) {
+        // The index takes roughly twice the source; beyond an eighth of the heap keep scanning
+        long maxBytes = Runtime.getRuntime().maxMemory() / 8;
+        executor.execute(
+                () -> {
+                    try {
+                        searchIndex = SearchIndex.build(document, maxBytes);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                });
+    }
 
-        try {
-            String trimmed = jsonText.trim();
-            if (trimmed.startsWith("{")) {
-                new JSONObject(trimmed);
-            } else if (trimmed.startsWith("[")) {
-                new JSONArray(trimmed);
-            } else {
-                throw new Exception("Invalid start character");
-            }
-            return null; // Valid
-        } catch (Exception e) {
-            return e; // Invalid
+    /** Phase, percentage, size and rate of the running load, e.g. "Parsing 45% · 12.3 MB". */
+    private void showProgress(LoadJob job) {
+        if (job != loadJob || loadStatus == null) return;
+        int percent = job.getPercent();
+        if (percent >= 0) {
+            loadProgress.setVisibility(View.VISIBLE);
+            loadProgress.setProgress(percent);
+        } else {
+            loadProgress.setVisibility(View.INVISIBLE);
         }
+
+        String phase;
+        switch (job.getPhase()) {
+            case LoadJob.PHASE_VALIDATING: phase = "Validating"; break;
+            case LoadJob.PHASE_PARSING: phase = "Parsing"; break;
+            default: phase = "Reading"; break;
+        }
+        StringBuilder status = new StringBuilder(phase);
+        if (percent >= 0) status.append(' ').append(percent).append('%');
+        status.append(" · ").append(StatsFormat.bytes(job.getBytesDone()));
+        if (job.getBytesPerSecond() > 0) {
+            status.append(" · ").append(StatsFormat.bytes(job.getBytesPerSecond())).append("/s");
+        }
+        loadStatus.setText(status);
+    }
+
+    /** Stops the running load; reading and parsing give up within a few milliseconds. */
+    private void cancelLoad() {
+        if (loadJob != null) loadJob.cancel();
+        finish();
     }
 
     private void showErrorDialog(String errorMessage, String truncatedText) {
@@ -231,6 +298,15 @@ public class ViewerActivity extends AppCompatActivity {
                 .show();
     }
 
+    /** Text around the failing offset when it is known, else the start of the file. */
+    private String errorPreview(Exception error) {
+        if (error instanceof JsonParseException) {
+            long offset = ((JsonParseException) error).getOffset();
+            return JsonLoader.decodeAround(source, offset, 1000);
+        }
+        return JsonLoader.decodePrefix(source, 8 * 1024);
+    }
+
     private String getFastTruncatedText(String text, int maxChars) {
         if (text == null || text.isEmpty()) return "Unknown Error";
         if (text.length() > maxChars) {
@@ -252,6 +328,12 @@ public class ViewerActivity extends AppCompatActivity {
         if (current instanceof PrettyViewFragment) {
             ((PrettyViewFragment) current)
                     .setCounterUpdateCallback(() -> searchNavigator.updateCounter());
+        } else if (current instanceof TreeViewFragment) {
+            ((TreeViewFragment) current)
+                    .setCounterUpdateCallback(() -> searchNavigator.updateCounter());
+        } else if (current instanceof CardViewFragment) {
+            ((CardViewFragment) current)
+                    .setCounterUpdateCallback(() -> searchNavigator.updateCounter());
         }
 
         String query = searchNavigator.getCurrentQuery();
@@ -287,6 +369,7 @@ public class ViewerActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         if (isFinishing()) {
+            if (loadJob != null) loadJob.cancel();
             fragmentController.cleanup();
             jsonLoader.clear();
             executor.shutdownNow(); // Ensure background threads are stopped
@@ -315,6 +398,9 @@ public class ViewerActivity extends AppCompatActivity {
         } else if (id == R.id.action_share) {
             shareJson();
             return true;
+        } else if (id == R.id.action_size_report) {
+            showSizeReport();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -323,7 +409,7 @@ public class ViewerActivity extends AppCompatActivity {
         try {
             ClipboardManager clipboard =
                     (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
-            ClipData clip = ClipData.newPlainText("JSON", jsonData);
+            ClipData clip = ClipData.newPlainText("JSON", getJsonData());
             clipboard.setPrimaryClip(clip);
             Toast.makeText(this, "Copied to clipboard", Toast.LENGTH_SHORT).show();
         } catch (Exception err) {
@@ -334,12 +420,111 @@ public class ViewerActivity extends AppCompatActivity {
     private void shareJson() {
         Intent shareIntent = new Intent(Intent.ACTION_SEND);
         shareIntent.setType("text/plain");
-        shareIntent.putExtra(Intent.EXTRA_TEXT, jsonData);
+        shareIntent.putExtra(Intent.EXTRA_TEXT, getJsonData());
         startActivity(Intent.createChooser(shareIntent, "Share JSON"));
     }
 
+    /** Lists what takes the most room in the document, computed on the worker. */
+    private void showSizeReport() {
+        JsonDocument document = this.document;
+        if (document == null) {
+            Toast.makeText(this, "No parsed JSON to analyze", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Toast.makeText(this, "Analyzing…", Toast.LENGTH_SHORT).show();
+        executor.execute(
+                () -> {
+                    SizeReport report = null;
+                    try {
+                        report = SizeReport.build(document, SIZE_REPORT_ENTRIES);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    SizeReport finalReport = report;
+                    mainHandler.post(
+                            () -> {
+                                if (isFinishing()) return;
+                                if (finalReport == null) {
+                                    Toast.makeText(this, "Could not analyze the JSON",
+                                            Toast.LENGTH_SHORT).show();
+                                } else {
+                                    showSizeReportDialog(finalReport);
+                                }
+                            });
+                });
+    }
+
+    private void showSizeReportDialog(SizeReport report) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        appendHeading(builder, "Largest by size");
+        for (SizeReport.Entry entry : report.largestByBytes) {
+            builder.append(String.format(Locale.US, "%9s %5.1f%%  ",
+                    StatsFormat.bytes(entry.bytes), report.percentOf(entry.bytes)))
+                    .append(entry.path).append('\n');
+        }
+        appendHeading(builder, "\nLargest by item count");
+        for (SizeReport.Entry entry : report.largestByCount) {
+            builder.append(String.format(Locale.US, "%9s items  ", StatsFormat.count(entry.count)))
+                    .append(entry.path).append('\n');
+        }
+        appendHeading(builder, "\nKeys by total size");
+        for (SizeReport.Entry entry : report.largestKeys) {
+            builder.append(String.format(Locale.US, "%5.1f%% %9s  ",
+                    report.percentOf(entry.bytes), StatsFormat.bytes(entry.bytes)))
+                    .append(entry.path)
+                    .append(" ×").append(StatsFormat.count(entry.count)).append('\n');
+        }
+
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.setPadding(50, 30, 50, 30);
+        TextView textView = new TextView(this);
+        textView.setText(builder);
+        textView.setTextSize(12f);
+        textView.setTextColor(0xFFEEEEEE);
+        textView.setTypeface(Typeface.MONOSPACE);
+        textView.setTextIsSelectable(true);
+        scrollView.addView(textView);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Size report · " + StatsFormat.bytes(report.totalBytes))
+                .setView(scrollView)
+                .setPositiveButton("Close", null)
+                .show();
+    }
+
+    private static void appendHeading(SpannableStringBuilder builder, String heading) {
+        int start = builder.length();
+        builder.append(heading).append('\n');
+        builder.setSpan(
+                new ForegroundColorSpan(Color.parseColor("#00BCD4")),
+                start,
+                builder.length(),
+                Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        builder.setSpan(
+                new StyleSpan(Typeface.BOLD),
+                start,
+                builder.length(),
+                Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    /** Raw UTF-8 bytes of the JSON; may be memory mapped, so read it with absolute gets. */
+    public ByteBuffer getSource() {
+        return source;
+    }
+
+    /** The whole JSON as a String. Decodes the source on every call, so use it sparingly. */
     public String getJsonData() {
-        return jsonData;
+        return source != null ? JsonLoader.decode(source) : null;
+    }
+
+    /** The shared parsed document, or null if the data is not valid JSON. */
+    public JsonDocument getDocument() {
+        return document;
+    }
+
+    /** Trigram index of the document, or null while it is built or if it was too large. */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
     }
 
     public String getCurrentSearchQuery() {
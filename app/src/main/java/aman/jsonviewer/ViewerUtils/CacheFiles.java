@@ -0,0 +1,58 @@
+package aman.jsonviewer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/** File naming and size trimming shared by the on-disk caches. */
+final class CacheFiles {
+
+    private CacheFiles() {}
+
+    /** A file-name-safe key for {@code id}. */
+    static String keyOf(String id) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1")
+                    .digest(id.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(id.hashCode()); // Every Android release has SHA-1
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the files ending in {@code suffix} fit in
+     * {@code maxBytes}. An entry's other files (same key, another suffix) go with it. Callers
+     * mark an entry as used by touching its file's modification time.
+     */
+    static void trim(File dir, String suffix, long maxBytes, String... siblingSuffixes) {
+        File[] entries = dir.listFiles((d, name) -> name.endsWith(suffix));
+        if (entries == null) return;
+        long total = 0;
+        for (File file : entries) total += file.length();
+        if (total <= maxBytes) return;
+
+        long[] lastUsed = new long[entries.length];
+        Integer[] order = new Integer[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            lastUsed[i] = entries[i].lastModified(); // Read once; sorting must see stable values
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(lastUsed[a], lastUsed[b]));
+        for (int i = 0; i < order.length && total > maxBytes; i++) {
+            File entry = entries[order[i]];
+            String name = entry.getName();
+            String key = name.substring(0, name.length() - suffix.length());
+            total -= entry.length();
+            entry.delete();
+            for (String sibling : siblingSuffixes) new File(dir, key + sibling).delete();
+        }
+    }
+}
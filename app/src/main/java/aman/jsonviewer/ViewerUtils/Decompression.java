@@ -0,0 +1,85 @@
+package aman.jsonviewer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Recognises gzip, zlib and zip input by its magic bytes. None of them can be mistaken for JSON,
+ * which has to start with whitespace, a BOM, '{' or '['.
+ */
+public final class Decompression {
+
+    public static final int NONE = 0;
+    public static final int GZIP = 1;
+    public static final int ZLIB = 2;
+    public static final int ZIP = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Decompression() {}
+
+    /** Format of a stream starting with {@code b0 b1 b2 b3}; pass -1 for missing bytes. */
+    public static int detect(int b0, int b1, int b2, int b3) {
+        if (b0 == 0x1F && b1 == 0x8B) return GZIP;
+        if (b0 == 'P' && b1 == 'K' && b2 == 3 && b3 == 4) return ZIP;
+        // CMF: deflate with a window of at most 32 KB; the header checksum rules out text
+        if ((b0 & 0x0F) == 8 && (b0 >> 4) <= 7 && b1 >= 0 && (b0 << 8 | b1) % 31 == 0) {
+            return ZLIB;
+        }
+        return NONE;
+    }
+
+    /** Format of the bytes at the buffer's position. */
+    public static int detect(ByteBuffer source) {
+        int at = source.position();
+        int n = source.remaining();
+        return detect(n > 0 ? source.get(at) & 0xFF : -1, n > 1 ? source.get(at + 1) & 0xFF : -1,
+                n > 2 ? source.get(at + 2) & 0xFF : -1, n > 3 ? source.get(at + 3) & 0xFF : -1);
+    }
+
+    /** Format of a stream that supports mark/reset; the stream is left where it was. */
+    public static int detect(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            int b0 = in.read();
+            int b1 = in.read();
+            int b2 = in.read();
+            int b3 = in.read();
+            return detect(b0, b1, b2, b3);
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Wraps {@code in} in a stream that inflates it as it is read. For a zip archive that is the
+     * first file in it.
+     *
+     * @throws IOException if a zip archive holds no files
+     */
+    public static InputStream open(InputStream in, int format) throws IOException {
+        switch (format) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case ZLIB:
+                return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE);
+            case ZIP: {
+                ZipInputStream zip = new ZipInputStream(in);
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (!entry.isDirectory()) return zip;
+                }
+                zip.close();
+                throw new IOException("Zip archive contains no files");
+            }
+            default:
+                return in;
+        }
+    }
+}
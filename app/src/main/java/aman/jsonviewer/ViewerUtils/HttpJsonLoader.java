@@ -0,0 +1,160 @@
+package aman.jsonviewer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+
+/**
+ * Loads JSON over HTTP(S) and keeps valid responses in a small on-disk cache.
+ *
+ * <p>Responses are parsed while they download. Each cached response is stored as its decoded JSON
+ * plus the ETag and Last-Modified validators. The next load of the same URL sends a conditional
+ * request, and on 304 the cached file is memory mapped instead of downloading the body again. The
+ * cache is least-recently-used: entries are touched on every hit and the oldest are deleted once
+ * the directory grows past its byte budget.
+ */
+public class HttpJsonLoader {
+
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    private static final String BODY = ".json";
+    private static final String META = ".meta";
+
+    private final File cacheDir;
+    private final long maxCacheBytes;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    /**
+     * @param cacheDir directory owned by this cache; created if missing
+     * @param maxCacheBytes total size of cached responses to keep
+     */
+    public HttpJsonLoader(File cacheDir, long maxCacheBytes) {
+        this(cacheDir, maxCacheBytes, CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+    }
+
+    /** Same, with the connect and read timeouts in milliseconds. */
+    public HttpJsonLoader(
+            File cacheDir, long maxCacheBytes, int connectTimeoutMs, int readTimeoutMs) {
+        this.cacheDir = cacheDir;
+        this.maxCacheBytes = maxCacheBytes;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * Loads {@code url}, from the cache if the server says it has not changed.
+     *
+     * @throws IOException on network errors and non-2xx responses; invalid JSON is reported in
+     *     the result instead
+     */
+    public LoadResult load(String url, LoadJob job) throws IOException {
+        cacheDir.mkdirs();
+        String key = CacheFiles.keyOf(url);
+        File body = new File(cacheDir, key + BODY);
+        File meta = new File(cacheDir, key + META);
+        Properties cached = readMeta(meta, url);
+        if (cached != null && !body.isFile()) cached = null;
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            conn.setConnectTimeout(connectTimeoutMs);
+            conn.setReadTimeout(readTimeoutMs);
+            // Set explicitly, so the body arrives compressed and is inflated by JsonLoader
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+            conn.setRequestProperty("Accept", "application/json, */*");
+            if (cached != null) {
+                String etag = cached.getProperty("etag");
+                String lastModified = cached.getProperty("lastModified");
+                if (etag != null) conn.setRequestProperty("If-None-Match", etag);
+                if (lastModified != null) {
+                    conn.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+
+            int code = conn.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                long now = System.currentTimeMillis();
+                body.setLastModified(now);
+                meta.setLastModified(now);
+                return JsonLoader.loadFile(body, cacheDir, job);
+            }
+            if (code < 200 || code >= 300) {
+                throw new IOException("HTTP " + code + " " + conn.getResponseMessage());
+            }
+
+            LoadResult result;
+            try (InputStream in = conn.getInputStream()) {
+                result = JsonLoader.loadStream(cacheDir, in, conn.getContentLength(), job);
+            }
+
+            String etag = conn.getHeaderField("ETag");
+            String lastModified = conn.getHeaderField("Last-Modified");
+            if (result.document != null && (etag != null || lastModified != null)) {
+                store(url, key, etag, lastModified, result.source);
+            }
+            return result;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /** Deletes every cached response. */
+    public void clear() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+        for (File file : files) file.delete();
+    }
+
+    private void store(String url, String key, String etag, String lastModified, ByteBuffer source) {
+        if (source.remaining() > maxCacheBytes) return;
+        File body = new File(cacheDir, key + BODY);
+        File meta = new File(cacheDir, key + META);
+        try {
+            File temp = File.createTempFile(key, ".tmp", cacheDir);
+            try (FileOutputStream out = new FileOutputStream(temp);
+                    FileChannel channel = out.getChannel()) {
+                ByteBuffer view = source.duplicate();
+                while (view.hasRemaining()) channel.write(view);
+            }
+            // Body first: a meta file without its body is ignored, the reverse never happens
+            meta.delete();
+            if (!temp.renameTo(body)) {
+                temp.delete();
+                return;
+            }
+            Properties properties = new Properties();
+            properties.setProperty("url", url);
+            if (etag != null) properties.setProperty("etag", etag);
+            if (lastModified != null) properties.setProperty("lastModified", lastModified);
+            try (FileOutputStream out = new FileOutputStream(meta)) {
+                properties.store(out, null);
+            }
+            CacheFiles.trim(cacheDir, BODY, maxCacheBytes, META);
+        } catch (IOException e) {
+            e.printStackTrace();
+            body.delete();
+            meta.delete();
+        }
+    }
+
+    /** Validators of the cached response for {@code url}, or null if there is none. */
+    private static Properties readMeta(File meta, String url) {
+        if (!meta.isFile()) return null;
+        Properties properties = new Properties();
+        try (FileInputStream in = new FileInputStream(meta)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        return url.equals(properties.getProperty("url")) ? properties : null;
+    }
+}
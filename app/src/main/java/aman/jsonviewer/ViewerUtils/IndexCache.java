@@ -0,0 +1,112 @@
+package aman.jsonviewer;
+
+import android.content.Context;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the tape of large parsed files in the cache directory, so reopening the same file maps
+ * the saved index and copies it into place instead of tokenizing the file again.
+ *
+ * <p>An entry is keyed by the file's identity (URI, size and modification time) plus a checksum
+ * of its first and last 64 KB, which catches rewrites that keep the size and timestamp. Indexes
+ * are written on a background thread after the viewer has its document.
+ */
+public class IndexCache {
+
+    /** Smaller files parse in a few milliseconds; saving them is not worth the disk. */
+    private static final int MIN_SOURCE_BYTES = 1024 * 1024;
+    private static final long MAX_CACHE_BYTES = 256L * 1024 * 1024;
+    private static final int FINGERPRINT_BYTES = 64 * 1024;
+    private static final String INDEX = ".tape";
+
+    private static IndexCache instance;
+
+    private final File dir;
+    private final long maxBytes;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    public IndexCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    public static synchronized IndexCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new IndexCache(new File(context.getCacheDir(), "index"), MAX_CACHE_BYTES);
+        }
+        return instance;
+    }
+
+    /**
+     * Key for a source identified by {@code id} (e.g. URI, size and mtime), or null if the source
+     * is too small to be worth caching.
+     */
+    public static String keyOf(String id, ByteBuffer source) {
+        if (source.remaining() < MIN_SOURCE_BYTES) return null;
+        return CacheFiles.keyOf(id + '|' + source.remaining() + '|' + fingerprint(source));
+    }
+
+    /** The saved document for {@code key} over {@code source}, or null if there is none. */
+    public JsonDocument load(String key, ByteBuffer source) {
+        File file = new File(dir, key + INDEX);
+        if (!file.isFile()) return null;
+        try (FileInputStream in = new FileInputStream(file);
+                FileChannel channel = in.getChannel()) {
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            JsonDocument document = JsonDocument.readIndex(source, index);
+            if (document == null) {
+                file.delete(); // Damaged or from an older format
+                return null;
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return document;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /** Saves the index of {@code document} in the background. */
+    public void store(String key, JsonDocument document) {
+        writer.execute(() -> {
+            File file = new File(dir, key + INDEX);
+            if (file.isFile()) return;
+            File temp = null;
+            try {
+                dir.mkdirs();
+                temp = File.createTempFile(key, ".tmp", dir);
+                try (FileOutputStream out = new FileOutputStream(temp);
+                        FileChannel channel = out.getChannel()) {
+                    document.writeIndex(channel);
+                }
+                if (!temp.renameTo(file)) return;
+                CacheFiles.trim(dir, INDEX, maxBytes);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                if (temp != null) temp.delete(); // No-op once renamed
+            }
+        });
+    }
+
+    /** CRC32 of the first and last 64 KB. */
+    private static long fingerprint(ByteBuffer source) {
+        CRC32 crc = new CRC32();
+        byte[] block = new byte[Math.min(FINGERPRINT_BYTES, source.remaining())];
+        ByteBuffer view = source.duplicate();
+        view.get(block);
+        crc.update(block);
+        view.position(source.limit() - block.length);
+        view.get(block);
+        crc.update(block);
+        return crc.getValue();
+    }
+}
@@ -1,66 +1,84 @@
 package aman.jsonviewer;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.StructStat;
 import android.widget.Toast;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 
 public class JsonLoader {
 
     private final Context context;
+    private Exception parseError;
 
     public JsonLoader(Context context) {
         this.context = context;
     }
 
-    public String loadJson(Intent intent) {
+    /** Returns the raw UTF-8 source to show, or null if there is none. */
+    public ByteBuffer loadJson(Intent intent) {
+        return loadJson(intent, null);
+    }
+
+    /**
+     * Same as {@link #loadJson(Intent)}, reporting to {@code job}. Returns null without a message
+     * if the job is cancelled.
+     */
+    public ByteBuffer loadJson(Intent intent, LoadJob job) {
         // 1. Check Singleton (internal navigation)
-        String jsonData = JsonDataHolder.getInstance().getJsonData();
+        ByteBuffer source = JsonDataHolder.getInstance().getSource();
 
         // 2. Check Intent Extras (Legacy/Backup)
-        if (jsonData == null && intent != null) {
-            jsonData = intent.getStringExtra("json_data");
+        if (source == null && intent != null) {
+            String jsonData = intent.getStringExtra("json_data");
             if (jsonData != null) {
-                JsonDataHolder.getInstance().setJsonData(jsonData);
+                source = ByteBuffer.wrap(jsonData.getBytes(StandardCharsets.UTF_8));
+                JsonDataHolder.getInstance().setSource(source);
             }
         }
 
         // 3. Check Intent Data URI (Opened from External App)
-        if (jsonData == null && intent != null && Intent.ACTION_VIEW.equals(intent.getAction())) {
+        if (source == null && intent != null && Intent.ACTION_VIEW.equals(intent.getAction())) {
             Uri uri = intent.getData();
             if (uri != null) {
-                jsonData = loadJsonFromUri(uri);
-                if (jsonData != null) {
-                    JsonDataHolder.getInstance().setJsonData(jsonData);
-                }
+                source = loadJsonFromUri(uri, job);
             }
         }
 
-        return jsonData;
+        return source;
     }
 
-    private String loadJsonFromUri(Uri uri) {
+    private ByteBuffer loadJsonFromUri(Uri uri, LoadJob job) {
         try {
-            InputStream inputStream = context.getContentResolver().openInputStream(uri);
-            if (inputStream == null) {
+            LoadResult result = load(context, uri, job);
+            if (result == null) {
                 Toast.makeText(context, "Cannot open file", Toast.LENGTH_SHORT).show();
                 return null;
             }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            StringBuilder builder = new StringBuilder();
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                builder.append(line).append("\n");
-            }
-            reader.close();
-
-            return builder.toString();
+            JsonDataHolder holder = JsonDataHolder.getInstance();
+            holder.setSource(result.source);
+            holder.setDocument(result.document);
+            holder.setParseError(result.error);
+            parseError = result.error;
+            return result.source;
 
+        } catch (InterruptedIOException e) {
+            return null; // Cancelled by the user
         } catch (Exception e) {
             Toast.makeText(context, "Error reading file: " + e.getMessage(), 
                 Toast.LENGTH_LONG).show();
@@ -68,7 +86,248 @@ public class JsonLoader {
             return null;
         }
     }
-    
+
+    /**
+     * Validates, then builds the document. Invalid input is rejected by {@link JsonValidator}
+     * without allocating a tape, and the error carries the line and column.
+     */
+    public static JsonDocument parse(ByteBuffer source) throws JsonParseException {
+        try {
+            return parse(source, null);
+        } catch (JsonParseException e) {
+            throw e;
+        } catch (IOException e) {
+            // Reading a buffer cannot fail and there is no job to cancel; keep the signature honest
+            throw new JsonParseException(e.getMessage(), 0);
+        }
+    }
+
+    /**
+     * Same as {@link #parse(ByteBuffer)}, with both passes reported to {@code job}.
+     *
+     * @throws InterruptedIOException if the job was cancelled
+     */
+    public static JsonDocument parse(ByteBuffer source, LoadJob job) throws IOException {
+        if (job != null) job.startPhase(LoadJob.PHASE_VALIDATING, source.remaining());
+        JsonValidator.validate(source, job);
+        if (job != null) job.startPhase(LoadJob.PHASE_PARSING, source.remaining());
+        return JsonDocument.parse(source, job);
+    }
+
+    /** Same as {@link #parse(ByteBuffer)}, with invalid input reported in the result. */
+    public static LoadResult parseSource(ByteBuffer source) {
+        try {
+            return new LoadResult(source, parse(source), null);
+        } catch (JsonParseException e) {
+            return new LoadResult(source, null, e);
+        }
+    }
+
+    /**
+     * Same as {@link #parseSource(ByteBuffer)}, reporting to {@code job}.
+     *
+     * @throws InterruptedIOException if the job was cancelled
+     */
+    public static LoadResult parseSource(ByteBuffer source, LoadJob job) throws IOException {
+        try {
+            return new LoadResult(source, parse(source, job), null);
+        } catch (JsonParseException e) {
+            return new LoadResult(source, null, e);
+        }
+    }
+
+    /**
+     * Loads and parses a content or file URI. Anything backed by a real file is memory mapped,
+     * so the bytes stay off the Java heap and are paged in as they are read. Pipes and other
+     * streams go through {@link StreamPipeline}, which parses while the bytes are still arriving.
+     * Compressed files are inflated first, see {@link #loadStream}.
+     *
+     * @return the result, or null if the URI could not be opened
+     */
+    public static LoadResult load(Context context, Uri uri) throws IOException {
+        return load(context, uri, null);
+    }
+
+    /**
+     * Same as {@link #load(Context, Uri)}, reporting to {@code job}.
+     *
+     * @throws InterruptedIOException if the job was cancelled
+     */
+    public static LoadResult load(Context context, Uri uri, LoadJob job) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+        ByteBuffer mapped = null;
+        String indexKey = null;
+        try (ParcelFileDescriptor descriptor = resolver.openFileDescriptor(uri, "r")) {
+            if (descriptor != null) {
+                mapped = map(descriptor);
+                if (mapped != null) indexKey = indexKey(uri, descriptor, mapped);
+            }
+        } catch (IOException | SecurityException | IllegalArgumentException e) {
+            // Providers that only hand out streams end up here
+            e.printStackTrace();
+        }
+        if (mapped != null && Decompression.detect(mapped) == Decompression.NONE) {
+            if (indexKey == null) return parseSource(mapped, job);
+            // Reopening a large file: reuse the tape saved the last time it was parsed
+            IndexCache cache = IndexCache.getInstance(context);
+            JsonDocument saved = cache.load(indexKey, mapped);
+            if (saved != null) return new LoadResult(mapped, saved, null);
+            LoadResult result = parseSource(mapped, job);
+            if (result.document != null) cache.store(indexKey, result.document);
+            return result;
+        }
+
+        InputStream inputStream = resolver.openInputStream(uri);
+        if (inputStream == null) return null;
+        try {
+            return loadStream(context, inputStream, job);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Loads a stream that may be gzip, zlib or zip compressed. Plain JSON is parsed while it
+     * arrives; compressed input is inflated through fixed buffers into a temporary file in the
+     * cache directory, which is then mapped like any other file. Does not close {@code in}.
+     */
+    public static LoadResult loadStream(Context context, InputStream in, LoadJob job)
+            throws IOException {
+        return loadStream(context.getCacheDir(), in, -1, job);
+    }
+
+    /**
+     * Same as {@link #loadStream(Context, InputStream, LoadJob)}, with the directory for inflated
+     * data given directly.
+     *
+     * @param length bytes the stream will deliver, as sent (e.g. Content-Length), or -1
+     */
+    public static LoadResult loadStream(File tempDir, InputStream in, long length, LoadJob job)
+            throws IOException {
+        InputStream buffered = new BufferedInputStream(in, 8 * 1024);
+        int format = Decompression.detect(buffered);
+        if (format == Decompression.NONE) return StreamPipeline.load(buffered, length, job);
+        return parseSource(inflate(tempDir, buffered, format, length, job), job);
+    }
+
+    /** Maps and parses a local file, inflating it first if it is compressed. */
+    public static LoadResult loadFile(File file, File tempDir, LoadJob job) throws IOException {
+        ByteBuffer mapped;
+        try (FileInputStream in = new FileInputStream(file)) {
+            mapped = map(in);
+        }
+        if (mapped != null && Decompression.detect(mapped) == Decompression.NONE) {
+            return parseSource(mapped, job);
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return loadStream(tempDir, in, file.length(), job);
+        }
+    }
+
+    private static ByteBuffer inflate(
+            File tempDir, InputStream in, int format, long length, LoadJob job)
+            throws IOException {
+        if (job != null) {
+            // Progress follows the compressed bytes, which is what the length describes
+            job.startPhase(LoadJob.PHASE_READING, length);
+            in = job.track(in);
+        }
+        File file = File.createTempFile("inflated", ".json", tempDir);
+        try {
+            InputStream inflated = Decompression.open(in, format);
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                byte[] buffer = new byte[64 * 1024];
+                long written = 0;
+                int n;
+                while ((n = inflated.read(buffer)) > 0) {
+                    // Checked as it grows, so a small bomb can't fill the cache directory first
+                    written += n;
+                    if (written > Integer.MAX_VALUE) {
+                        throw new IOException("Decompressed data over 2 GB");
+                    }
+                    out.write(buffer, 0, n);
+                }
+            }
+            try (FileInputStream mappedIn = new FileInputStream(file);
+                    FileChannel channel = mappedIn.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } finally {
+            // Unlinking does not affect the mapping; the space is freed when it is collected
+            file.delete();
+        }
+    }
+
+    /** Identity of a mapped file for {@link IndexCache}: URI, size and modification time. */
+    private static String indexKey(Uri uri, ParcelFileDescriptor descriptor, ByteBuffer mapped) {
+        try {
+            StructStat stat = Os.fstat(descriptor.getFileDescriptor());
+            return IndexCache.keyOf(uri + "|" + stat.st_size + "|" + stat.st_mtime, mapped);
+        } catch (ErrnoException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(ParcelFileDescriptor descriptor) {
+        try (FileInputStream in = new FileInputStream(descriptor.getFileDescriptor())) {
+            return map(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(FileInputStream in) {
+        // The mapping stays valid after the channel and descriptor are closed
+        try (FileChannel channel = in.getChannel()) {
+            long size = channel.size();
+            if (size <= 0 || size > Integer.MAX_VALUE) return null; // Pipe, socket or too big
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Decodes the whole source. Only for actions that really need a String (copy, share). */
+    public static String decode(ByteBuffer source) {
+        return decodePrefix(source, source.remaining());
+    }
+
+    /** Decodes at most {@code maxBytes} from the start of the source, e.g. for error previews. */
+    public static String decodePrefix(ByteBuffer source, int maxBytes) {
+        ByteBuffer view = source.duplicate();
+        if (view.remaining() > maxBytes) view.limit(view.position() + maxBytes);
+        return StandardCharsets.UTF_8.decode(view).toString();
+    }
+
+    /**
+     * Decodes about {@code radius} bytes on each side of {@code offset}, starting on a character
+     * boundary, so an error preview shows the surroundings of the failure.
+     */
+    public static String decodeAround(ByteBuffer source, long offset, int radius) {
+        int base = source.position();
+        int from = (int) Math.max(base, base + offset - radius);
+        int to = (int) Math.min(source.limit(), base + offset + radius);
+        while (from < to && (source.get(from) & 0xC0) == 0x80) from++;
+        ByteBuffer view = source.duplicate();
+        view.limit(to);
+        view.position(from);
+        return StandardCharsets.UTF_8.decode(view).toString();
+    }
+
+    /** True if the source is empty or only whitespace. Stops at the first other byte. */
+    public static boolean isBlank(ByteBuffer source) {
+        for (int i = source.position(), end = source.limit(); i < end; i++) {
+            byte b = source.get(i);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') return false;
+        }
+        return true;
+    }
+
+    /** Error from parsing data loaded by {@link #loadJson(Intent)}, or null if it was valid. */
+    public Exception getParseError() {
+        return parseError;
+    }
+
     public void clear() {
         JsonDataHolder.getInstance().clear();
     }
@@ -0,0 +1,181 @@
+package aman.jsonviewer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * One load of a JSON source, from the first byte read to the finished document.
+ *
+ * <p>The loaders report through it (phase, bytes done, throughput) and poll it for cancellation.
+ * {@link #cancel()} can be called from any thread: it sets a flag the parse loops check every few
+ * thousand tokens and interrupts the worker thread so queue waits end too. It also closes the
+ * stream currently being read so a blocked {@code read()} returns at once; that close runs on a
+ * background thread, since closing a partly read HTTP body drains the socket.
+ */
+public class LoadJob implements ParseProgress {
+
+    public static final int PHASE_READING = 0;
+    public static final int PHASE_VALIDATING = 1;
+    public static final int PHASE_PARSING = 2;
+
+    private static final long REPORT_INTERVAL_NANOS = 100_000_000L; // 10 updates a second
+
+    // Closes cancelled streams; network I/O is not allowed on the main thread
+    private static final Executor closer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "LoadJob-close");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Called on a loading thread, never the main thread, at most every 100 ms. While a stream is
+     * parsed as it arrives, that is the thread reading the stream.
+     */
+    public interface Listener {
+        void onProgress(LoadJob job);
+    }
+
+    private final Listener listener;
+    private volatile boolean cancelled;
+    private volatile Thread worker;
+    private volatile Closeable openStream;
+
+    private volatile int phase = PHASE_READING;
+    private volatile long bytesDone;
+    private volatile long bytesTotal = -1;
+    private volatile long bytesPerSecond;
+    // Shared by the worker and, while streaming, the thread reading the stream
+    private volatile long phaseStartNanos = System.nanoTime();
+    private volatile long lastReportNanos;
+
+    public LoadJob(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Binds the job to the thread doing the work, so {@link #cancel()} can interrupt it. */
+    public void attach(Thread thread) {
+        worker = thread;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        Thread thread = worker;
+        if (thread != null) thread.interrupt();
+        Closeable stream = openStream;
+        if (stream != null) closer.execute(() -> close(stream));
+    }
+
+    private static void close(Closeable stream) {
+        try {
+            stream.close();
+        } catch (IOException | RuntimeException e) {
+            // The worker may be inside read() or closing it too; either way the load is over
+            e.printStackTrace();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Throws if the job was cancelled; for loops that don't go through {@link #onProgress}. */
+    public void checkCancelled() throws InterruptedIOException {
+        if (cancelled) throw new InterruptedIOException("Cancelled");
+    }
+
+    /** Starts a new phase over {@code total} bytes (-1 if unknown). */
+    public void startPhase(int phase, long total) {
+        this.phase = phase;
+        this.bytesTotal = total;
+        this.bytesDone = 0;
+        this.bytesPerSecond = 0;
+        this.phaseStartNanos = System.nanoTime();
+        report(phaseStartNanos);
+    }
+
+    @Override
+    public boolean onProgress(long bytes) {
+        bytesDone = bytes;
+        long now = System.nanoTime();
+        if (now - lastReportNanos >= REPORT_INTERVAL_NANOS) {
+            long elapsed = now - phaseStartNanos;
+            if (elapsed > 0) bytesPerSecond = bytes * 1_000_000_000L / elapsed;
+            report(now);
+        }
+        return !cancelled;
+    }
+
+    /** Wraps a stream so its reads count as progress and a cancel closes it. */
+    public InputStream track(InputStream in) {
+        openStream = in;
+        return new InputStream() {
+            private long count;
+
+            @Override
+            public int read() throws IOException {
+                checkCancelled();
+                int b = in.read();
+                if (b >= 0) onProgress(++count);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkCancelled();
+                int n;
+                try {
+                    n = in.read(b, off, len);
+                } catch (IOException | RuntimeException e) {
+                    // Closing the stream from cancel() surfaces here as a plain read error
+                    checkCancelled();
+                    throw e;
+                }
+                if (n > 0) onProgress(count += n);
+                return n;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return in.available();
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        };
+    }
+
+    private void report(long now) {
+        lastReportNanos = now;
+        if (listener != null && !cancelled) listener.onProgress(this);
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    public long getBytesDone() {
+        return bytesDone;
+    }
+
+    /** Size of the current phase in bytes, or -1 if unknown (e.g. a chunked download). */
+    public long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /** Progress of the current phase, 0-100, or -1 if the size is unknown. */
+    public int getPercent() {
+        long total = bytesTotal;
+        if (total <= 0) return -1;
+        return (int) Math.min(100, bytesDone * 100 / total);
+    }
+}
@@ -0,0 +1,19 @@
+package aman.jsonviewer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Outcome of loading one JSON source: the raw bytes, and either the parsed document or the
+ * reason it is not valid JSON.
+ */
+public class LoadResult {
+    public final ByteBuffer source;
+    public final JsonDocument document;
+    public final JsonParseException error;
+
+    public LoadResult(ByteBuffer source, JsonDocument document, JsonParseException error) {
+        this.source = source;
+        this.document = document;
+        this.error = error;
+    }
+}
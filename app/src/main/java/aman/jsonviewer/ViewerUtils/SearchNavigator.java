@@ -9,6 +9,7 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
+import java.util.Locale;
 
 public class SearchNavigator {
 
@@ -169,18 +170,23 @@ public class SearchNavigator {
         Fragment current = fragmentController.getCurrentFragment();
         int currentIdx = 0;
         int total = 0;
+        boolean searching = false;
+        boolean refining = false;
 
         if (current instanceof TreeViewFragment) {
             TreeViewFragment.TreeAdapter adapter = ((TreeViewFragment) current).getAdapter();
             if (adapter != null) {
                 currentIdx = adapter.getCurrentMatchIndex() + 1;
                 total = adapter.getTotalMatches();
+                searching = adapter.isSearchInProgress();
             }
         } else if (current instanceof CardViewFragment) {
             CardViewFragment.CardAdapter adapter = ((CardViewFragment) current).getAdapter();
             if (adapter != null) {
                 currentIdx = adapter.getCurrentMatchIndex() + 1;
                 total = adapter.getTotalMatches();
+                searching = adapter.isSearchInProgress();
+                refining = adapter.isRefining();
             }
         } else if (current instanceof PrettyViewFragment) {
             PrettyViewFragment frag = (PrettyViewFragment) current;
@@ -189,7 +195,15 @@ public class SearchNavigator {
             if (total == 0) currentIdx = 0;
         }
 
-        searchCounterText.setText(total > 0 ? currentIdx + "/" + total : "0/0");
+        if (refining) {
+            // Re-testing the previous matches: the count can only shrink
+            searchCounterText.setText(String.format(Locale.getDefault(), "%,d …", total));
+        } else if (searching) {
+            // Still scanning: the count can only grow
+            searchCounterText.setText(String.format(Locale.getDefault(), "%,d+ …", total));
+        } else {
+            searchCounterText.setText(total > 0 ? currentIdx + "/" + total : "0/0");
+        }
     }
 
     private void navigateNext() {
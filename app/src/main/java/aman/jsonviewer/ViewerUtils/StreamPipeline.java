@@ -0,0 +1,188 @@
+package aman.jsonviewer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Overlaps reading and parsing for sources that can only be streamed (network, pipes, providers
+ * without a file descriptor).
+ *
+ * <p>A reader thread fills fixed-size chunks and hands them over through a bounded queue while
+ * the calling thread tokenizes and builds the tape, so parsing is finished almost as soon as the
+ * last byte arrives instead of starting after it. The chunks are recycled through a second queue,
+ * which also bounds how far the reader can run ahead.
+ */
+public class StreamPipeline {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNK_COUNT = 8;
+
+    private final InputStream in;
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(CHUNK_COUNT + 1);
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNK_COUNT);
+    private volatile IOException readError;
+
+    private StreamPipeline(InputStream in) {
+        this.in = in;
+        for (int i = 0; i < CHUNK_COUNT; i++) free.add(new Chunk());
+    }
+
+    /**
+     * Reads and parses {@code in} concurrently. Does not close {@code in}.
+     *
+     * @throws IOException if reading fails; invalid JSON is reported in the result instead
+     */
+    public static LoadResult load(InputStream in) throws IOException {
+        return load(in, null);
+    }
+
+    /**
+     * Same as {@link #load(InputStream)}, reporting the bytes read to {@code job}. Cancelling the
+     * job closes {@code in}, which also unblocks a read waiting on the network.
+     *
+     * @throws InterruptedIOException if the job was cancelled
+     */
+    public static LoadResult load(InputStream in, LoadJob job) throws IOException {
+        return load(in, -1, job);
+    }
+
+    /**
+     * Same as {@link #load(InputStream, LoadJob)} for a stream of known length, which sizes the
+     * retained copy up front and gives the job a percentage.
+     *
+     * @param length bytes the stream will deliver, or -1 if unknown
+     */
+    public static LoadResult load(InputStream in, long length, LoadJob job) throws IOException {
+        if (job != null) {
+            job.startPhase(LoadJob.PHASE_READING, length);
+            in = job.track(in);
+        }
+        // Sized before the reader starts; once it runs, only its thread may touch the stream
+        int sizeHint = length > 0 && length < Integer.MAX_VALUE ? (int) length : in.available();
+        StreamPipeline pipeline = new StreamPipeline(in);
+        Thread reader = new Thread(pipeline::readLoop, "json-reader");
+        reader.start();
+
+        // The reader reports the bytes; the parser only has to notice a cancel
+        ParseProgress cancelCheck = job != null ? bytes -> !job.isCancelled() : null;
+        RetainingInputStream input =
+                new RetainingInputStream(pipeline.new QueueInputStream(), sizeHint);
+        try {
+            JsonDocument document = JsonDocument.parse(input, cancelCheck);
+            return new LoadResult(input.toBuffer(), document, null);
+        } catch (JsonParseException e) {
+            // Keep the rest too, so the Raw tab can show the whole input
+            input.drain();
+            ByteBuffer source = input.toBuffer();
+            return new LoadResult(source, null, locate(source, e));
+        } catch (IOException e) {
+            // A cancel closes the stream, which the reader sees as an ordinary read error
+            if (job != null && job.isCancelled()) throw new InterruptedIOException("Cancelled");
+            throw e;
+        } finally {
+            reader.interrupt();
+        }
+    }
+
+    /** The tokenizer only knows the offset; rerun the validator to get line and column. */
+    private static JsonParseException locate(ByteBuffer source, JsonParseException error) {
+        try {
+            JsonValidator.validate(source);
+        } catch (JsonParseException located) {
+            return located;
+        }
+        return error;
+    }
+
+    private void readLoop() {
+        boolean ended = false;
+        try {
+            while (true) {
+                Chunk chunk = free.take();
+                int n = in.read(chunk.data, 0, chunk.data.length);
+                chunk.length = n;
+                filled.put(chunk);
+                if (n < 0) {
+                    ended = true;
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            readError = e;
+        } catch (RuntimeException e) {
+            // Providers and tracked streams can throw these; they must not kill the process
+            readError = new IOException("Read failed", e);
+        } catch (InterruptedException e) {
+            // The parser gave up early; nothing left to hand over
+            ended = true;
+        } finally {
+            // However the reader stops, the parser waiting in take() has to be woken up
+            if (!ended) {
+                if (readError == null) readError = new IOException("Reader stopped");
+                filled.offer(Chunk.END);
+            }
+        }
+    }
+
+    private static class Chunk {
+        static final Chunk END = new Chunk(0);
+
+        final byte[] data;
+        int length;
+        int position;
+
+        Chunk() {
+            this(CHUNK_SIZE);
+        }
+
+        Chunk(int size) {
+            data = new byte[size];
+            length = -1;
+        }
+    }
+
+    /** Consumer side: serves the queued chunks as one stream. */
+    private class QueueInputStream extends InputStream {
+        private Chunk current;
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!advance()) return -1;
+            int n = Math.min(len, current.length - current.position);
+            System.arraycopy(current.data, current.position, b, off, n);
+            current.position += n;
+            return n;
+        }
+
+        private boolean advance() throws IOException {
+            while (!ended && (current == null || current.position == current.length)) {
+                if (current != null) {
+                    current.position = 0;
+                    free.offer(current);
+                }
+                try {
+                    current = filled.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading");
+                }
+                if (current.length < 0) {
+                    ended = true;
+                    if (readError != null) throw readError;
+                }
+            }
+            return !ended;
+        }
+    }
+}
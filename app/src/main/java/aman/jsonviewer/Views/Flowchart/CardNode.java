@@ -8,13 +8,18 @@ public class CardNode {
     public String key;
     public String value;      // Display value (Short/Truncated)
     public String fullValue;  // NEW: Full raw value (For BottomSheet)
+    public JsonDocument document; // Source of fullValue when it is left null
+    public int node = -1;
     public String type;
+    public String stats;      // Subtree badge of a container, e.g. "12 items · 3.4 KB"
     public float x;
     public float y;
     public int level;
     
     public boolean isVisible = true;
 
+    private String typeLine;
+
     // Updated constructor to accept fullValue
     public CardNode(String key, String value, String fullValue, String type, float x, float y, int level) {
         this.key = key;
@@ -27,6 +32,19 @@ public class CardNode {
         this.isVisible = true; 
     }
 
+    /** The BottomSheet text; built from the document on demand so subtrees aren't serialized up front. */
+    public String getFullValue() {
+        if (fullValue != null || document == null || node < 0) return fullValue;
+        if (document.isContainer(node)) return document.toString(node, 0);
+        return document.getValue(node);
+    }
+
+    /** The type, followed by the stats badge for a container; built once, on first draw. */
+    public String getTypeLine() {
+        if (typeLine == null) typeLine = stats != null ? type + " · " + stats : type;
+        return typeLine;
+    }
+
     public float getCenterX(float cardWidth) {
         return x + cardWidth / 2f;
     }
@@ -5,10 +5,9 @@ import android.graphics.Canvas;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.view.View;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -65,6 +64,14 @@ public class FlowChartCanvas extends View
     }
 
     public void performSearch(String query) {
+        performSearch(query, null);
+    }
+
+    /**
+     * Highlights the visible cards matching {@code query}. With an index, cards are only tested
+     * when the index has a candidate in their subtree.
+     */
+    public void performSearch(String query, SearchIndex index) {
         highlightedNodes.clear();
         if (query == null || query.trim().isEmpty()) {
             renderer.setHighlightedNodes(highlightedNodes);
@@ -74,12 +81,19 @@ public class FlowChartCanvas extends View
 
         String lowerQuery = query.toLowerCase();
         CardNode firstMatch = null;
+        int[] candidates = index != null && !hasJsonSyntax(lowerQuery)
+                ? index.candidates(lowerQuery)
+                : null;
 
         for (CardNode node : nodes) {
-            boolean match =
-                    node.key.toLowerCase().contains(lowerQuery)
-                            || (node.fullValue != null
-                                    && node.fullValue.toLowerCase().contains(lowerQuery));
+            boolean match;
+            if (candidates != null && node.node >= 0) {
+                match = matchesIndexed(node, lowerQuery, candidates);
+            } else {
+                match = node.key.toLowerCase().contains(lowerQuery)
+                        || (node.getFullValue() != null
+                                && node.getFullValue().toLowerCase().contains(lowerQuery));
+            }
             if (match && node.isVisible) {
                 highlightedNodes.add(node);
                 if (firstMatch == null) {
@@ -95,6 +109,35 @@ public class FlowChartCanvas extends View
         invalidate();
     }
 
+    /** A container's full value is its JSON text, which a query with syntax chars can span. */
+    private static boolean hasJsonSyntax(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            if ("{}[]:,\"\\".indexOf(query.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Matches the key and full value using the index: without JSON syntax in the query, a
+     * container's text can only contain it inside one of its keys or values.
+     */
+    private static boolean matchesIndexed(CardNode card, String lowerQuery, int[] candidates) {
+        if (card.key.toLowerCase().contains(lowerQuery)) return true;
+        JsonDocument document = card.document;
+        int end = document.getEnd(card.node);
+        int i = Arrays.binarySearch(candidates, card.node);
+        for (i = i >= 0 ? i : -i - 1; i < candidates.length && candidates[i] < end; i++) {
+            int candidate = candidates[i];
+            String key = candidate != card.node ? document.getKey(candidate) : null;
+            String value = document.getValue(candidate);
+            if ((key != null && key.toLowerCase().contains(lowerQuery))
+                    || (value != null && value.toLowerCase().contains(lowerQuery))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void focusOnNode(CardNode node) {
         float screenCenterX = getWidth() / 2f;
         float screenCenterY = getHeight() / 2f;
@@ -112,32 +155,14 @@ public class FlowChartCanvas extends View
         invalidate();
     }
 
-    public void buildFromJSON(JSONObject json) {
+    public void buildFromDocument(JsonDocument document) {
         nodes.clear();
         connections.clear();
         childrenMap.clear();
         collapsedNodes.clear();
         JSONTreeBuilder builder = new JSONTreeBuilder(nodes, connections, childrenMap);
-        try {
-            CardNode rootNode = builder.buildFromJSON(json);
-            initTreeState(rootNode);
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public void buildFromJSONArray(JSONArray jsonArray) {
-        nodes.clear();
-        connections.clear();
-        childrenMap.clear();
-        collapsedNodes.clear();
-        JSONTreeBuilder builder = new JSONTreeBuilder(nodes, connections, childrenMap);
-        try {
-            CardNode rootNode = builder.buildFromJSONArray(jsonArray);
-            initTreeState(rootNode);
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+        CardNode rootNode = builder.buildFromDocument(document);
+        initTreeState(rootNode);
     }
 
     private void initTreeState(CardNode rootNode) {
@@ -169,12 +194,17 @@ public class FlowChartCanvas extends View
         if (!nodes.isEmpty()) markChildrenVisible(nodes.get(0));
     }
 
-    private void markChildrenVisible(CardNode node) {
-        node.isVisible = true;
-        if (collapsedNodes.contains(node)) return;
-        List<CardNode> children = childrenMap.get(node);
-        if (children != null) {
-            for (CardNode child : children) markChildrenVisible(child);
+    private void markChildrenVisible(CardNode root) {
+        ArrayDeque<CardNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            CardNode node = stack.pop();
+            node.isVisible = true;
+            if (collapsedNodes.contains(node)) continue;
+            List<CardNode> children = childrenMap.get(node);
+            if (children != null) {
+                for (CardNode child : children) stack.push(child);
+            }
         }
     }
 
@@ -287,7 +317,7 @@ public class FlowChartCanvas extends View
     @Override
     public void onCardClick(CardNode node) {
         if (clickListener != null) {
-            clickListener.onCardClick(node.key, node.fullValue, node.type);
+            clickListener.onCardClick(node.key, node.getFullValue(), node.type);
         }
     }
 
@@ -179,8 +179,14 @@ public class FlowChartRenderer {
         textPaint.setTextSize(26);
         textPaint.setFakeBoldText(false);
         textPaint.setColor(0xFF888888);
-        float typeWidth = textPaint.measureText(node.type);
-        canvas.drawText(node.type, node.x + (LayoutConstants.CARD_WIDTH - typeWidth) / 2f, 
+        String typeLine = node.getTypeLine();
+        float typeWidth = textPaint.measureText(typeLine);
+        if (typeWidth > maxWidth) {
+            // Shrink a long badge to fit rather than cut its numbers off
+            textPaint.setTextSize(26 * maxWidth / typeWidth);
+            typeWidth = textPaint.measureText(typeLine);
+        }
+        canvas.drawText(typeLine, node.x + (LayoutConstants.CARD_WIDTH - typeWidth) / 2f, 
                        node.y + 68, textPaint);
 
         List<CardNode> children = childrenMap.get(node);
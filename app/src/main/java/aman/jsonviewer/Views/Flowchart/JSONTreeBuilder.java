@@ -1,20 +1,19 @@
 package aman.jsonviewer;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Builds a tree structure from JSON data
+ * Builds a tree structure from the parsed {@link JsonDocument}
  */
 public class JSONTreeBuilder {
     private List<CardNode> nodes;
     private List<Connection> connections;
     private Map<CardNode, List<CardNode>> childrenMap;
+    private JsonDocument document;
+    private final char[] preview = new char[26];
 
     // Safety limit for text preview size to prevent OOM on massive arrays
     private static final int PREVIEW_TEXT_LIMIT = 5000;
@@ -27,167 +26,167 @@ public class JSONTreeBuilder {
         this.childrenMap = childrenMap;
     }
 
-    public CardNode buildFromJSON(JSONObject json) throws JSONException {
-        CardNode rootNode = new CardNode("Root", "Object", json.toString(), "Object", 0, 0, 0);
+    public CardNode buildFromDocument(JsonDocument document) {
+        this.document = document;
+        int root = document.getRoot();
+        String label = document.isObject() ? "Object" : "Array[" + document.getChildCount(root) + "]";
+        String type = document.isObject() ? "Object" : "Array";
+        CardNode rootNode = new CardNode("Root", label, null, type, 0, 0, 0);
+        rootNode.document = document;
+        rootNode.node = root;
+        rootNode.stats = StatsFormat.format(document, root);
         nodes.add(rootNode);
         childrenMap.put(rootNode, new ArrayList<>());
         
-        buildObjectNode(json, rootNode);
+        build(root, rootNode);
         return rootNode;
     }
 
-    public CardNode buildFromJSONArray(JSONArray jsonArray) throws JSONException {
-        CardNode rootNode = new CardNode("Root", "Array[" + jsonArray.length() + "]", jsonArray.toString(), "Array", 0, 0, 0);
-        nodes.add(rootNode);
-        childrenMap.put(rootNode, new ArrayList<>());
-        
-        buildArrayNode(jsonArray, rootNode);
-        return rootNode;
+    /** An open object or array during {@link #build}. */
+    private static final class Frame {
+        final CardNode card;
+        final List<CardNode> children = new ArrayList<>();
+        final boolean isArray;
+        final int count;
+        final int limit; // Arrays show their first 8 items only, to keep the chart performant
+        int value;
+        int index;
+
+        Frame(JsonDocument document, int node, CardNode card) {
+            this.card = card;
+            this.isArray = document.getType(node) == JsonDocument.TYPE_ARRAY;
+            this.count = document.getChildCount(node);
+            this.limit = isArray ? Math.min(count, 8) : count;
+            this.value = document.getFirstChild(node);
+        }
     }
 
-    private void buildObjectNode(JSONObject json, CardNode parent) throws JSONException {
-        Iterator<String> keys = json.keys();
-        List<CardNode> children = new ArrayList<>();
+    /**
+     * Adds the cards under {@code node} in document order. Open containers are kept on an
+     * explicit stack rather than recursed into, so deeply nested input cannot overflow the stack.
+     */
+    private void build(int node, CardNode card) {
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(open(node, card));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.index == frame.limit) {
+                stack.pop();
+                if (frame.count > frame.limit) addMoreNode(frame);
+                continue;
+            }
 
-        while (keys.hasNext()) {
-            String key = keys.next();
-            Object value = json.get(key);
+            int value = frame.value;
+            String key = frame.isArray ? "[" + frame.index + "]" : document.getKey(value);
+            frame.value = document.getNextSibling(value);
+            frame.index++;
 
+            CardNode parent = frame.card;
             String type = getValueType(value);
-            String displayValue = formatValue(value); 
-            String fullValue = getRawValue(value);    
+            String displayValue = formatValue(value);
 
-            CardNode childNode = new CardNode(key, displayValue, fullValue, type, 0, 0, parent.level + 1);
+            CardNode childNode = new CardNode(key, displayValue, null, type, 0, 0, parent.level + 1);
+            childNode.document = document;
+            childNode.node = value;
+            if (document.isContainer(value)) childNode.stats = StatsFormat.format(document, value);
             nodes.add(childNode);
-            children.add(childNode);
+            frame.children.add(childNode);
             childrenMap.put(childNode, new ArrayList<>());
 
             Connection connection = new Connection(parent, childNode);
             connections.add(connection);
 
-            if (value instanceof JSONObject) {
-                buildObjectNode((JSONObject) value, childNode);
-            } else if (value instanceof JSONArray) {
-                buildArrayNode((JSONArray) value, childNode);
-            }
+            if (document.isContainer(value)) stack.push(open(value, childNode));
         }
-
-        childrenMap.put(parent, children);
     }
 
-    private void buildArrayNode(JSONArray jsonArray, CardNode parent) throws JSONException {
-        // Limit visual nodes to 8 to keep the chart performant
-        int maxItems = Math.min(jsonArray.length(), 8);
-        List<CardNode> children = new ArrayList<>();
-
-        for (int i = 0; i < maxItems; i++) {
-            Object value = jsonArray.get(i);
-
-            String type = getValueType(value);
-            String displayValue = formatValue(value);
-            String fullValue = getRawValue(value);
-            String key = "[" + i + "]";
-
-            CardNode childNode = new CardNode(key, displayValue, fullValue, type, 0, 0, parent.level + 1);
-            nodes.add(childNode);
-            children.add(childNode);
-            childrenMap.put(childNode, new ArrayList<>());
-
-            Connection connection = new Connection(parent, childNode);
-            connections.add(connection);
+    private Frame open(int node, CardNode card) {
+        Frame frame = new Frame(document, node, card);
+        childrenMap.put(card, frame.children);
+        return frame;
+    }
 
-            if (value instanceof JSONObject) {
-                buildObjectNode((JSONObject) value, childNode);
-            } else if (value instanceof JSONArray) {
-                buildArrayNode((JSONArray) value, childNode);
+    /** Adds the "+N more" card that lists the array items left out of the chart. */
+    private void addMoreNode(Frame frame) {
+        int length = frame.count;
+        int maxItems = frame.limit;
+        int value = frame.value;
+        int remainingCount = length - maxItems;
+
+        // 1. Build the detailed explanation string for the BottomSheet
+        StringBuilder hiddenContent = new StringBuilder();
+        hiddenContent.append("⚠️ There were too many items to display graphically.\n");
+        hiddenContent.append("Showing indices " + maxItems + " to " + (length - 1) + ":\n\n");
+
+        hiddenContent.append("[\n");
+
+        // Loop through hidden items to build the preview
+        for (int i = maxItems; i < length; i++, value = document.getNextSibling(value)) {
+            // Safety Check: Stop if text gets too huge
+            if (hiddenContent.length() > PREVIEW_TEXT_LIMIT) {
+                hiddenContent.append("\n    ... (and " + (length - i) + " more items)");
+                break;
             }
-        }
 
-        // Handle the "Truncated" items
-        if (jsonArray.length() > maxItems) {
-            int remainingCount = jsonArray.length() - maxItems;
-            
-            // 1. Build the detailed explanation string for the BottomSheet
-            StringBuilder hiddenContent = new StringBuilder();
-            hiddenContent.append("⚠️ There were too many items to display graphically.\n");
-            hiddenContent.append("Showing indices " + maxItems + " to " + (jsonArray.length() - 1) + ":\n\n");
-            
-            hiddenContent.append("[\n");
-            
-            // Loop through hidden items to build the preview
-            for (int i = maxItems; i < jsonArray.length(); i++) {
-                // Safety Check: Stop if text gets too huge
-                if (hiddenContent.length() > PREVIEW_TEXT_LIMIT) {
-                    hiddenContent.append("\n    ... (and " + (jsonArray.length() - i) + " more items)");
-                    break;
-                }
-                
-                try {
-                    Object val = jsonArray.get(i);
-                    hiddenContent.append("    "); // Indent
-                    hiddenContent.append(String.valueOf(val));
-                    
-                    if (i < jsonArray.length() - 1) {
-                        hiddenContent.append(",\n");
-                    }
-                } catch (Exception e) {
-                    hiddenContent.append("    <error reading item>");
-                }
+            hiddenContent.append("    "); // Indent
+            hiddenContent.append(getRawValue(value));
+
+            if (i < length - 1) {
+                hiddenContent.append(",\n");
             }
-            hiddenContent.append("\n]");
-
-            // Correctly formatted constructor call
-            CardNode moreNode = new CardNode(
-                "...",
-                "+" + remainingCount + " more",
-                hiddenContent.toString(), // Pass the detailed preview here
-                "Info",
-                0,
-                0,
-                parent.level + 1
-            );
-            
-            nodes.add(moreNode);
-            children.add(moreNode);
-            childrenMap.put(moreNode, new ArrayList<>());
-
-            Connection connection = new Connection(parent, moreNode);
-            connections.add(connection);
         }
-
-        childrenMap.put(parent, children);
+        hiddenContent.append("\n]");
+
+        CardNode parent = frame.card;
+        CardNode moreNode = new CardNode(
+            "...",
+            "+" + remainingCount + " more",
+            hiddenContent.toString(), // Pass the detailed preview here
+            "Info",
+            0,
+            0,
+            parent.level + 1
+        );
+
+        nodes.add(moreNode);
+        frame.children.add(moreNode);
+        childrenMap.put(moreNode, new ArrayList<>());
+
+        Connection connection = new Connection(parent, moreNode);
+        connections.add(connection);
     }
 
-    private String getValueType(Object value) {
-        if (value instanceof JSONObject) return "Object";
-        if (value instanceof JSONArray) return "Array";
-        if (value instanceof String) return "String";
-        if (value instanceof Number) return "Number";
-        if (value instanceof Boolean) return "Boolean";
-        if (value == JSONObject.NULL) return "Null";
-        return "Unknown";
+    private String getValueType(int node) {
+        switch (document.getType(node)) {
+            case JsonDocument.TYPE_OBJECT: return "Object";
+            case JsonDocument.TYPE_ARRAY: return "Array";
+            case JsonDocument.TYPE_STRING: return "String";
+            case JsonDocument.TYPE_NUMBER: return "Number";
+            case JsonDocument.TYPE_BOOLEAN: return "Boolean";
+            case JsonDocument.TYPE_NULL: return "Null";
+            default: return "Unknown";
+        }
     }
 
-    private String getRawValue(Object value) {
-        if (value == JSONObject.NULL) return "null";
-        return String.valueOf(value);
+    private String getRawValue(int node) {
+        // Containers show their compact JSON, scalars their plain text
+        if (document.isContainer(node)) return document.toString(node, 0);
+        return document.getValue(node);
     }
 
-    private String formatValue(Object value) {
-        if (value instanceof JSONObject) {
-            JSONObject obj = (JSONObject) value;
-            return "{ " + obj.length() + " }";
-        } else if (value instanceof JSONArray) {
-            JSONArray arr = (JSONArray) value;
-            return "[ " + arr.length() + " ]";
-        } else if (value == JSONObject.NULL) {
-            return "null";
+    private String formatValue(int node) {
+        int type = document.getType(node);
+        if (type == JsonDocument.TYPE_OBJECT) {
+            return "{ " + document.getChildCount(node) + " }";
+        } else if (type == JsonDocument.TYPE_ARRAY) {
+            return "[ " + document.getChildCount(node) + " ]";
         } else {
-            String str = value.toString();
-            if (str.length() > 25) {
-                return str.substring(0, 22) + "...";
+            // Decode just enough of the value to know whether it needs truncating
+            int length = document.getValueChars(node, preview, preview.length);
+            if (length > 25) {
+                return new String(preview, 0, 22) + "...";
             }
-            return str;
+            return new String(preview, 0, length);
         }
     }
 }
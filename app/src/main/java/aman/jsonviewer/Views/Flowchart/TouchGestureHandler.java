@@ -255,7 +255,8 @@ public class TouchGestureHandler {
     private CardNode getCardAtPosition(float x, float y) {
         for (int i = nodes.size() - 1; i >= 0; i--) {
             CardNode node = nodes.get(i);
-            if (shouldShowNode(node) && 
+            // Kept up to date by the canvas whenever a node is collapsed or expanded
+            if (node.isVisible && 
                 node.contains(x, y, LayoutConstants.CARD_WIDTH, LayoutConstants.CARD_HEIGHT)) {
                 return node;
             }
@@ -263,30 +264,6 @@ public class TouchGestureHandler {
         return null;
     }
 
-    private boolean shouldShowNode(CardNode node) {
-        // Check if any ancestor is collapsed
-        for (CardNode n : nodes) {
-            if (collapsedNodes.contains(n)) {
-                List<CardNode> children = childrenMap.get(n);
-                if (children != null && isDescendantOf(node, n)) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    private boolean isDescendantOf(CardNode node, CardNode ancestor) {
-        List<CardNode> children = childrenMap.get(ancestor);
-        if (children == null) return false;
-
-        for (CardNode child : children) {
-            if (child == node) return true;
-            if (isDescendantOf(node, child)) return true;
-        }
-        return false;
-    }
-
     public void updateScale(float newScale, float focusX, float focusY) {
         float worldX = (focusX - offsetX) / scale;
         float worldY = (focusY - offsetY) / scale;
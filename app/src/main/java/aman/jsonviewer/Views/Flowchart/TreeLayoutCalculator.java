@@ -1,6 +1,7 @@
 package aman.jsonviewer;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -23,114 +24,144 @@ public class TreeLayoutCalculator {
      * Entry point for layout calculation.
      */
     public void calculateTreeLayout(CardNode root, float startX, float startY) {
-        calculateNodeContour(root);
-        // The recursive method calculates relative positions. 
+        calculateRelativePositions(root);
+        // The contour pass calculates relative positions. 
         // We need to apply the final absolute coordinates.
         applyAbsoluteCoordinates(root, startX, startY);
     }
 
+    /** A node whose children are being laid out by {@link #calculateRelativePositions}. */
+    private static final class Frame {
+        final CardNode node;
+        final List<CardNode> children; // Null if it has none or is collapsed
+        int next;
+        // We accumulate the contours of all children into one "super contour"
+        NodeContour childrenBlockContour;
+        // This tracks the right-most child so we can center the parent later
+        float maxChildX;
+
+        Frame(CardNode node, List<CardNode> children) {
+            this.node = node;
+            this.children = children;
+        }
+    }
+
     /**
-     * Recursive function that calculates relative X positions and returns the 
-     * contour (shape) of the subtree.
+     * Calculates every visible node's X relative to its parent by merging subtree contours
+     * (shapes). Children are finished before their parent in a post-order pass that keeps the
+     * open nodes on an explicit stack, so deep trees cannot overflow the stack.
      */
-    private NodeContour calculateNodeContour(CardNode node) {
-        NodeContour currentContour = new NodeContour();
-        
-        // Base dimensions of this single node (half-width left, half-width right)
-        float halfWidth = LayoutConstants.CARD_WIDTH / 2f;
-        currentContour.addLevel(0, -halfWidth, halfWidth);
+    private void calculateRelativePositions(CardNode root) {
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, visibleChildren(root)));
+        while (true) {
+            Frame frame = stack.peek();
+            if (frame.children != null && frame.next < frame.children.size()) {
+                CardNode child = frame.children.get(frame.next++);
+                stack.push(new Frame(child, visibleChildren(child)));
+                continue;
+            }
+            stack.pop();
+            NodeContour contour = finishContour(frame);
+            Frame parent = stack.peek();
+            if (parent == null) return;
+            addChildContour(parent, parent.children.get(parent.next - 1), contour);
+        }
+    }
 
-        List<CardNode> children = childrenMap.get(node);
-        if (children == null || children.isEmpty() || collapsedNodes.contains(node)) {
-            return currentContour;
+    /** Places the next child of {@code frame} beside the ones placed so far. */
+    private void addChildContour(Frame frame, CardNode child, NodeContour childContour) {
+        if (frame.childrenBlockContour == null) {
+            // First child acts as the anchor at 0
+            frame.childrenBlockContour = childContour;
+            child.x = 0;
+            return;
         }
+        // Calculate minimum shift needed to avoid overlap with the ACCUMULATED block
+        float distance = frame.childrenBlockContour.computeMinDistance(childContour);
 
-        // --- MERGE CHILDREN CONTOURS ---
-        
-        // We accumulate the contours of all children into one "super contour"
-        NodeContour childrenBlockContour = null;
-        
-        // This tracks the right-most edge of the group so we can center the parent later
-        float minChildX = 0;
-        float maxChildX = 0;
-
-        for (CardNode child : children) {
-            NodeContour childContour = calculateNodeContour(child);
-            
-            if (childrenBlockContour == null) {
-                // First child acts as the anchor at 0
-                childrenBlockContour = childContour;
-                child.x = 0; 
-                minChildX = 0;
-                maxChildX = 0;
-            } else {
-                // Calculate minimum shift needed to avoid overlap with the ACCUMULATED block
-                float distance = childrenBlockContour.computeMinDistance(childContour);
-                
-                // Position is simply the necessary distance + spacing
-                // ERROR FIX: Removed "currentChildXOffset +"
-                child.x = distance + LayoutConstants.HORIZONTAL_SPACING;
-                
-                // Merge this child's contour into the block
-                childrenBlockContour.merge(childContour, child.x);
-                
-                maxChildX = child.x;
-            }
+        // Position is simply the necessary distance + spacing
+        child.x = distance + LayoutConstants.HORIZONTAL_SPACING;
+
+        // Merge this child's contour into the block
+        frame.childrenBlockContour.merge(childContour, child.x);
+        frame.maxChildX = child.x;
+    }
+
+    /** Centers the node over its placed children and returns the contour of its subtree. */
+    private NodeContour finishContour(Frame frame) {
+        // Base dimensions of this single node (half-width left, half-width right)
+        float halfWidth = LayoutConstants.CARD_WIDTH / 2f;
+        if (frame.children == null) {
+            return new NodeContour(-halfWidth, halfWidth);
         }
 
         // --- CENTER PARENT OVER CHILDREN ---
-        
+
         // Center point is the average of the first child (0) and the last child
-        float childrenCenter = (minChildX + maxChildX) / 2f;
-        
+        float childrenCenter = frame.maxChildX / 2f;
+
         // We want the parent (at x=0 local) to be over 'childrenCenter'.
         // So we shift all children left so their center aligns with parent's 0.
         float shiftChildrenLeft = -childrenCenter;
 
-        for (CardNode child : children) {
+        for (CardNode child : frame.children) {
             child.x += shiftChildrenLeft;
         }
-        
-        // Finally, create the merged result: Parent (level 0) + Children Block (level 1+)
-        // We shift the children block vertically by 1 unit (logic handled in addLevel or merge)
-        currentContour.appendChildrenBelow(childrenBlockContour, shiftChildrenLeft);
 
-        return currentContour;
+        // Finally, the merged result: Parent (level 0) + Children Block (level 1+)
+        NodeContour contour = frame.childrenBlockContour;
+        contour.pushParent(shiftChildrenLeft, -halfWidth, halfWidth);
+        return contour;
+    }
+
+    /** Children laid out under {@code node}, or null if it has none or is collapsed. */
+    private List<CardNode> visibleChildren(CardNode node) {
+        List<CardNode> children = childrenMap.get(node);
+        if (children == null || children.isEmpty() || collapsedNodes.contains(node)) {
+            return null;
+        }
+        return children;
     }
 
     /**
-     * Converts the calculated relative X coordinates to absolute screen coordinates.
+     * Converts the calculated relative X coordinates to absolute screen coordinates, parents
+     * first.
      */
-    private void applyAbsoluteCoordinates(CardNode node, float absoluteX, float absoluteY) {
-        node.x = absoluteX;
-        node.y = absoluteY;
-
-        List<CardNode> children = childrenMap.get(node);
-        if (children != null && !collapsedNodes.contains(node)) {
+    private void applyAbsoluteCoordinates(CardNode root, float absoluteX, float absoluteY) {
+        root.x = absoluteX;
+        root.y = absoluteY;
+
+        ArrayDeque<CardNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            CardNode node = stack.pop();
+            List<CardNode> children = childrenMap.get(node);
+            if (children == null || collapsedNodes.contains(node)) continue;
             for (CardNode child : children) {
                 // child.x currently holds the offset relative to the parent
-                applyAbsoluteCoordinates(child, absoluteX + child.x, 
-                                         absoluteY + LayoutConstants.VERTICAL_SPACING + LayoutConstants.CARD_HEIGHT);
+                child.x = node.x + child.x;
+                child.y = node.y + LayoutConstants.VERTICAL_SPACING + LayoutConstants.CARD_HEIGHT;
+                stack.push(child);
             }
         }
     }
 
     /**
-     * Helper class to define the shape of a subtree.
-     * Maps Relative Depth -> [LeftBound, RightBound]
+     * Helper class to define the shape of a subtree: the [left, right] bounds of each relative
+     * depth. Levels are stored deepest first and relative to {@code shift}, so putting a parent
+     * on top is an append and moving the whole shape is one addition; deep chains stay linear.
      */
     private static class NodeContour {
-        // Map<RelativeDepth, float[]{minX, maxX}>
-        private final Map<Integer, float[]> bounds = new HashMap<>();
-
-        void addLevel(int depth, float min, float max) {
-            if (!bounds.containsKey(depth)) {
-                bounds.put(depth, new float[]{min, max});
-            } else {
-                float[] val = bounds.get(depth);
-                val[0] = Math.min(val[0], min);
-                val[1] = Math.max(val[1], max);
-            }
+        private float[] left = new float[4];
+        private float[] right = new float[4];
+        private int depth; // Number of levels; level d is at index depth - 1 - d
+        private float shift;
+
+        NodeContour(float min, float max) {
+            left[0] = min;
+            right[0] = max;
+            depth = 1;
         }
 
         /**
@@ -142,45 +173,58 @@ public class TreeLayoutCalculator {
             float maxRequiredShift = 0;
             
             // Check every depth level that exists in both contours
-            for (Map.Entry<Integer, float[]> entry : bounds.entrySet()) {
-                int depth = entry.getKey();
-                if (other.bounds.containsKey(depth)) {
-                    float[] myBounds = entry.getValue();      // [left, right] of Accumulated Block
-                    float[] otherBounds = other.bounds.get(depth); // [left, right] of New Child (centered at 0)
-                    
-                    // We need (other.left + shift) > my.right
-                    // shift > my.right - other.left
-                    
-                    float neededShift = myBounds[1] - otherBounds[0];
-                    if (neededShift > maxRequiredShift) {
-                        maxRequiredShift = neededShift;
-                    }
+            for (int d = 0, n = Math.min(depth, other.depth); d < n; d++) {
+                // We need (other.left + shift) > my.right
+                // shift > my.right - other.left
+                float neededShift = (right[depth - 1 - d] + shift)
+                        - (other.left[other.depth - 1 - d] + other.shift);
+                if (neededShift > maxRequiredShift) {
+                    maxRequiredShift = neededShift;
                 }
             }
             return maxRequiredShift;
         }
 
         /**
-         * Merges another contour into this one, shifting the other by xOffset.
+         * Merges another contour into this one, shifting the other by xOffset. The other one
+         * is consumed: if it is deeper, its arrays are taken over and this one's merged in.
          */
         void merge(NodeContour other, float xOffset) {
-            for (Map.Entry<Integer, float[]> entry : other.bounds.entrySet()) {
-                int depth = entry.getKey();
-                float[] val = entry.getValue();
-                addLevel(depth, val[0] + xOffset, val[1] + xOffset);
+            float[] smallLeft = other.left;
+            float[] smallRight = other.right;
+            int smallDepth = other.depth;
+            float smallShift = other.shift + xOffset;
+            if (other.depth > depth) {
+                smallLeft = left;
+                smallRight = right;
+                smallDepth = depth;
+                smallShift = shift;
+                left = other.left;
+                right = other.right;
+                depth = other.depth;
+                shift = other.shift + xOffset;
+            }
+            for (int d = 0; d < smallDepth; d++) {
+                int i = depth - 1 - d;
+                int j = smallDepth - 1 - d;
+                left[i] = Math.min(left[i], smallLeft[j] + smallShift - shift);
+                right[i] = Math.max(right[i], smallRight[j] + smallShift - shift);
             }
         }
 
         /**
-         * Adds a children-block contour below the current (root) level.
+         * Turns this children-block contour into its parent's: shifts it by xOffset and one
+         * level down, and puts the parent's bounds at level 0.
          */
-        void appendChildrenBelow(NodeContour childrenContour, float xOffset) {
-            for (Map.Entry<Integer, float[]> entry : childrenContour.bounds.entrySet()) {
-                int depth = entry.getKey();
-                float[] val = entry.getValue();
-                // Depth + 1 because these are children
-                addLevel(depth + 1, val[0] + xOffset, val[1] + xOffset);
+        void pushParent(float xOffset, float min, float max) {
+            shift += xOffset;
+            if (depth == left.length) {
+                left = Arrays.copyOf(left, depth * 2);
+                right = Arrays.copyOf(right, depth * 2);
             }
+            left[depth] = min - shift;
+            right[depth] = max - shift;
+            depth++;
         }
     }
 }
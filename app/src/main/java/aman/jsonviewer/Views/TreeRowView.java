@@ -0,0 +1,361 @@
+package aman.jsonviewer;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * One row of the tree view, drawn directly: indentation guides, the expand or leaf icon and the
+ * "key: value" text with search highlights.
+ *
+ * <p>Paints, icons and metrics live in a {@link Style} shared by every row, and the adapter
+ * decodes the text straight into the row's char buffer, so binding and drawing allocate nothing.
+ * Text wider than the row scrolls sideways on drag while the guides stay put. Screen readers get
+ * the row text and its expanded state, built only when they ask for it.
+ */
+public class TreeRowView extends View {
+
+    public static final int ICON_PLUS = 0;
+    public static final int ICON_MINUS = 1;
+    public static final int ICON_LEAF = 2;
+
+    /** Longest key and value preview drawn; longer ones end in an ellipsis. */
+    public static final int MAX_KEY_CHARS = 256;
+    public static final int MAX_VALUE_CHARS = 256;
+
+    /**
+     * Room for a key, the separator, a value preview with an ellipsis at either end, and a
+     * container's stats badge after two spaces.
+     */
+    public static final int MAX_CHARS =
+            MAX_KEY_CHARS + MAX_VALUE_CHARS + 4 + 2 + StatsFormat.MAX_CHARS;
+
+    private static final int KEY_COLOR = 0xFF00BCD4;
+    private static final int TEXT_COLOR = 0xFFFFFFFF;
+    private static final int BADGE_COLOR = 0xFF888888;
+    private static final int MAX_HIGHLIGHTS = 16;
+
+    /** Paints, icons and metrics shared by all rows of one list. */
+    public static final class Style {
+        final int indentPx;
+        final float iconSize;
+        final float iconTop;
+        final float textLeft;   // From the start of the icon
+        final float endPadding;
+        final float lineY;      // Where the connector meets the icon
+        final float curveRadius;
+        final float baseline;
+        final float textTop;
+        final float textBottom;
+        final int height;
+        final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint highlightPaint = new Paint();
+        final Drawable plus;
+        final Drawable minus;
+        final Drawable leaf;
+        final int background;
+
+        public Style(Context context, int indentDp) {
+            float density = context.getResources().getDisplayMetrics().density;
+            indentPx = (int) (indentDp * density);
+            iconSize = 20 * density;
+            iconTop = 3 * density;
+            textLeft = 28 * density; // 20dp icon and 8dp margin
+            endPadding = 16 * density;
+            lineY = 13 * density;
+            curveRadius = 10 * density;
+
+            linePaint.setColor(0xFF444444);
+            linePaint.setStyle(Paint.Style.STROKE);
+            linePaint.setStrokeWidth(3f);
+            textPaint.setTypeface(Typeface.MONOSPACE);
+            textPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14,
+                    context.getResources().getDisplayMetrics()));
+            highlightPaint.setColor(0xFFFFD54F);
+
+            Paint.FontMetrics metrics = textPaint.getFontMetrics();
+            float paddingTop = 2 * density;
+            baseline = paddingTop - metrics.ascent;
+            textTop = baseline + metrics.ascent;
+            textBottom = baseline + metrics.descent;
+            height = (int) Math.ceil(textBottom + 8 * density);
+
+            plus = context.getDrawable(R.drawable.ic_tree_plus);
+            minus = context.getDrawable(R.drawable.ic_tree_minus);
+            leaf = context.getDrawable(R.drawable.ic_tree_arrow);
+            TypedValue value = new TypedValue();
+            context.getTheme().resolveAttribute(android.R.attr.selectableItemBackground, value, true);
+            background = value.resourceId;
+        }
+    }
+
+    private final Style style;
+    private final GestureDetector gestures;
+    private final Path path = new Path();
+    private final char[] text = new char[MAX_CHARS + 1];
+    private final float[] highlights = new float[MAX_HIGHLIGHTS * 2]; // Start and end x
+    private boolean[] guides = new boolean[16];
+
+    private int depth;
+    private boolean lastChild;
+    private int icon;
+    private boolean parentLine;
+    private int keyLength;
+    private int valueEnd;
+    private int length;
+    private int valueColor;
+    private int highlightCount;
+    private float keyWidth;
+    private float separatorWidth;
+    private float valueRight;
+    private float textWidth;
+    private boolean dragging;
+
+    public TreeRowView(Context context, Style style) {
+        super(context);
+        this.style = style;
+        if (style.background != 0) setBackgroundResource(style.background);
+        gestures = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public void onShowPress(MotionEvent e) {
+                drawableHotspotChanged(e.getX(), e.getY());
+                setPressed(true);
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                performClick();
+                return true;
+            }
+
+            @Override
+            public void onLongPress(MotionEvent e) {
+                performLongClick();
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float dx, float dy) {
+                if (!dragging) {
+                    if (Math.abs(dx) <= Math.abs(dy) || maxScroll() == 0) return false;
+                    dragging = true;
+                    setPressed(false);
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                scrollTo(Math.max(0, Math.min(maxScroll(), getScrollX() + (int) dx)), 0);
+                return true;
+            }
+        });
+    }
+
+    /** Guide array for {@link TreeNodeStore#verticalLines}, holding at least {@code depth}. */
+    boolean[] guides(int depth) {
+        if (guides.length < depth) guides = new boolean[Math.max(depth, guides.length * 2)];
+        return guides;
+    }
+
+    /** Buffer the adapter writes the row text into, {@link #MAX_CHARS} chars at most. */
+    char[] textBuffer() {
+        return text;
+    }
+
+    /** Sets the tree part of the row; the guides must already be filled for {@code depth}. */
+    void setRow(int depth, boolean lastChild, int icon, boolean parentLine) {
+        this.depth = depth;
+        this.lastChild = lastChild;
+        this.icon = icon;
+        this.parentLine = parentLine;
+    }
+
+    /**
+     * Sets the text written into the buffer: the first {@code keyLength} chars are the key (0 for
+     * none, then no separator follows) and the rest the value.
+     *
+     * @param lowerQuery lower-case search query to highlight, or null
+     */
+    void setText(int keyLength, int length, int valueColor, char[] lowerQuery) {
+        setText(keyLength, length, length, valueColor, lowerQuery);
+    }
+
+    /**
+     * Same as {@link #setText(int, int, int, char[])}, with the chars from {@code valueEnd} to
+     * {@code length} drawn dimmed as a badge after the value, and never highlighted.
+     */
+    void setText(int keyLength, int valueEnd, int length, int valueColor, char[] lowerQuery) {
+        for (int i = 0; i < length; i++) {
+            if (text[i] < ' ') text[i] = ' '; // One line per row
+        }
+        this.keyLength = keyLength;
+        this.valueEnd = valueEnd;
+        this.length = length;
+        this.valueColor = valueColor;
+        Paint paint = style.textPaint;
+        keyWidth = keyLength > 0 ? paint.measureText(text, 0, keyLength) : 0;
+        separatorWidth = keyLength > 0 ? paint.measureText(text, keyLength, 2) : 0;
+        valueRight = paint.measureText(text, 0, valueEnd);
+        textWidth = valueEnd < length ? paint.measureText(text, 0, length) : valueRight;
+
+        highlightCount = 0;
+        if (lowerQuery != null && lowerQuery.length > 0) {
+            int n = lowerQuery.length;
+            for (int i = 0; i + n <= valueEnd && highlightCount < MAX_HIGHLIGHTS; ) {
+                if (regionMatches(i, lowerQuery)) {
+                    highlights[highlightCount * 2] = paint.measureText(text, 0, i);
+                    highlights[highlightCount * 2 + 1] = paint.measureText(text, 0, i + n);
+                    highlightCount++;
+                    i += n;
+                } else {
+                    i++;
+                }
+            }
+        }
+        dragging = false;
+        scrollTo(0, 0);
+        invalidate();
+    }
+
+    /** Replaces the end of a text that did not fit with an ellipsis. */
+    static void ellipsize(char[] text, int length) {
+        text[length - 1] = '…';
+    }
+
+    /** The row as read aloud: its text, then whether a container is expanded. */
+    private String accessibilityText() {
+        String state = icon == ICON_MINUS ? ", expanded" : icon == ICON_PLUS ? ", collapsed" : "";
+        return new String(text, 0, length) + state;
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        info.setText(accessibilityText());
+        if (isClickable()) {
+            String label = icon == ICON_MINUS ? "Collapse"
+                    : icon == ICON_PLUS ? "Expand"
+                    : "Show value";
+            info.addAction(new AccessibilityNodeInfo.AccessibilityAction(
+                    AccessibilityNodeInfo.ACTION_CLICK, label));
+        }
+    }
+
+    @Override
+    public void onPopulateAccessibilityEvent(AccessibilityEvent event) {
+        super.onPopulateAccessibilityEvent(event);
+        event.getText().add(accessibilityText());
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                ? (int) Math.ceil(contentRight())
+                : MeasureSpec.getSize(widthMeasureSpec);
+        setMeasuredDimension(width, style.height);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = gestures.onTouchEvent(event);
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            setPressed(false);
+            dragging = false;
+        }
+        return handled;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int height = getHeight();
+        float scroll = getScrollX();
+        int step = style.indentPx;
+        Paint linePaint = style.linePaint;
+
+        // Guides stay in place while the text scrolls
+        for (int i = 0; i < depth - 1; i++) {
+            if (guides[i]) {
+                float x = scroll + i * step + step / 2f;
+                canvas.drawLine(x, 0, x, height, linePaint);
+            }
+        }
+        float indent = depth * step;
+        if (depth > 0) {
+            float x = scroll + (depth - 1) * step + step / 2f;
+            float right = scroll + indent;
+            if (!lastChild) canvas.drawLine(x, 0, x, height, linePaint);
+            path.reset();
+            path.moveTo(x, lastChild ? 0 : style.lineY - style.curveRadius);
+            path.lineTo(x, style.lineY - style.curveRadius);
+            path.quadTo(x, style.lineY, x + style.curveRadius, style.lineY);
+            path.lineTo(right, style.lineY);
+            canvas.drawPath(path, linePaint);
+        }
+
+        canvas.save();
+        canvas.clipRect(scroll + indent, 0, scroll + getWidth(), height);
+        float iconCenter = indent + style.iconSize / 2f;
+        if (parentLine) {
+            canvas.drawLine(iconCenter, style.lineY, iconCenter, height, linePaint);
+        } else if (icon == ICON_LEAF) {
+            canvas.drawLine(indent, style.lineY, iconCenter, style.lineY, linePaint);
+        }
+        Drawable drawable =
+                icon == ICON_PLUS ? style.plus : icon == ICON_MINUS ? style.minus : style.leaf;
+        if (drawable != null) {
+            drawable.setBounds((int) indent, (int) style.iconTop,
+                    (int) (indent + style.iconSize), (int) (style.iconTop + style.iconSize));
+            drawable.draw(canvas);
+        }
+
+        float x = indent + style.textLeft;
+        for (int i = 0; i < highlightCount; i++) {
+            canvas.drawRect(x + highlights[i * 2], style.textTop,
+                    x + highlights[i * 2 + 1], style.textBottom, style.highlightPaint);
+        }
+        Paint paint = style.textPaint;
+        float baseline = style.baseline;
+        if (keyLength > 0) {
+            paint.setColor(KEY_COLOR);
+            canvas.drawText(text, 0, keyLength, x, baseline, paint);
+            paint.setColor(TEXT_COLOR);
+            canvas.drawText(text, keyLength, 2, x + keyWidth, baseline, paint);
+        }
+        int valueStart = keyLength > 0 ? keyLength + 2 : 0;
+        paint.setColor(valueColor);
+        canvas.drawText(text, valueStart, valueEnd - valueStart,
+                x + keyWidth + separatorWidth, baseline, paint);
+        if (valueEnd < length) {
+            paint.setColor(BADGE_COLOR);
+            canvas.drawText(text, valueEnd, length - valueEnd, x + valueRight, baseline, paint);
+        }
+        canvas.restore();
+    }
+
+    private float contentRight() {
+        return depth * style.indentPx + style.textLeft + textWidth + style.endPadding;
+    }
+
+    private int maxScroll() {
+        return Math.max(0, (int) Math.ceil(contentRight()) - getWidth());
+    }
+
+    private boolean regionMatches(int offset, char[] lowerQuery) {
+        for (int i = 0; i < lowerQuery.length; i++) {
+            if (Character.toLowerCase(text[offset + i]) != lowerQuery[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,142 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class CardPagesTest {
+
+    // Some arrays run over several pages, and some chains are deeper than the cursor's initial
+    // stack, so checkpoints are taken at many depths
+    private static final RandomJson DOCUMENTS =
+            new RandomJson().longArrays(200, 300, 450, 600).deepChains(10, 39);
+
+    /** Path and node of every scalar in document order, built by a plain recursive walk. */
+    private static void flatten(JsonDocument document, int node, String path,
+            List<String> paths, List<Integer> nodes) {
+        if (!document.isContainer(node)) {
+            paths.add(path);
+            nodes.add(node);
+            return;
+        }
+        boolean array = document.getType(node) == JsonDocument.TYPE_ARRAY;
+        int index = 0;
+        for (int child = document.getFirstChild(node); child < document.getEnd(node);
+                child = document.getNextSibling(child), index++) {
+            String childPath = array
+                    ? path + "[" + index + "]"
+                    : (path.isEmpty() ? "" : path + ".") + document.getKey(child);
+            flatten(document, child, childPath, paths, nodes);
+        }
+    }
+
+    @Test
+    public void everyCardMatchesTheFlattenedDocument() throws IOException {
+        Random random = new Random(17);
+        int multiPage = 0;
+        for (int i = 0; i < 150; i++) {
+            JsonDocument document = JsonDocument.parse(DOCUMENTS.next(random));
+            List<String> paths = new ArrayList<>();
+            List<Integer> nodes = new ArrayList<>();
+            flatten(document, document.getRoot(), "", paths, nodes);
+
+            CardPages pages = CardPages.build(document);
+            assertEquals(paths.size(), pages.size());
+            if (pages.size() > CardPages.PAGE_SIZE) multiPage++;
+            // In order, then in random order so pages are rebuilt after the cache drops them
+            for (int position = 0; position < pages.size(); position++) {
+                checkCard(document, pages, position, paths, nodes);
+            }
+            for (int k = 0; k < pages.size(); k++) {
+                checkCard(document, pages, random.nextInt(pages.size()), paths, nodes);
+            }
+        }
+        assertTrue(multiPage > 20);
+    }
+
+    private static void checkCard(JsonDocument document, CardPages pages, int position,
+            List<String> paths, List<Integer> nodes) {
+        CardViewFragment.CardItem card = pages.get(position);
+        assertEquals("Card " + position, paths.get(position), card.path.toString());
+        assertEquals((int) nodes.get(position), card.node);
+        assertEquals(CardPages.typeName(document.getType(card.node)), card.type);
+    }
+
+    @Test
+    public void cursorAtSeeksFromCheckpointsOrAnEarlierCursor() throws IOException {
+        Random random = new Random(23);
+        for (int i = 0; i < 100; i++) {
+            JsonDocument document = JsonDocument.parse(DOCUMENTS.next(random));
+            List<String> paths = new ArrayList<>();
+            List<Integer> nodes = new ArrayList<>();
+            flatten(document, document.getRoot(), "", paths, nodes);
+            CardPages pages = CardPages.build(document);
+            if (pages.size() == 0) continue;
+
+            // Ascending positions reuse the cursor within a page; a jump back restores one
+            CardPages.Cursor cursor = null;
+            for (int k = 0; k < 200; k++) {
+                int position = random.nextInt(4) == 0
+                        ? random.nextInt(pages.size())
+                        : Math.min(pages.size() - 1,
+                                (cursor == null ? 0 : cursor.position()) + random.nextInt(40));
+                cursor = pages.cursorAt(position, cursor);
+                assertEquals(position, cursor.position());
+                assertEquals((int) nodes.get(position), cursor.node());
+                assertEquals(paths.get(position), cursor.path().toString());
+                assertEquals(paths.get(position), joinSegments(document, cursor));
+            }
+        }
+    }
+
+    /** The path as the filter sees it, from the cursor's segments instead of a CardPath. */
+    private static String joinSegments(JsonDocument document, CardPages.Cursor cursor) {
+        StringBuilder path = new StringBuilder();
+        for (int level = 0; level < cursor.segmentCount(); level++) {
+            int index = cursor.segmentIndex(level);
+            if (index >= 0) {
+                path.append('[').append(index).append(']');
+            } else {
+                if (path.length() > 0) path.append('.');
+                path.append(document.getKey(cursor.segmentNode(level)));
+            }
+        }
+        return path.toString();
+    }
+
+    @Test
+    public void pagesDroppedFromTheCacheAreRebuilt() throws IOException {
+        // 40 nested records of 100 cards: 16 pages, twice what the cache keeps
+        StringBuilder json = new StringBuilder("{\"records\":[");
+        for (int r = 0; r < 40; r++) {
+            json.append(r == 0 ? "" : ",").append("{\"id\":").append(r).append(",\"tags\":[");
+            for (int t = 0; t < 99; t++) {
+                json.append(t == 0 ? "" : ",").append("{\"t\":").append(t).append('}');
+            }
+            json.append("]}");
+        }
+        JsonDocument document = JsonDocument.parse(json.append("]}").toString());
+        List<String> paths = new ArrayList<>();
+        List<Integer> nodes = new ArrayList<>();
+        flatten(document, document.getRoot(), "", paths, nodes);
+        CardPages pages = CardPages.build(document);
+        assertEquals(4000, pages.size());
+        assertEquals("records[39].tags[98].t", pages.get(3999).path.toString());
+
+        Random random = new Random(29);
+        for (int k = 0; k < 5000; k++) {
+            checkCard(document, pages, random.nextInt(pages.size()), paths, nodes);
+        }
+    }
+
+    @Test
+    public void emptyContainersHaveNoCards() throws IOException {
+        JsonDocument document = JsonDocument.parse("{\"a\":[],\"b\":{\"c\":{}},\"d\":[[]]}");
+        assertEquals(0, CardPages.build(document).size());
+    }
+}
@@ -0,0 +1,172 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class TreeNodeStoreTest {
+
+    // Long arrays around the bucket thresholds: one group, one level of buckets, two levels
+    private static final RandomJson DOCUMENTS = new RandomJson().longArrays(
+            TreeNodeStore.MAX_GROUP, TreeNodeStore.MAX_GROUP + 1, 2500, 12_345);
+
+    /** The rows on screen, found by walking the expanded rows instead of the Fenwick trees. */
+    private static int[] flatten(TreeNodeStore store) {
+        int[] rows = new int[16];
+        int count = 0;
+        int[] stack = new int[16];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int row = stack[--stackSize];
+            if (count == rows.length) rows = Arrays.copyOf(rows, count * 2);
+            rows[count++] = row;
+            if (!store.isExpanded(row) || store.firstChild(row) == TreeNodeStore.NONE) continue;
+            int n = store.childCount(row);
+            if (stackSize + n > stack.length) stack = Arrays.copyOf(stack, stackSize + n + 16);
+            int first = store.firstChild(row);
+            for (int child = first + n - 1; child >= first; child--) stack[stackSize++] = child;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /** Element {@code index} of an array, by walking its children. */
+    private static int element(JsonDocument document, int array, int index) {
+        int child = document.getFirstChild(array);
+        for (int i = 0; i < index; i++) child = document.getNextSibling(child);
+        return child;
+    }
+
+    /** The document array a row's elements or buckets come from. */
+    private static int arrayOf(TreeNodeStore store, int row) {
+        while (store.isBucket(row)) row = store.parent(row);
+        return store.node(row);
+    }
+
+    private static void check(JsonDocument document, TreeNodeStore store) {
+        int[] rows = flatten(store);
+        assertEquals(rows.length, store.visibleCount());
+        for (int position = 0; position < rows.length; position++) {
+            int row = rows[position];
+            assertEquals(row, store.rowAt(position));
+            assertEquals(position, store.positionOf(row));
+        }
+        // A row's subtree is the rows after it that are deeper, up to the next one that is not
+        for (int position = 0; position < rows.length; position++) {
+            int end = position + 1;
+            while (end < rows.length && store.depth(rows[end]) > store.depth(rows[position])) {
+                end++;
+            }
+            assertEquals(end - position, store.visibleSize(rows[position]));
+        }
+        for (int row : rows) checkBuckets(document, store, row);
+    }
+
+    /** Children of an expanded array or bucket cover its elements in order, with their ids. */
+    private static void checkBuckets(JsonDocument document, TreeNodeStore store, int row) {
+        if (!store.isExpanded(row) || store.firstChild(row) == TreeNodeStore.NONE) return;
+        if (store.type(row) == JsonDocument.TYPE_OBJECT) return;
+        int array = arrayOf(store, row);
+        int start = store.isBucket(row) ? store.bucketStart(row) : 0;
+        int length = store.isBucket(row) ? store.bucketSize(row) : document.getChildCount(array);
+        int covered = 0;
+        int element = element(document, array, start);
+        int first = store.firstChild(row);
+        for (int child = first; child != TreeNodeStore.NONE; child = store.nextSibling(child)) {
+            int index = start + covered;
+            assertEquals(element, store.node(child));
+            int elements = 1;
+            if (store.isBucket(child)) {
+                assertEquals(index, store.bucketStart(child));
+                elements = store.bucketSize(child);
+            } else {
+                assertEquals(index, store.arrayIndex(child));
+            }
+            covered += elements;
+            for (int i = 0; i < elements && covered < length; i++) {
+                element = document.getNextSibling(element);
+            }
+        }
+        assertEquals(length, covered);
+        assertTrue(store.childCount(row) <= TreeNodeStore.MAX_GROUP);
+    }
+
+    @Test
+    public void positionsMatchTheFlattenedRows() throws IOException {
+        Random random = new Random(13);
+        for (int i = 0; i < 60; i++) {
+            JsonDocument document = JsonDocument.parse(DOCUMENTS.next(random));
+            TreeNodeStore store = new TreeNodeStore(document);
+            check(document, store);
+            for (int step = 0; step < 40; step++) {
+                int position = random.nextInt(store.visibleCount());
+                int row = store.rowAt(position);
+                if (!store.isContainer(row)) continue;
+                int before = store.visibleCount();
+                int change;
+                int kind = random.nextInt(6);
+                if (kind == 0) {
+                    change = store.expandTo(row, random.nextBoolean() ? 0 : random.nextInt(3) + 1);
+                } else if (kind == 1 && store.visibleCount() < 20_000) {
+                    change = store.expandTo(row, Integer.MAX_VALUE);
+                } else {
+                    change = store.setExpanded(row, !store.isExpanded(row));
+                }
+                assertEquals(store.visibleCount() - before, change);
+                check(document, store);
+            }
+        }
+    }
+
+    @Test
+    public void collapsedRowsKeepTheirStateUnderAHiddenParent() throws IOException {
+        JsonDocument document = JsonDocument.parse("{\"a\":{\"b\":[1,2,3]},\"c\":4}");
+        TreeNodeStore store = new TreeNodeStore(document);
+        store.setExpanded(0, true);
+        int a = store.firstChild(0);
+        store.setExpanded(a, true);
+        int b = store.firstChild(a);
+        store.setExpanded(b, true);
+        assertEquals(7, store.visibleCount());
+
+        assertEquals(-4, store.setExpanded(a, false));
+        // Opening a row under a collapsed one changes nothing on screen
+        assertEquals(0, store.setExpanded(b, false));
+        assertEquals(0, store.setExpanded(b, true));
+        assertEquals(4, store.setExpanded(a, true));
+        check(document, store);
+
+        assertEquals(-6, store.expandTo(0, 0));
+        assertEquals(1, store.visibleCount());
+        assertEquals(6, store.expandTo(0, Integer.MAX_VALUE));
+        check(document, store);
+    }
+
+    @Test
+    public void longArraysSplitIntoBuckets() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 12_345; i++) json.append(i == 0 ? "" : ",").append(i);
+        JsonDocument document = JsonDocument.parse(json.append(']').toString());
+        TreeNodeStore store = new TreeNodeStore(document);
+        store.setExpanded(0, true);
+        // 12,345 elements: two buckets of 10,000 and under, each split into buckets of 100
+        assertEquals(2, store.childCount(0));
+        int second = store.nextSibling(store.firstChild(0));
+        assertEquals(10_000, store.bucketStart(second));
+        assertEquals(2345, store.bucketSize(second));
+        assertEquals(24, store.childCount(second));
+        store.setExpanded(second, true);
+        int last = store.firstChild(second) + store.childCount(second) - 1;
+        assertEquals(12_300, store.bucketStart(last));
+        assertEquals(45, store.bucketSize(last));
+        store.setExpanded(last, true);
+        int element = store.firstChild(last) + 44;
+        assertEquals(12_344, store.arrayIndex(element));
+        assertEquals("12344", document.getValue(store.node(element)));
+        check(document, store);
+    }
+}
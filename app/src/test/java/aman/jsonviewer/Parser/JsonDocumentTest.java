@@ -0,0 +1,243 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+
+public class JsonDocumentTest {
+
+    private static final String[] STRINGS = {
+        "", "plain", "with space", "tab\there", "quote\"", "back\\slash", "é", "😀", "line\nbreak"
+    };
+    private static final String[] NUMBERS = {
+        "0", "-1", "3.25", "1e9", "-0.5E-3", "12345678901234"
+    };
+    private static final String[] LITERALS = {"true", "false", "null"};
+
+    /** Appends a random object or array; the values are written with random whitespace. */
+    static void appendRandomContainer(StringBuilder json, Random random, int depth) {
+        appendRandomContainer(json, null, random, depth);
+    }
+
+    /**
+     * Same, also appending to {@code canonical} the text {@link #canonical(JsonDocument, int)}
+     * should give back for it.
+     */
+    private static void appendRandomContainer(
+            StringBuilder json, StringBuilder canonical, Random random, int depth) {
+        boolean object = random.nextBoolean();
+        json.append(object ? '{' : '[');
+        append(canonical, object ? "{" : "[");
+        int count = random.nextInt(depth < 4 ? 6 : 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(random.nextBoolean() ? "," : " ,\n ");
+                append(canonical, ",");
+            }
+            if (object) {
+                String key = STRINGS[random.nextInt(STRINGS.length)] + i;
+                appendString(json, canonical, key, random);
+                json.append(random.nextBoolean() ? ":" : " : ");
+                append(canonical, ":");
+            }
+            int kind = random.nextInt(depth < 4 ? 6 : 4);
+            if (kind == 0) {
+                appendString(json, canonical, STRINGS[random.nextInt(STRINGS.length)], random);
+            } else if (kind == 1) {
+                String number = NUMBERS[random.nextInt(NUMBERS.length)];
+                json.append(number);
+                append(canonical, number);
+            } else if (kind == 2) {
+                String literal = LITERALS[random.nextInt(LITERALS.length)];
+                json.append(literal);
+                append(canonical, literal);
+            } else if (kind == 3) {
+                json.append("\t");
+                appendString(json, canonical, "", random);
+            } else {
+                appendRandomContainer(json, canonical, random, depth + 1);
+            }
+        }
+        json.append(object ? '}' : ']');
+        append(canonical, object ? "}" : "]");
+    }
+
+    /** Writes {@code value} quoted, sometimes with every char escaped as \\uXXXX. */
+    private static void appendString(
+            StringBuilder json, StringBuilder canonical, String value, Random random) {
+        if (random.nextInt(4) == 0) {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                json.append(String.format("\\u%04x", (int) value.charAt(i)));
+            }
+            json.append('"');
+        } else {
+            JsonStrings.quote(value, json);
+        }
+        if (canonical != null) JsonStrings.quote(value, canonical);
+    }
+
+    private static void append(StringBuilder out, String s) {
+        if (out != null) out.append(s);
+    }
+
+    /** The node as compact JSON, rebuilt from the document's keys and values. */
+    private static String canonical(JsonDocument document, int node) {
+        StringBuilder out = new StringBuilder();
+        canonical(document, node, out);
+        return out.toString();
+    }
+
+    private static void canonical(JsonDocument document, int node, StringBuilder out) {
+        int type = document.getType(node);
+        if (type == JsonDocument.TYPE_STRING) {
+            JsonStrings.quote(document.getValue(node), out);
+            return;
+        }
+        if (!document.isContainer(node)) {
+            out.append(document.getValue(node));
+            return;
+        }
+        boolean object = type == JsonDocument.TYPE_OBJECT;
+        out.append(object ? '{' : '[');
+        int count = 0;
+        for (int child = document.getFirstChild(node); child < document.getEnd(node);
+                child = document.getNextSibling(child)) {
+            if (count++ > 0) out.append(',');
+            if (object) {
+                JsonStrings.quote(document.getKey(child), out);
+                out.append(':');
+            } else {
+                assertNull(document.getKey(child));
+            }
+            canonical(document, child, out);
+        }
+        assertEquals(document.getChildCount(node), count);
+        out.append(object ? '}' : ']');
+    }
+
+    @Test
+    public void randomDocumentsRoundTrip() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder json = new StringBuilder();
+            StringBuilder canonical = new StringBuilder();
+            appendRandomContainer(json, canonical, random, 0);
+            JsonDocument document = JsonDocument.parse(json.toString());
+            assertEquals(json.toString(), canonical.toString(), canonical(document, 0));
+            assertEquals(json.toString().getBytes(StandardCharsets.UTF_8).length,
+                    document.getByteLength(0));
+        }
+    }
+
+    @Test
+    public void streamedParseMatchesBufferParse() throws IOException {
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder json = new StringBuilder();
+            appendRandomContainer(json, random, 0);
+            byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+            JsonDocument streamed = JsonDocument.parse(
+                    new RetainingInputStream(new ChunkedStream(bytes, 1 + random.nextInt(7)), 0));
+            assertEquals(canonical(JsonDocument.parse(bytes), 0), canonical(streamed, 0));
+        }
+    }
+
+    @Test
+    public void subtreeStats() throws IOException {
+        String json = "{\"a\": [1, 2, {\"b\": null}], \"c\": \"xy\"}";
+        JsonDocument document = JsonDocument.parse(json);
+        int a = document.getFirstChild(0);
+        int c = document.getNextSibling(a);
+        assertEquals("a", document.getKey(a));
+        assertEquals("c", document.getKey(c));
+        assertEquals(6, document.getDescendantCount(0));
+        assertEquals(4, document.getDescendantCount(a));
+        assertEquals(json.length(), document.getByteLength(0));
+        assertEquals("[1, 2, {\"b\": null}]".length(), document.getByteLength(a));
+        assertEquals(4, document.getByteLength(c));
+        assertEquals(3, document.getMaxDepth(0));
+        assertEquals(2, document.getMaxDepth(a));
+        assertEquals(0, document.getMaxDepth(c));
+    }
+
+    @Test
+    public void deepNesting() throws IOException {
+        int levels = 100_000;
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < levels; i++) json.append("{\"k\":[");
+        json.append("true");
+        for (int i = 0; i < levels; i++) json.append("]}");
+        JsonDocument document = JsonDocument.parse(json.toString());
+        assertEquals(levels * 2, document.getMaxDepth(0));
+        assertEquals(levels * 2, document.getDescendantCount(0));
+        int node = 0;
+        while (document.isContainer(node)) node = document.getFirstChild(node);
+        assertEquals("true", document.getValue(node));
+    }
+
+    @Test
+    public void escapesAndSurrogatePairs() throws IOException {
+        JsonDocument document = JsonDocument.parse(
+                "{\"\\u006b\\u00e9y\": [\"\\ud83d\\ude00\", \"😀\", \"a\\nb\\u0000\"]}");
+        int list = document.getFirstChild(0);
+        assertEquals("kéy", document.getKey(list));
+        int first = document.getFirstChild(list);
+        int second = document.getNextSibling(first);
+        int third = document.getNextSibling(second);
+        assertEquals("😀", document.getValue(first));
+        assertEquals("😀", document.getValue(second));
+        assertEquals("a\nb\u0000", document.getValue(third));
+
+        char[] preview = new char[2];
+        assertEquals(2, document.getValueChars(first, preview, 2));
+        assertEquals("😀", new String(preview));
+    }
+
+    @Test
+    public void rejectsScalarRoots() throws IOException {
+        for (String json : new String[] {"1", "\"x\"", "null"}) {
+            try {
+                JsonDocument.parse(json);
+                fail("Accepted " + json);
+            } catch (JsonParseException e) {
+                assertEquals(0, e.getOffset());
+            }
+        }
+        try {
+            JsonDocument.parse((String) null);
+            fail("Accepted null");
+        } catch (JsonParseException e) {
+            assertTrue(e.getMessage().startsWith("No data"));
+        }
+    }
+
+    /** Hands out at most {@code chunk} bytes per read. */
+    private static final class ChunkedStream extends InputStream {
+        private final ByteArrayInputStream in;
+        private final int chunk;
+
+        ChunkedStream(byte[] data, int chunk) {
+            this.in = new ByteArrayInputStream(data);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read() {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return in.read(b, off, Math.min(len, chunk));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class JsonStringsTest {
+
+    // Chars whose case folding is not one to one, plus some that have no case at all
+    private static final String CHARS = "aAbBkKsSßéÉıIİiσΣςﬀ😀.[]0 ";
+
+    private static String randomText(Random random, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) text.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        return text.toString();
+    }
+
+    @Test
+    public void charBufferSearchAgreesWithStringSearch() {
+        Random random = new Random(31);
+        char[] buffer = new char[64];
+        for (int i = 0; i < 20_000; i++) {
+            String text = randomText(random, 40);
+            String lowerQuery = randomText(random, 4).toLowerCase();
+            // Stale chars past the length must not be matched
+            for (int k = text.length(); k < buffer.length; k++) buffer[k] = 'a';
+            text.getChars(0, text.length(), buffer, 0);
+            assertEquals(text + " / " + lowerQuery,
+                    JsonStrings.indexOfIgnoreCase(text, lowerQuery),
+                    JsonStrings.indexOfIgnoreCase(buffer, text.length(), lowerQuery));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class JsonTokenizerTest {
+
+    private static final String SAMPLE =
+            "{\"name\": \"caf\\u00e9\", \"n\": -12.5e3, \"ok\": true, \"no\": false,"
+                    + " \"nil\": null, \"list\": [1, [], {}, \"x\"]}";
+
+    /** Reads one byte per call, so every token crosses a refill. */
+    private static final class TrickleStream extends InputStream {
+        private final byte[] data;
+        private int pos;
+
+        TrickleStream(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos == data.length) return -1;
+            if (len == 0) return 0;
+            b[off] = data[pos++];
+            return 1;
+        }
+    }
+
+    private static JsonTokenizer tokenizer(String json) {
+        return new JsonTokenizer(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Every token as "type:offset:length:text", the text decoded for names and strings. */
+    private static List<String> tokens(JsonTokenizer tokenizer) throws IOException {
+        List<String> out = new ArrayList<>();
+        int token;
+        do {
+            token = tokenizer.next();
+            String text = token == JsonTokenizer.NAME || token == JsonTokenizer.STRING
+                    ? tokenizer.getString()
+                    : tokenizer.getText();
+            out.add(token + ":" + tokenizer.getTokenOffset() + ":" + tokenizer.getTokenLength()
+                    + ":" + text);
+        } while (token != JsonTokenizer.END_DOCUMENT);
+        return out;
+    }
+
+    @Test
+    public void tokenizesEveryKindOfValue() throws IOException {
+        JsonTokenizer t = tokenizer(SAMPLE);
+        assertEquals(JsonTokenizer.BEGIN_OBJECT, t.next());
+        assertEquals(1, t.getDepth());
+        assertEquals(JsonTokenizer.NAME, t.next());
+        assertEquals("name", t.getString());
+        assertEquals(JsonTokenizer.STRING, t.next());
+        assertEquals("café", t.getString());
+        assertTrue(t.hasEscapes());
+        assertEquals(JsonTokenizer.NAME, t.next());
+        assertFalse(t.hasEscapes());
+        assertEquals(JsonTokenizer.NUMBER, t.next());
+        assertEquals("-12.5e3", t.getText());
+        t.next();
+        assertEquals(JsonTokenizer.TRUE, t.next());
+        t.next();
+        assertEquals(JsonTokenizer.FALSE, t.next());
+        t.next();
+        assertEquals(JsonTokenizer.NULL, t.next());
+        t.next();
+        assertEquals(JsonTokenizer.BEGIN_ARRAY, t.next());
+        assertEquals(2, t.getDepth());
+        assertEquals(JsonTokenizer.NUMBER, t.next());
+        assertEquals(JsonTokenizer.BEGIN_ARRAY, t.next());
+        assertEquals(JsonTokenizer.END_ARRAY, t.next());
+        assertEquals(JsonTokenizer.BEGIN_OBJECT, t.next());
+        assertEquals(JsonTokenizer.END_OBJECT, t.next());
+        assertEquals(JsonTokenizer.STRING, t.next());
+        assertEquals(JsonTokenizer.END_ARRAY, t.next());
+        assertEquals(JsonTokenizer.END_OBJECT, t.next());
+        assertEquals(0, t.getDepth());
+        assertEquals(JsonTokenizer.END_DOCUMENT, t.next());
+    }
+
+    @Test
+    public void tinyBufferRefillsGiveTheSameTokens() throws IOException {
+        byte[] bytes = SAMPLE.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = tokens(new JsonTokenizer(new ByteArrayInputStream(bytes)));
+        assertEquals(expected, tokens(new JsonTokenizer(new ByteArrayInputStream(bytes), 16)));
+        assertEquals(expected, tokens(new JsonTokenizer(new TrickleStream(bytes), 16)));
+    }
+
+    @Test
+    public void tokenLongerThanTheBuffer() throws IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) value.append((char) ('a' + i % 26));
+        StringBuilder digits = new StringBuilder("1");
+        for (int i = 0; i < 500; i++) digits.append(i % 10);
+        String json = "[\"" + value + "\", " + digits + "]";
+
+        JsonTokenizer t = new JsonTokenizer(
+                new TrickleStream(json.getBytes(StandardCharsets.UTF_8)), 16);
+        assertEquals(JsonTokenizer.BEGIN_ARRAY, t.next());
+        assertEquals(JsonTokenizer.STRING, t.next());
+        assertEquals(1, t.getTokenOffset());
+        assertEquals(value.length() + 2, t.getTokenLength());
+        assertEquals(value.toString(), t.getString());
+        assertEquals(JsonTokenizer.NUMBER, t.next());
+        assertEquals(value.length() + 5, t.getTokenOffset());
+        assertEquals(digits.toString(), t.getText());
+        assertEquals(JsonTokenizer.END_ARRAY, t.next());
+        assertEquals(JsonTokenizer.END_DOCUMENT, t.next());
+    }
+
+    @Test
+    public void deepNesting() throws IOException {
+        int levels = 100_000;
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < levels; i++) json.append("[{\"k\":");
+        json.append("0");
+        for (int i = 0; i < levels; i++) json.append("}]");
+
+        JsonTokenizer t = new JsonTokenizer(
+                new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)), 16);
+        int maxDepth = 0;
+        int count = 0;
+        for (int token = t.next(); token != JsonTokenizer.END_DOCUMENT; token = t.next()) {
+            maxDepth = Math.max(maxDepth, t.getDepth());
+            count++;
+        }
+        assertEquals(levels * 2, maxDepth);
+        assertEquals(levels * 5 + 1, count);
+    }
+
+    @Test
+    public void escapesAndSurrogatePairs() throws IOException {
+        String json = "[\"\\\"\\\\\\/\\b\\f\\n\\r\\t\", \"\\ud83d\\ude00 \\u00E9\", \"😀 é\","
+                + " \"\\ud83d\"]";
+        JsonTokenizer t = new JsonTokenizer(
+                new TrickleStream(json.getBytes(StandardCharsets.UTF_8)), 16);
+        t.next();
+        assertEquals(JsonTokenizer.STRING, t.next());
+        assertEquals("\"\\/\b\f\n\r\t", t.getString());
+        t.next();
+        assertEquals("\ud83d\ude00 é", t.getString());
+        t.next();
+        assertFalse(t.hasEscapes());
+        assertEquals("\ud83d\ude00 é", t.getString());
+        t.next();
+        assertEquals(1, t.getString().length()); // A lone surrogate still decodes to one char
+
+        char[] dst = new char[1];
+        assertEquals(1, t.getString(dst, 1));
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        String[] bad = {
+            "", "{", "[1,]", "{\"a\" 1}", "[01]", "[1.]", "[-]", "[1e]", "[tru]", "[\"a\nb\"]",
+            "[\"\\x\"]", "[\"\\u12G4\"]", "[1 2]", "{]", "[1]]", "[1] x", "{\"a\":1,}", "{1:2}",
+            "[\"abc", "[}"
+        };
+        for (String json : bad) {
+            try {
+                JsonTokenizer t = new JsonTokenizer(
+                        new TrickleStream(json.getBytes(StandardCharsets.UTF_8)), 16);
+                while (t.next() != JsonTokenizer.END_DOCUMENT) {}
+                fail("Accepted " + json);
+            } catch (JsonParseException e) {
+                assertTrue(json, e.getOffset() >= 0 && e.getOffset() <= json.length());
+            } catch (IOException e) {
+                fail(json + ": " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+
+public class JsonValidatorTest {
+
+    private static final String[] MALFORMED = {
+        "", "   ", "{", "[", "[1,]", "{\"a\" 1}", "[01]", "[1.]", "[-]", "[1e]", "[tru]",
+        "\"x\"", "1", "[\"a\nb\"]", "[\"\\x\"]", "[\"\\u12G4\"]", "[1 2]", "{]", "[1]]",
+        "[1] x", "{\"a\":1,}", "{1:2}", "[\"abc", "{\n  \"a\": tru\n}", "[\n\"é\", x]",
+        "[1,\n 2,\n  }"
+    };
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static JsonParseException validatorError(byte[] json) {
+        try {
+            JsonValidator.validate(json);
+        } catch (JsonParseException e) {
+            return e;
+        }
+        return null;
+    }
+
+    private static JsonParseException parserError(byte[] json) {
+        try {
+            JsonDocument.parse(json);
+        } catch (JsonParseException e) {
+            return e;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return null;
+    }
+
+    /** Feeds the document one byte at a time, so every state crosses a feed boundary. */
+    private static JsonParseException byteByByteError(byte[] json) {
+        JsonValidator validator = new JsonValidator();
+        try {
+            for (int i = 0; i < json.length; i++) validator.feed(json, i, 1);
+            validator.finish();
+        } catch (JsonParseException e) {
+            return e;
+        }
+        return null;
+    }
+
+    @Test
+    public void agreesWithTheParserOnMalformedInput() {
+        for (String json : MALFORMED) {
+            JsonParseException validated = validatorError(utf8(json));
+            JsonParseException parsed = parserError(utf8(json));
+            if (validated == null || parsed == null) fail("Accepted " + json);
+            assertEquals(json, parsed.getOffset(), validated.getOffset());
+            JsonParseException fed = byteByByteError(utf8(json));
+            if (fed == null) fail("Accepted byte by byte " + json);
+            assertEquals(json, validated.getMessage(), fed.getMessage());
+        }
+    }
+
+    @Test
+    public void reportsLineAndColumn() {
+        assertPosition("{\n  \"a\": tru\n}", 12, 2, 11);
+        assertPosition("[1,\n 2,\n  }", 10, 3, 3);
+        assertPosition("[1,]", 3, 1, 4);
+        // Columns count characters: "é" is two bytes but one column
+        assertPosition("[\n\"é\", x]", 8, 2, 6);
+        assertPosition("[1,\r\n 2 3]", 8, 2, 4);
+    }
+
+    private static void assertPosition(String json, long offset, long line, long column) {
+        JsonParseException e = validatorError(utf8(json));
+        if (e == null) fail("Accepted " + json);
+        assertEquals(json, offset, e.getOffset());
+        assertEquals(json, line, e.getLine());
+        assertEquals(json, column, e.getColumn());
+        JsonParseException parsed = parserError(utf8(json));
+        assertEquals(json, offset, parsed.getOffset());
+    }
+
+    @Test
+    public void acceptsWhatTheParserAccepts() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            StringBuilder json = new StringBuilder();
+            JsonDocumentTest.appendRandomContainer(json, random, 0);
+            byte[] bytes = utf8(json.toString());
+            JsonValidator.validate(bytes);
+            JsonValidator.validate(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip());
+            JsonDocument.parse(bytes);
+        }
+    }
+
+    @Test
+    public void deepNestingNeedsNoRecursion() throws JsonParseException {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) json.append('[');
+        for (int i = 0; i < 200_000; i++) json.append(']');
+        JsonValidator.validate(utf8(json.toString()));
+    }
+
+    @Test
+    public void byteOrderMarkIsSkipped() throws IOException {
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '[', '1', ']'};
+        JsonValidator.validate(bom);
+        assertEquals(1, JsonDocument.parse(bom).getChildCount(0));
+    }
+}
@@ -0,0 +1,113 @@
+package aman.jsonviewer;
+
+import java.util.Random;
+
+/**
+ * Random documents for the tests that check a structure built from a {@link JsonDocument} against
+ * a plain walk of it. The options add the shapes a structure splits or pages on.
+ */
+final class RandomJson {
+
+    private int[] longArrays;    // Lengths of arrays long enough to be split, or null for none
+    private int minChain;        // Levels of a deep chain of single-child containers
+    private int maxChain;        // 0 for no chains
+    private String[] words;      // Text of keys and strings, or null for short fixed ones
+
+    /** Now and then an array of one of these lengths, holding mostly scalars. */
+    RandomJson longArrays(int... lengths) {
+        this.longArrays = lengths;
+        return this;
+    }
+
+    /** Now and then a chain of {@code minLevels} to {@code maxLevels} nested containers. */
+    RandomJson deepChains(int minLevels, int maxLevels) {
+        this.minChain = minLevels;
+        this.maxChain = maxLevels;
+        return this;
+    }
+
+    /** Builds keys and strings from these words, sometimes runs of them long enough to cut. */
+    RandomJson words(String... words) {
+        this.words = words;
+        return this;
+    }
+
+    /** A random object or array. */
+    String next(Random random) {
+        StringBuilder json = new StringBuilder();
+        appendContainer(json, random, 0);
+        return json.toString();
+    }
+
+    /** A random word, or now and then a run of them; "s" without {@link #words}. */
+    String text(Random random) {
+        if (words == null) return "s";
+        int count = random.nextInt(12) == 0 ? 40 + random.nextInt(40) : 1 + random.nextInt(3);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(random.nextBoolean() ? " " : "");
+            text.append(words[random.nextInt(words.length)]);
+        }
+        return text.toString();
+    }
+
+    private void appendContainer(StringBuilder json, Random random, int depth) {
+        if (maxChain > 0 && depth < 3 && random.nextInt(6) == 0) {
+            int levels = minChain + random.nextInt(maxChain - minChain + 1);
+            StringBuilder closing = new StringBuilder();
+            for (int i = 0; i < levels; i++) {
+                boolean object = random.nextBoolean();
+                json.append(object ? "{\"deep\":" : "[");
+                closing.append(object ? '}' : ']');
+            }
+            appendContainer(json, random, depth + 1);
+            json.append(closing.reverse());
+            return;
+        }
+        if (longArrays != null && depth < 3 && random.nextInt(5) == 0) {
+            int length = longArrays[random.nextInt(longArrays.length)];
+            json.append('[');
+            for (int i = 0; i < length; i++) {
+                if (i > 0) json.append(',');
+                if (random.nextInt(50) == 0) {
+                    json.append("{\"i\":").append(i).append('}');
+                } else {
+                    appendScalar(json, random, random.nextInt(3));
+                }
+            }
+            json.append(']');
+            return;
+        }
+        boolean object = random.nextBoolean();
+        json.append(object ? '{' : '[');
+        int count = random.nextInt(depth < 3 ? 6 : 3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) json.append(',');
+            if (object) {
+                // Repeated names without words, so that shared member names are exercised
+                JsonStrings.quote(words != null ? text(random) + i : "k" + i % 7, json);
+                json.append(':');
+            }
+            int kind = random.nextInt(depth < 5 ? 6 : 4);
+            if (kind < 4) {
+                appendScalar(json, random, kind);
+            } else {
+                appendContainer(json, random, depth + 1);
+            }
+        }
+        json.append(object ? '}' : ']');
+    }
+
+    /** A number, literal or string, or an empty container for {@code kind} 3. */
+    private void appendScalar(StringBuilder json, Random random, int kind) {
+        if (kind == 0) {
+            json.append(random.nextInt(2000));
+        } else if (kind == 1) {
+            json.append(random.nextBoolean() ? "true" : "null");
+        } else if (kind == 2) {
+            JsonStrings.quote(text(random), json);
+        } else {
+            json.append(random.nextBoolean() ? "[]" : "{}");
+        }
+    }
+}
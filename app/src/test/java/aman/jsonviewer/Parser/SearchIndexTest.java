@@ -0,0 +1,163 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+    // Mixed case, non-ASCII and chars whose case folding is not one to one
+    private static final String[] WORDS = {
+        "alpha", "BETA", "Gamma", "straße", "ÉCOLE", "école", "😀x", "İstanbul", "Kelvin",
+        "kelvin", "ΣΊΣΥΦΟΣ", "a.b", "[3]", "12", "0.5e3", "true", "null", "x"
+    };
+
+    private static final long NO_CAP = Long.MAX_VALUE;
+
+    // Arrays long enough for multi-digit "[i]" labels
+    private static final RandomJson DOCUMENTS = new RandomJson().longArrays(120).words(WORDS);
+
+    /** A query cut from the document text, in random case, or made of random word pieces. */
+    private static String randomQuery(String json, Random random) {
+        String query;
+        if (random.nextBoolean()) {
+            int from = random.nextInt(json.length());
+            query = json.substring(from, Math.min(json.length(), from + 2 + random.nextInt(6)));
+        } else {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            int from = random.nextInt(word.length());
+            query = word.substring(from) + WORDS[random.nextInt(WORDS.length)];
+            query = query.substring(0, Math.min(query.length(), 2 + random.nextInt(6)));
+        }
+        int mode = random.nextInt(3);
+        if (mode == 0) return query.toUpperCase();
+        if (mode == 1) return query.toLowerCase();
+        return query;
+    }
+
+    /** Whether a node matches the way the tabs test it: its key or "[i]" label, or its value. */
+    private static boolean matches(JsonDocument document, int node, int index, String lowerQuery) {
+        String label = index >= 0 ? "[" + index + "]" : document.getKey(node);
+        if (label != null && JsonStrings.indexOfIgnoreCase(label, lowerQuery) >= 0) return true;
+        return !document.isContainer(node)
+                && JsonStrings.indexOfIgnoreCase(document.getValue(node), lowerQuery) >= 0;
+    }
+
+    /** Every node that matches, in document order, found by testing each one. */
+    private static int[] scan(JsonDocument document, String lowerQuery) {
+        int[] found = new int[16];
+        int count = 0;
+        int[] stack = new int[16];
+        int[] indexes = new int[16];
+        int size = 0;
+        stack[size] = document.getRoot();
+        indexes[size++] = -1;
+        while (size > 0) {
+            int node = stack[--size];
+            int index = indexes[size];
+            if (matches(document, node, index, lowerQuery)) {
+                if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                found[count++] = node;
+            }
+            if (!document.isContainer(node)) continue;
+            int children = document.getChildCount(node);
+            if (size + children > stack.length) {
+                stack = Arrays.copyOf(stack, size + children + 16);
+                indexes = Arrays.copyOf(indexes, stack.length);
+            }
+            boolean array = document.getType(node) == JsonDocument.TYPE_ARRAY;
+            int child = document.getFirstChild(node);
+            // Pushed last to first, so they pop in document order
+            int[] ids = new int[children];
+            for (int i = 0; i < children; i++, child = document.getNextSibling(child)) ids[i] = child;
+            for (int i = children - 1; i >= 0; i--) {
+                stack[size] = ids[i];
+                indexes[size++] = array ? i : -1;
+            }
+        }
+        int[] sorted = Arrays.copyOf(found, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    @Test
+    public void candidatesCoverEveryMatch() throws IOException {
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            String json = DOCUMENTS.next(random);
+            JsonDocument document = JsonDocument.parse(json);
+            SearchIndex index = SearchIndex.build(document, NO_CAP);
+            assertNotNull(index);
+            for (int q = 0; q < 30; q++) {
+                String lowerQuery = randomQuery(json, random).toLowerCase();
+                int[] candidates = index.candidates(lowerQuery);
+                if (lowerQuery.length() < SearchIndex.MIN_QUERY_LENGTH) {
+                    assertNull(candidates);
+                    continue;
+                }
+                assertNotNull(candidates);
+                for (int k = 1; k < candidates.length; k++) {
+                    assertTrue("Not sorted", candidates[k - 1] < candidates[k]);
+                }
+                for (int node : scan(document, lowerQuery)) {
+                    if (Arrays.binarySearch(candidates, node) < 0) {
+                        fail("Node " + node + " matches \"" + lowerQuery + "\" in " + json
+                                + " but is not a candidate");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void arrayLabelsAndLongValuesAreCandidates() throws IOException {
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 100; i++) longText.append("Needle").append(i);
+        StringBuilder json = new StringBuilder("{\"list\":[");
+        for (int i = 0; i < 150; i++) json.append(i == 0 ? "" : ",").append("\"v\"");
+        json.append("],\"text\":");
+        JsonStrings.quote(longText.toString(), json);
+        json.append('}');
+        JsonDocument document = JsonDocument.parse(json.toString());
+        SearchIndex index = SearchIndex.build(document, NO_CAP);
+
+        int list = document.getFirstChild(document.getRoot());
+        int element = document.getFirstChild(list);
+        for (int i = 0; i < 123; i++) element = document.getNextSibling(element);
+        assertTrue(Arrays.binarySearch(index.candidates("[123]"), element) >= 0);
+
+        int text = document.getNextSibling(list);
+        assertTrue(Arrays.binarySearch(index.candidates("needle99"), text) >= 0);
+        // A long value is a candidate for any query, as it was not split into trigrams
+        assertTrue(Arrays.binarySearch(index.candidates("zzz"), text) >= 0);
+    }
+
+    @Test
+    public void valueCutInsideASurrogatePairIsStillTooLong() throws IOException {
+        // The pair would be chars 257 and 258, just past the indexed length
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 256; i++) value.append('a');
+        value.append("😀needle");
+        StringBuilder json = new StringBuilder("[");
+        JsonStrings.quote(value.toString(), json);
+        JsonDocument document = JsonDocument.parse(json.append(']').toString());
+        SearchIndex index = SearchIndex.build(document, NO_CAP);
+        int node = document.getFirstChild(document.getRoot());
+        assertTrue(Arrays.binarySearch(index.candidates("needle"), node) >= 0);
+    }
+
+    @Test
+    public void buildGivesUpAtTheCap() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) json.append(i == 0 ? "" : ",").append("\"word").append(i).append('"');
+        JsonDocument document = JsonDocument.parse(json.append(']').toString());
+        assertNull(SearchIndex.build(document, 16 * 1024));
+        assertNotNull(SearchIndex.build(document, NO_CAP));
+    }
+}
@@ -0,0 +1,84 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import org.junit.Test;
+
+public class SizeReportTest {
+
+    // Compact ASCII, so every byte length below is the length of the value's text
+    private static final String JSON =
+            "{\"a\":{\"a\":[1,2]},\"b c\":\"xyz\",\"it's\":[10,20,30],\"9x\":true,"
+                    + "\"list\":[{\"a\":1},{\"a\":22}]}";
+
+    private static String[] paths(SizeReport.Entry[] entries) {
+        String[] paths = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) paths[i] = entries[i].path;
+        return paths;
+    }
+
+    private static void assertBytes(long[] expected, SizeReport.Entry[] entries) {
+        assertEquals(expected.length, entries.length);
+        for (int i = 0; i < expected.length; i++) assertEquals(expected[i], entries[i].bytes);
+    }
+
+    @Test
+    public void largestSubtreesByBytesWithTiesInDocumentOrder() throws IOException {
+        SizeReport report = SizeReport.build(JsonDocument.parse(JSON), 20);
+        assertEquals(JSON.length(), report.totalBytes);
+        // Every value below the root, largest first
+        assertArrayEquals(new String[] {
+            "$.list", "$.a", "$['it\\'s']", "$.list[1]", "$.list[0]", "$.a.a", "$['b c']",
+            "$['9x']", "$['it\\'s'][0]", "$['it\\'s'][1]", "$['it\\'s'][2]", "$.list[1].a",
+            "$.a.a[0]", "$.a.a[1]", "$.list[0].a"
+        }, paths(report.largestByBytes));
+        assertBytes(new long[] {18, 11, 10, 8, 7, 5, 5, 4, 2, 2, 2, 2, 1, 1, 1},
+                report.largestByBytes);
+        assertEquals(4, report.largestByBytes[0].count);
+        assertEquals(18 * 100.0 / JSON.length(), report.percentOf(18), 1e-9);
+    }
+
+    @Test
+    public void topKKeepsTheEarlierOfTiedSubtrees() throws IOException {
+        SizeReport report = SizeReport.build(JsonDocument.parse(JSON), 6);
+        // $.a.a and $['b c'] both take 5 bytes; only the first one fits
+        assertArrayEquals(new String[] {
+            "$.list", "$.a", "$['it\\'s']", "$.list[1]", "$.list[0]", "$.a.a"
+        }, paths(report.largestByBytes));
+    }
+
+    @Test
+    public void largestSubtreesByCountOnlyListContainers() throws IOException {
+        SizeReport report = SizeReport.build(JsonDocument.parse(JSON), 3);
+        // $.a and $['it's'] both hold three values; $.a comes first in the document
+        assertArrayEquals(new String[] {"$.list", "$.a", "$['it\\'s']"},
+                paths(report.largestByCount));
+        assertEquals(4, report.largestByCount[0].count);
+        assertEquals(3, report.largestByCount[1].count);
+        assertEquals(3, report.largestByCount[2].count);
+    }
+
+    @Test
+    public void keyNestedInItselfIsCountedOnceInBytes() throws IOException {
+        SizeReport report = SizeReport.build(JsonDocument.parse(JSON), 10);
+        assertArrayEquals(new String[] {"list", "a", "it's", "b c", "9x"},
+                paths(report.largestKeys));
+        // "a": the outer {"a":[1,2]} already holds the inner [1,2], then 1 and 22
+        SizeReport.Entry a = report.largestKeys[1];
+        assertEquals(11 + 1 + 2, a.bytes);
+        assertEquals(4, a.count);
+        assertBytes(new long[] {18, 14, 10, 5, 4}, report.largestKeys);
+    }
+
+    @Test
+    public void memberNamesAreQuotedUnlessPlain() throws IOException {
+        String json = "{\"$ok_1\":[1],\"\":[2],\"a\\\\b\":[3],\"é\":[4],\"1st\":[5],\"a-b\":[6]}";
+        SizeReport report = SizeReport.build(JsonDocument.parse(json), 6);
+        // The arrays tie at three bytes, so they list in document order
+        assertArrayEquals(new String[] {
+            "$.$ok_1", "$['']", "$['a\\\\b']", "$.é", "$['1st']", "$['a-b']"
+        }, paths(report.largestByBytes));
+    }
+}
@@ -0,0 +1,301 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Runs {@link HttpJsonLoader} against an in-process HTTP server. */
+public class HttpJsonLoaderTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Tue, 01 Oct 2024 10:00:00 GMT";
+    private static final int TIMEOUT_MS = 300;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private File cacheDir;
+    private final AtomicInteger bodiesSent = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("http-cache").toFile();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+
+        server.createContext("/etag/", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified(exchange);
+            } else {
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                send(exchange, 200, json(exchange), false);
+            }
+        });
+        server.createContext("/modified", exchange -> {
+            String since = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            if (LAST_MODIFIED.equals(since)) {
+                notModified(exchange);
+            } else {
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                send(exchange, 200, json(exchange), false);
+            }
+        });
+        server.createContext("/gzip", exchange -> {
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified(exchange);
+            } else {
+                send(exchange, 200, json(exchange), true);
+            }
+        });
+        server.createContext("/plain", exchange -> send(exchange, 200, json(exchange), false));
+        server.createContext("/invalid", exchange -> {
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            send(exchange, 200, "{\"a\": tru}", false);
+        });
+        server.createContext("/missing", exchange -> send(exchange, 404, "{}", false));
+        server.createContext("/broken", exchange -> send(exchange, 500, "{}", false));
+        server.createContext("/slow-headers", exchange -> {
+            sleep(TIMEOUT_MS * 5);
+            send(exchange, 200, "[]", false);
+        });
+        server.createContext("/slow-body", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("[1, 2,".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sleep(TIMEOUT_MS * 5);
+            } catch (IOException e) {
+                // The client gave up first
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+        File[] files = cacheDir.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        cacheDir.delete();
+    }
+
+    /** A document naming the request path, padded to a fixed size. */
+    private static String json(HttpExchange exchange) {
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 1000; i++) padding.append('x');
+        return "{\"path\": \"" + exchange.getRequestURI().getPath() + "\", \"padding\": \""
+                + padding + "\"}";
+    }
+
+    private void send(HttpExchange exchange, int code, String body, boolean gzip)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (gzip) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        bodiesSent.incrementAndGet();
+    }
+
+    private static void notModified(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private HttpJsonLoader loader(long maxCacheBytes) {
+        return new HttpJsonLoader(cacheDir, maxCacheBytes, TIMEOUT_MS, TIMEOUT_MS);
+    }
+
+    private static String path(LoadResult result) {
+        assertNotNull(result.document);
+        int node = result.document.getFirstChild(result.document.getRoot());
+        assertEquals("path", result.document.getKey(node));
+        return result.document.getValue(node);
+    }
+
+    private File cachedBody(String url) {
+        return new File(cacheDir, CacheFiles.keyOf(url) + ".json");
+    }
+
+    private File cachedMeta(String url) {
+        return new File(cacheDir, CacheFiles.keyOf(url) + ".meta");
+    }
+
+    @Test
+    public void etagHitReusesTheCachedBody() throws IOException {
+        HttpJsonLoader loader = loader(1 << 20);
+        String url = url("/etag/a");
+        assertEquals("/etag/a", path(loader.load(url, null)));
+        assertTrue(cachedBody(url).isFile());
+        assertEquals(1, bodiesSent.get());
+
+        assertEquals("/etag/a", path(loader.load(url, null)));
+        assertEquals(1, bodiesSent.get()); // Answered with 304
+    }
+
+    @Test
+    public void lastModifiedHitReusesTheCachedBody() throws IOException {
+        HttpJsonLoader loader = loader(1 << 20);
+        String url = url("/modified");
+        assertEquals("/modified", path(loader.load(url, null)));
+        assertEquals("/modified", path(loader.load(url, null)));
+        assertEquals(1, bodiesSent.get());
+    }
+
+    @Test
+    public void missingCachedBodyIsFetchedAgain() throws IOException {
+        HttpJsonLoader loader = loader(1 << 20);
+        String url = url("/etag/a");
+        loader.load(url, null);
+        assertTrue(cachedBody(url).delete());
+        assertEquals("/etag/a", path(loader.load(url, null)));
+        assertEquals(2, bodiesSent.get());
+    }
+
+    @Test
+    public void gzipBodyIsInflatedAndCachedDecoded() throws IOException {
+        HttpJsonLoader loader = loader(1 << 20);
+        String url = url("/gzip");
+        assertEquals("/gzip", path(loader.load(url, null)));
+        byte[] cached = Files.readAllBytes(cachedBody(url).toPath());
+        assertEquals('{', cached[0]);
+
+        assertEquals("/gzip", path(loader.load(url, null)));
+        assertEquals(1, bodiesSent.get());
+    }
+
+    @Test
+    public void responsesWithoutValidatorsOrInvalidJsonAreNotCached() throws IOException {
+        HttpJsonLoader loader = loader(1 << 20);
+        assertEquals("/plain", path(loader.load(url("/plain"), null)));
+        assertFalse(cachedBody(url("/plain")).exists());
+
+        LoadResult invalid = loader.load(url("/invalid"), null);
+        assertNull(invalid.document);
+        assertNotNull(invalid.error);
+        assertFalse(cachedBody(url("/invalid")).exists());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() throws IOException {
+        String a = url("/etag/a");
+        String b = url("/etag/b");
+        String c = url("/etag/c");
+        HttpJsonLoader probe = loader(1 << 20);
+        probe.load(a, null);
+        long entryBytes = cachedBody(a).length();
+
+        HttpJsonLoader loader = loader(entryBytes * 5 / 2); // Room for two entries
+        loader.load(b, null);
+        // Make the order explicit; file times may be coarser than the test runs
+        long now = System.currentTimeMillis();
+        touch(a, now - 20_000);
+        touch(b, now - 10_000);
+
+        loader.load(a, null); // A 304 marks a as used
+        loader.load(c, null);
+        assertTrue(cachedBody(a).isFile());
+        assertTrue(cachedBody(c).isFile());
+        assertFalse(cachedBody(b).exists());
+        assertFalse(cachedMeta(b).exists());
+    }
+
+    private void touch(String url, long time) {
+        assertTrue(cachedBody(url).setLastModified(time));
+        assertTrue(cachedMeta(url).setLastModified(time));
+    }
+
+    @Test
+    public void trimDeletesOldestEntriesWithTheirSiblings() throws IOException {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            File body = new File(cacheDir, "k" + i + ".json");
+            Files.write(body.toPath(), new byte[100]);
+            Files.write(new File(cacheDir, "k" + i + ".meta").toPath(), new byte[1]);
+            assertTrue(body.setLastModified(now - (4 - i) * 10_000L));
+        }
+        CacheFiles.trim(cacheDir, ".json", 250, ".meta");
+        assertFalse(new File(cacheDir, "k0.json").exists());
+        assertFalse(new File(cacheDir, "k0.meta").exists());
+        assertFalse(new File(cacheDir, "k1.json").exists());
+        assertTrue(new File(cacheDir, "k2.json").isFile());
+        assertTrue(new File(cacheDir, "k3.meta").isFile());
+
+        CacheFiles.trim(cacheDir, ".json", 1000, ".meta");
+        assertTrue(new File(cacheDir, "k2.json").isFile());
+    }
+
+    @Test
+    public void errorStatusesFail() {
+        for (String path : new String[] {"/missing", "/broken"}) {
+            try {
+                loader(1 << 20).load(url(path), null);
+                fail("Loaded " + path);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("HTTP "));
+            }
+            assertFalse(cachedBody(url(path)).exists());
+        }
+    }
+
+    @Test
+    public void slowResponsesTimeOut() {
+        for (String path : new String[] {"/slow-headers", "/slow-body"}) {
+            long start = System.currentTimeMillis();
+            try {
+                loader(1 << 20).load(url(path), null);
+                fail("Loaded " + path);
+            } catch (SocketTimeoutException e) {
+                // Expected, both before the headers and in the middle of the body
+            } catch (IOException e) {
+                fail(path + ": " + e);
+            }
+            assertTrue(path, System.currentTimeMillis() - start < TIMEOUT_MS * 4);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package aman.jsonviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class StreamPipelineTest {
+
+    private static final byte[] JSON =
+            "{\"a\": [1, 2, 3], \"b\": \"text\"}".getBytes(StandardCharsets.UTF_8);
+
+    /** Hands out {@code good} bytes, then throws {@code failure} from every read. */
+    private static final class FailingStream extends InputStream {
+        private final ByteArrayInputStream in;
+        private final RuntimeException failure;
+        private int left;
+
+        FailingStream(byte[] data, int good, RuntimeException failure) {
+            this.in = new ByteArrayInputStream(data);
+            this.left = good;
+            this.failure = failure;
+        }
+
+        @Override
+        public int read() {
+            if (left == 0) throw failure;
+            left--;
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (left == 0) throw failure;
+            int n = in.read(b, off, Math.min(len, left));
+            left -= n;
+            return n;
+        }
+    }
+
+    @Test
+    public void parsesAStream() throws IOException {
+        LoadResult result = StreamPipeline.load(new ByteArrayInputStream(JSON));
+        assertNotNull(result.document);
+        assertEquals(JSON.length, result.source.remaining());
+    }
+
+    @Test(timeout = 5000)
+    public void runtimeExceptionFromTheStreamEndsTheLoad() {
+        IllegalStateException failure = new IllegalStateException("Provider gone");
+        try {
+            StreamPipeline.load(new FailingStream(JSON, 1, failure));
+            fail("Loaded a stream that failed");
+        } catch (IOException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void runtimeExceptionThroughALoadJobEndsTheLoad() {
+        IllegalStateException failure = new IllegalStateException("Provider gone");
+        LoadJob job = new LoadJob(null);
+        try {
+            StreamPipeline.load(new FailingStream(JSON, 1, failure), JSON.length, job);
+            fail("Loaded a stream that failed");
+        } catch (IOException e) {
+            assertSame(failure, e.getCause());
+            assertTrue(!job.isCancelled());
+        }
+    }
+}